@@ -0,0 +1,342 @@
+import benchmarks.Workload;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The workloads measured by benchmarks.StageBenchmark, by name.
+ */
+public class Workloads implements Function<String, Workload> {
+    private static final String MESSAGE =
+            "id 2 time 25262 x 352.6250 y -0.5625 z -100.1875 \n";
+    private static final String MULTI_LINE_MESSAGE =
+            "id 1 time 9299 x 359.9375 y -39.8750 z -22.6250\n" +
+            "id 2 time 9299 x 159.9375 y -139.8750 z -122.6250\n" +
+            "id 3 time 9299 x 59.9375 y -9.8750 z -12.6250\n";
+
+    private Map<String, Supplier<Workload>> workloads = new HashMap<>();
+
+    public Workloads() {
+        // Receive
+        workloads.put("udpReceive", UdpWorkload::new);
+
+        // Parse
+        workloads.put("parseSingleLine", () -> simple(() -> Sample.parseMessage(MESSAGE)));
+        workloads.put("parseMultiLine", () -> simple(() -> Sample.parseMessage(MULTI_LINE_MESSAGE)));
+
+        // Smooth
+        workloads.put("filterOneEuro", () -> new FilterWorkload(() -> new OneEuroFilter(1.0, 0.007, 1.0)));
+        workloads.put("filterKalman", () -> new FilterWorkload(() -> new KalmanFilter1D(0.01, 1)));
+        workloads.put("filterMedian", () -> new FilterWorkload(() -> new MovingMedianFilter(5)));
+
+        // Model
+        workloads.put("computeArmPosition", ModelWorkload::computeArmPosition);
+        workloads.put("newSensorReading", ModelWorkload::newSensorReading);
+
+        // Emit
+        workloads.put("emit1Listener", () -> new EmitWorkload(1));
+        workloads.put("emit5Listeners", () -> new EmitWorkload(5));
+
+        // Render
+        workloads.put("projectPoint", ProjectWorkload::new);
+        workloads.put("drawArmFront", () -> new DrawArmWorkload(Projection.FRONT));
+        workloads.put("drawArmSide", () -> new DrawArmWorkload(Projection.SIDE));
+        workloads.put("drawArmOrbit", () -> new DrawArmWorkload(Projection.orbit(30, 20)));
+        workloads.put("skeletonFrame", SkeletonWorkload::new);
+        workloads.put("deJongReparam", () -> new DeJongWorkload(0));
+        workloads.put("deJongPopulate", () -> new DeJongWorkload(1));
+        workloads.put("deJongPlot", () -> new DeJongWorkload(2));
+
+        // Everything
+        workloads.put("endToEnd", EndToEndWorkload::new);
+    }
+
+    @Override
+    public Workload apply(String name) {
+        Supplier<Workload> factory = workloads.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown workload " + name);
+        }
+        return factory.get();
+    }
+
+    /**
+     * Wraps a stateless operation.
+     */
+    private static Workload simple(Supplier<Object> operation) {
+        return new Workload() {
+            public void setUp() {}
+            public Object run() { return operation.get(); }
+        };
+    }
+
+    private static class FilterWorkload implements Workload {
+        private Supplier<SignalFilter> factory;
+        private SampleFilterChain chain;
+        private Sample sample;
+        private long time;
+
+        FilterWorkload(Supplier<SignalFilter> factory) {
+            this.factory = factory;
+        }
+
+        public void setUp() {
+            chain = new SampleFilterChain();
+            chain.setDefaultChain(factory);
+            sample = new Sample(2, 0, 0.0, 0.0, 0.0);
+        }
+
+        public Object run() {
+            time += 10;
+            sample.timestamp = time;
+            sample.roll = Math.sin(time);
+            return chain.apply(sample);
+        }
+    }
+
+    private static class ModelWorkload implements Workload {
+        private boolean addReading;
+        private Modeler modeler;
+        private Sample sample = new Sample(2, 1000, -45.0, 10.0, 30.0);
+
+        static Workload computeArmPosition() {
+            ModelWorkload w = new ModelWorkload();
+            w.addReading = false;
+            return w;
+        }
+
+        static Workload newSensorReading() {
+            ModelWorkload w = new ModelWorkload();
+            w.addReading = true;
+            return w;
+        }
+
+        public void setUp() {
+            modeler = new Modeler();
+        }
+
+        public Object run() {
+            if (!addReading) return modeler.computeNewArmPosition(sample, false);
+            modeler.newSensorReading(sample);
+            return modeler;
+        }
+    }
+
+    private static class EmitWorkload implements Workload {
+        private int listenerCount;
+        private EventEmitter emitter;
+        private int received;
+
+        EmitWorkload(int listenerCount) {
+            this.listenerCount = listenerCount;
+        }
+
+        public void setUp() {
+            emitter = new EventEmitter();
+            for (int i = 0; i < listenerCount; i++) {
+                emitter.addListener("e", p -> received++);
+            }
+        }
+
+        public Object run() {
+            emitter.emit("e");
+            return emitter;
+        }
+    }
+
+    private static class ProjectWorkload implements Workload {
+        private Projection projection = Projection.orbit(30, 20);
+        private float[] out = new float[2];
+        private double z;
+
+        public void setUp() {}
+
+        public Object run() {
+            z = (z + 1) % 600;
+            projection.project(150, -250, z, 300, 300, out, 0);
+            return out;
+        }
+    }
+
+    private static class DrawArmWorkload implements Workload {
+        private Projection projection;
+        private NullCanvas canvas;
+        private Arm arm;
+
+        DrawArmWorkload(Projection projection) {
+            this.projection = projection;
+        }
+
+        public void setUp() {
+            canvas = new NullCanvas();
+            arm = new Modeler().computeNewArmPosition(new Sample(2, 0, -45.0, 0.0, 30.0), false);
+        }
+
+        public Object run() {
+            canvas.drawArm(arm, projection);
+            return canvas;
+        }
+    }
+
+    /**
+     * A whole 1080p frame of the 3D skeleton, with full trails.
+     */
+    private static class SkeletonWorkload implements Workload {
+        private Render3DSkeleton skeleton;
+
+        public void setUp() {
+            skeleton = new Render3DSkeleton(1920, 1080);
+            skeleton.initOffscreen();
+            Modeler modeler = new Modeler();
+            for (int i = 0; i < 4096; i++) {
+                Arm left = modeler.computeNewArmPosition(new Sample(1, i, (double) (i % 360), -20.0, 45.0), true);
+                Arm right = modeler.computeNewArmPosition(new Sample(2, i, -45.0, (double) (i % 180), 30.0), false);
+                skeleton.drawPose(new PoseSnapshot(i, new BothArms(left, right)), Projection.FRONT);
+            }
+        }
+
+        public Object run() {
+            skeleton.handleDraw();
+            return skeleton;
+        }
+    }
+
+    private static class DeJongWorkload implements Workload {
+        private int operation;
+        private Digital3DSketch sketch;
+        private float x;
+
+        DeJongWorkload(int operation) {
+            this.operation = operation;
+        }
+
+        public void setUp() {
+            sketch = new Digital3DSketch(600, 600);
+            sketch.initOffscreen();
+        }
+
+        public Object run() {
+            switch (operation) {
+                case 0:
+                    x = (x + 7) % 600;
+                    sketch.dj.reparam(x, 600 - x);
+                    return sketch.dj.pi;
+                case 1:
+                    sketch.dj.populate(1, false);
+                    return sketch.dj.map;
+                default:
+                    return sketch.dj.plot(0, false);
+            }
+        }
+    }
+
+    /**
+     * Sends a datagram of 10 binary messages of 5 samples over the loopback,
+     * and waits for the UdpSensorSource to deliver them: divide the time by 50
+     * for the time per sample.
+     */
+    private static class UdpWorkload implements Workload {
+        private static final int MESSAGES = 10;
+        private static final int SAMPLES = 5;
+        // A datagram lost on the loopback must not hang the benchmark
+        private static final long TIMEOUT_NANOS = 1000000000L;
+
+        private final AtomicLong received = new AtomicLong();
+        private UdpSensorSource source;
+        private DatagramChannel sender;
+        private ByteBuffer datagram;
+        private long sent;
+
+        public void setUp() {
+            if (source != null) source.stop();
+            try {
+                if (sender != null) sender.close();
+                source = new UdpSensorSource(0);
+                source.start(samples -> received.addAndGet(samples.size()));
+                sender = DatagramChannel.open();
+                sender.connect(new InetSocketAddress("127.0.0.1", source.getLocalPort()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            datagram = ByteBuffer.allocate(MESSAGES * (3 + SAMPLES * BinaryFrameDecoder.SAMPLE_SIZE));
+            for (int m = 0; m < MESSAGES; m++) {
+                List<Sample> samples = new ArrayList<>();
+                for (int s = 0; s < SAMPLES; s++) {
+                    samples.add(new Sample(s + 1, m, 1.0, 2.0, 3.0));
+                }
+                datagram.put(BinaryFrameDecoder.encode(samples));
+            }
+            datagram.flip();
+            received.set(0);
+            sent = 0;
+        }
+
+        public Object run() {
+            datagram.rewind();
+            try {
+                sender.write(datagram);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sent += MESSAGES * SAMPLES;
+            long deadline = System.nanoTime() + TIMEOUT_NANOS;
+            while (received.get() < sent && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            // Forget the samples lost, if any
+            sent = received.get();
+            return sent;
+        }
+    }
+
+    private static class EndToEndWorkload implements Workload {
+        private Modeler modeler;
+        private SamplePipeline pipeline;
+        private NullCanvas canvas;
+
+        public void setUp() {
+            modeler = new Modeler();
+            pipeline = new SamplePipeline(modeler);
+            canvas = new NullCanvas();
+            modeler.addListener(Modeler.NEW_SAMPLE, p ->
+                    canvas.drawPose(modeler.getNextSample(), Projection.FRONT));
+            modeler.getNextSample(); // skip the resting position
+        }
+
+        public Object run() {
+            pipeline.accept(Sample.parseMessage(MESSAGE));
+            return canvas;
+        }
+    }
+
+    /**
+     * A canvas that only remembers what it was asked to render, so only the
+     * cost of the shared drawArm path is measured.
+     */
+    private static class NullCanvas extends RenderCanvas {
+        float lastToX, lastToY;
+
+        NullCanvas() {
+            super(600, 600);
+        }
+
+        public void render(float fromX, float fromY, float toX, float toY) {
+            lastToX = toX;
+            lastToY = toY;
+        }
+
+        public void drawModelWithArm() {}
+        public void finalRender() {}
+    }
+}
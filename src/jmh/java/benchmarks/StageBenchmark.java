@@ -0,0 +1,66 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Measures each stage of the parse -> model -> render pipeline, and the
+ * pipeline end-to-end. Select workloads with -p workload=name1,name2.
+ *
+ * Workloads drawing on a canvas need a JVM that is not in AWT headless mode,
+ * since canvases are applets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark {
+    @Param({
+            "udpReceive",
+            "parseSingleLine",
+            "parseMultiLine",
+            "filterOneEuro",
+            "filterKalman",
+            "filterMedian",
+            "computeArmPosition",
+            "newSensorReading",
+            "emit1Listener",
+            "emit5Listeners",
+            "projectPoint",
+            "drawArmFront",
+            "drawArmSide",
+            "drawArmOrbit",
+            "skeletonFrame",
+            "deJongReparam",
+            "deJongPopulate",
+            "deJongPlot",
+            "endToEnd"
+    })
+    private String workload;
+
+    private Workload instance;
+
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Trial)
+    public void lookUp() throws ReflectiveOperationException {
+        Function<String, Workload> registry = (Function<String, Workload>)
+                Class.forName("Workloads").getDeclaredConstructor().newInstance();
+        instance = registry.apply(workload);
+    }
+
+    // Some stages keep state (eg. the modeler keeps every reading), so reset
+    // before each iteration to keep the heap comparable between iterations.
+    @Setup(Level.Iteration)
+    public void setUp() {
+        instance.setUp();
+    }
+
+    @Benchmark
+    public Object run() {
+        return instance.run();
+    }
+}
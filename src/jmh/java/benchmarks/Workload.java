@@ -0,0 +1,23 @@
+package benchmarks;
+
+/**
+ * A piece of the application measured by StageBenchmark.
+ *
+ * JMH refuses benchmarks in the default package, and the application classes
+ * live in the default package (so cannot be imported from here). Workloads
+ * are therefore written next to the application classes, and looked up by
+ * name through the Workloads registry.
+ */
+public interface Workload {
+
+    /**
+     * Prepares the workload. Called before every measurement iteration.
+     */
+    void setUp();
+
+    /**
+     * Runs one operation of the workload.
+     * @return A value depending on the work done, so it can't be optimised away
+     */
+    Object run();
+}
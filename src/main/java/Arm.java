@@ -25,7 +25,16 @@ public class Arm {
 		elbow = new Point3D(EX + shoulder.getX(), EY + shoulder.getY(), EZ + shoulder.getZ());
 		wrist = new Point3D(EX + WX + shoulder.getX(), EY + WY + shoulder.getY(), EZ + WZ + shoulder.getZ());
 		this.leftArm = left;
-		
+
+	}
+
+	/**
+	 * Initialize the Arm object with the positions of its joints
+	 */
+	public Arm(Point3D elbow, Point3D wrist, boolean left){
+		this.elbow = elbow;
+		this.wrist = wrist;
+		this.leftArm = left;
 	}
 
 	/**
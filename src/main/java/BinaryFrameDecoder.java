@@ -0,0 +1,144 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reassembles the messages sent by the Arduino in binary mode. Each message
+ * is a frame, little-endian as the Arduino stores its numbers:
+ *
+ *   0xA5          Start of the frame
+ *   count         Number of samples, one byte
+ *   count times:
+ *     id          The sensor, one byte
+ *     time        The Arduino millis(), 4 bytes unsigned
+ *     x, y, z     The angles, 4 byte floats
+ *   checksum      The XOR of every byte from count to the last sample
+ *
+ * A sample takes 17 bytes instead of about 50 as text, and needs no parsing.
+ * Bytes before a start byte are skipped. A frame with a wrong checksum is
+ * counted as an invalid line, and the decoder looks for the next start byte
+ * from the byte after the bad one, among the bytes it holds: they are moved
+ * to the front of the frame buffer, so resynchronising allocates nothing.
+ */
+public class BinaryFrameDecoder implements FrameDecoder {
+    public static final byte START = (byte) 0xA5;
+    static final int SAMPLE_SIZE = 17;
+    // The start and count bytes
+    private static final int HEADER_SIZE = 2;
+    private static final int MAX_FRAME_SIZE = HEADER_SIZE + 255 * SAMPLE_SIZE + 1;
+
+    private Consumer<List<Sample>> consumer;
+
+    private byte[] frame = new byte[MAX_FRAME_SIZE];
+    private ByteBuffer reader = ByteBuffer.wrap(frame).order(ByteOrder.LITTLE_ENDIAN);
+    private int length = 0;
+
+    /**
+     * @param consumer Receives the samples of every complete message
+     */
+    public BinaryFrameDecoder(Consumer<List<Sample>> consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void consume(ByteRing ring) {
+        while (ring.size() > 0) {
+            push(ring.take());
+        }
+    }
+
+    @Override
+    public void reset() {
+        length = 0;
+    }
+
+    /**
+     * @return Whether the bytes consumed so far end with a whole frame, or
+     *         hold no frame at all
+     */
+    boolean isBetweenFrames() {
+        return length == 0;
+    }
+
+    /**
+     * Consumes a single byte, see ModeSwitchingDecoder.
+     * @param b The next byte received
+     */
+    void push(byte b) {
+        if (length == 0 && b != START) return;
+        frame[length++] = b;
+
+        // After a bad frame, the bytes held may hold whole frames
+        while (length >= HEADER_SIZE) {
+            int frameSize = HEADER_SIZE + (frame[1] & 0xFF) * SAMPLE_SIZE + 1;
+            if (length < frameSize) return;
+
+            byte checksum = 0;
+            for (int i = 1; i < frameSize - 1; i++) {
+                checksum ^= frame[i];
+            }
+            int next;
+            if (checksum == frame[frameSize - 1]) {
+                deliver();
+                next = frameSize;
+            } else {
+                PipelineMetrics.get().invalidLine();
+                // The start byte was data: look for the frame after it
+                next = 1;
+            }
+            while (next < length && frame[next] != START) next++;
+            System.arraycopy(frame, next, frame, 0, length - next);
+            length -= next;
+        }
+    }
+
+    private void deliver() {
+        long start = System.nanoTime();
+        int count = frame[1] & 0xFF;
+        if (count == 0) return;
+
+        List<Sample> samples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int offset = HEADER_SIZE + i * SAMPLE_SIZE;
+            Sample sample = new Sample();
+            sample.sensorId = frame[offset] & 0xFF;
+            sample.timestamp = reader.getInt(offset + 1) & 0xFFFFFFFFL;
+            sample.yaw = (double) reader.getFloat(offset + 5);   // X => yaw
+            sample.pitch = (double) reader.getFloat(offset + 9); // Y => pitch
+            sample.roll = (double) reader.getFloat(offset + 13); // Z => roll
+            samples.add(sample);
+        }
+        PipelineMetrics.get().record(PipelineStage.PARSE, start);
+        consumer.accept(samples);
+    }
+
+    /**
+     * Encodes samples as a binary frame, as the Arduino sends them. Used to
+     * test the decoder, or to simulate a device.
+     * @param samples At most 255 samples
+     * @return The frame
+     */
+    public static byte[] encode(List<Sample> samples) {
+        if (samples.size() > 255) {
+            throw new IllegalArgumentException("At most 255 samples per frame, not " + samples.size());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + samples.size() * SAMPLE_SIZE + 1)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(START).put((byte) samples.size());
+        for (Sample sample : samples) {
+            buffer.put((byte) sample.sensorId)
+                    .putInt((int) sample.timestamp)
+                    .putFloat(sample.yaw.floatValue())
+                    .putFloat(sample.pitch.floatValue())
+                    .putFloat(sample.roll.floatValue());
+        }
+        byte checksum = 0;
+        for (int i = 1; i < buffer.position(); i++) {
+            checksum ^= buffer.get(i);
+        }
+        buffer.put(checksum);
+        return buffer.array();
+    }
+}
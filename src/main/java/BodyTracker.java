@@ -30,6 +30,9 @@ public class BodyTracker{
 		// Pass container view, images, and model to the Renderer
 		BodyTrackerContainer container = new BodyTrackerContainer(main.getContentPane(), logoImage, refreshImage);
 		Modeler model = new Modeler();
+
+		// Publish the pipeline metrics over JMX
+		PipelineMetrics.get().registerMBean();
 		Renderer rendererController = new Renderer(model, container);
 
 		// Clean up when window closes
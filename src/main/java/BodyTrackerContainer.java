@@ -1,9 +1,12 @@
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Date;
+import java.util.List;
 
 /**
  * The container view for the application.
@@ -18,23 +21,28 @@ public class BodyTrackerContainer {
 
     private ControlView controlsView;
 
-    // A wrapper for the canvas, and at launch-time for the logo
+    // The most canvases shown together in split view
+    private static final int MAX_SPLIT_CANVASES = 4;
+
+    // A wrapper for the canvases, and at launch-time for the logo
     private JPanel canvasPanel;
 
-    // The canvas used to render the movements. The canvas is actually a
-    // Processing applet embed in the application.
-    private RenderCanvas canvas;
+    // Feeds the arm positions to the canvases shown. The canvases are
+    // actually Processing applets embed in the application.
+    private PoseFanOut poseFanOut = new PoseFanOut();
+    // The canvases being recorded, even if not shown anymore
+    private List<CanvasDispatcher> recordedCanvases = new ArrayList<>();
     private int canvasWidth;
     private int canvasHeight;
 
-    // A mapping of the classes name to their corresponding instance
-    private Map<RenderCanvasEnum, RenderCanvas> mapCanvases;
+    // Creates the canvases when they are first selected
+    private CanvasRegistry<RenderCanvas> canvases;
 
 
     /**
      * The constructor initiates all of the view components, and takes care
-     * of the layout of those components. It also instantiates the 5
-     * Processing applets that have been implemented to render the movements.
+     * of the layout of those components. The Processing applets that render the
+     * movements are only instantiated when the user selects them.
      *
      * @param contentPane: The content panel of the JFrame
      * @param logoImage: The logo image
@@ -49,9 +57,7 @@ public class BodyTrackerContainer {
         // Set canvasWidth and canvasHeight private variables
         setCanvasWidthAndHeight();
 
-        // Initiates instances of the 5 Processing applets (instances of RenderCanvas)
-        // and map them to their class name
-        initMapCanvases();
+        canvases = new CanvasRegistry<>(CanvasRegistry.DEFAULT_SUSPENDED_CANVASES);
     }
 
     /**
@@ -127,32 +133,6 @@ public class BodyTrackerContainer {
         canvasHeight = windowHeight - connectionHeight - 25 - 20;
     }
 
-    /**
-     * Instantiates the 5 Processing applets that have been implemented to render the movements.
-     * And stores them in a map. The Processing applets need to be initiated before the main
-     * windows appears visible on screen (if not, unexplained layout and rendering behaviors happen)
-     */
-    private void initMapCanvases() {
-        mapCanvases = new HashMap<>();
-
-        mapCanvases.put(RenderCanvasEnum.FrontView2D,
-                new Render2DFront(canvasWidth, canvasHeight));
-        mapCanvases.put(RenderCanvasEnum.SideView2D,
-                new Render2DSide(canvasWidth, canvasHeight));
-        mapCanvases.put(RenderCanvasEnum.Digital3DSketch,
-                new Digital3DSketch(canvasWidth, canvasHeight));
-        mapCanvases.put(RenderCanvasEnum.Digital2DSketch,
-                new Digital2DSketch(canvasWidth, canvasHeight));
-        mapCanvases.put(RenderCanvasEnum.RenderGenerativeArt,
-        		new RenderGenerativeArt(canvasWidth, canvasHeight));
-
-        mapCanvases.get(RenderCanvasEnum.FrontView2D).init();
-        mapCanvases.get(RenderCanvasEnum.SideView2D).init();
-        mapCanvases.get(RenderCanvasEnum.Digital3DSketch).init();
-        mapCanvases.get(RenderCanvasEnum.Digital2DSketch).init();
-        mapCanvases.get(RenderCanvasEnum.RenderGenerativeArt).init();
-    }
-
     // -------------------------------------------------------------------------
     //      GETTERS
     // -------------------------------------------------------------------------
@@ -172,10 +152,10 @@ public class BodyTrackerContainer {
     }
 
     /**
-     * @return the current canvas
+     * @return the fan-out publishing the poses to the canvases shown
      */
-    public RenderCanvas getCanvas() {
-        return canvas;
+    public PoseFanOut getPoseFanOut() {
+        return poseFanOut;
     }
 
     // -------------------------------------------------------------------------
@@ -189,9 +169,14 @@ public class BodyTrackerContainer {
      * @param availablePorts An array of port names available for serial connection
      */
     public void fillAvailablePortsComboBox(ArrayList<String> availablePorts) {
-        connectionView.getAvailablePortsComboBox().removeAllItems();
+        JComboBox<String> comboBox = connectionView.getAvailablePortsComboBox();
+        // Keep the selection when the list is refreshed in the background
+        Object selected = comboBox.getSelectedItem();
+        comboBox.removeAllItems();
         for (String portName : availablePorts)
-            connectionView.getAvailablePortsComboBox().addItem(portName);
+            comboBox.addItem(portName);
+        if (selected != null && availablePorts.contains(selected))
+            comboBox.setSelectedItem(selected);
     }
 
     /**
@@ -239,25 +224,57 @@ public class BodyTrackerContainer {
     /**
      * This function is called after the user has selected a different canvas and pressed
      * the 'Apply' button in the control view.
-     * For layout reasons, we need to clear the canvas panel first, then assign the private
-     * variable 'canvas' to the running instance of the selected canvas.
+     * The selected canvas replaces the canvases shown or, in split view, is shown next
+     * to them (replacing the oldest one when MAX_SPLIT_CANVASES are already shown).
+     * For layout reasons, we need to clear the canvas panel first, then lay the running
+     * instances of the canvases out in a grid.
      */
     public void changeCanvasToUserSelection() {
         // Retrieve user selection
-        String selectedCanvas = getSelectedCanvas();
-        RenderCanvasEnum canvasEnum = RenderCanvasEnum.getEnumForValue(selectedCanvas);
+        RenderCanvasProvider provider = RenderCanvasProviders.get(getSelectedCanvas());
+        if (provider == null) return;
+
+        List<CanvasDispatcher> previous = poseFanOut.getDispatchers();
+        List<RenderCanvasProvider> providers = new ArrayList<>();
+        if (controlsView.getSplitViewCheckBox().isSelected()) {
+            for (CanvasDispatcher dispatcher : previous) {
+                providers.add(dispatcher.getProvider());
+            }
+        }
+        if (!providers.contains(provider)) {
+            if (providers.size() == MAX_SPLIT_CANVASES) providers.remove(0);
+            providers.add(provider);
+        }
 
-        // Clear the old canvas before making the switch
-        clearCanvas();
+        // Add the canvases to the canvas panel, creating them the first time
+        int columns = (int) Math.ceil(Math.sqrt(providers.size()));
+        int rows = (providers.size() + columns - 1) / columns;
+        List<RenderCanvas> shown = canvases.show(providers, canvasWidth / columns, canvasHeight / rows,
+                newCanvases -> {
+                    canvasPanel.removeAll();
+                    canvasPanel.setLayout(new GridLayout(rows, columns));
+                    for (RenderCanvas canvas : newCanvases)
+                        canvasPanel.add(canvas);
+                    canvasPanel.validate();
+                });
+
+        List<CanvasDispatcher> dispatchers = new ArrayList<>();
+        for (int i = 0; i < shown.size(); i++) {
+            dispatchers.add(new CanvasDispatcher(providers.get(i), shown.get(i)));
+        }
+        poseFanOut.setDispatchers(dispatchers);
 
-        // Add new canvas to the canvas panel
-        canvasPanel.removeAll();
-        canvas = mapCanvases.get(canvasEnum);
-        canvasPanel.add(canvas);
-        canvasPanel.validate();
+        // Clear the canvases not shown anymore
+        for (CanvasDispatcher dispatcher : previous) {
+            if (!shown.contains(dispatcher.getCanvas()) && dispatcher.getCanvas().isReady())
+                dispatcher.getCanvas().requestClear();
+        }
 
-        // Draw the human (only applicable for the 2D Side & Front views)
-        canvas.drawModelWithArm();
+        // Draw the human. A new canvas draws it itself once set up.
+        for (CanvasDispatcher dispatcher : dispatchers) {
+            if (dispatcher.has(CanvasCapability.DRAWS_MODEL) && dispatcher.getCanvas().isReady())
+                dispatcher.getCanvas().requestModel();
+        }
 
         // Disable 'Apply' button until user make a new selection
         controlsView.getApplyButton().setEnabled(false);
@@ -305,42 +322,87 @@ public class BodyTrackerContainer {
     // -------------------------------------------------------------------------
 
     /**
-     * Save the canvas currently on screen as a JPG. Save to the folder with
+     * Save the canvases currently on screen as JPGs. Save to the folder with
      * absolute path 'path'.
      *
      * @param path The path to the folder where image is saved.
      */
     public void saveCanvas(String path) {
-        if (canvas != null) {
-            canvas.save(path + "/" + getSelectedCanvas());
+        for (CanvasDispatcher dispatcher : poseFanOut.getDispatchers()) {
+            if (dispatcher.getCanvas().isReady())
+                dispatcher.getCanvas().save(path + "/" + dispatcher.getProvider().getName());
         }
     }
 
     /**
-     * Clear the canvas, ie remove the drawings of the arm movements and
-     * display a black canvas.
+     * Start recording the canvases currently on screen, each to its own
+     * Motion JPEG video in the folder with absolute path 'path'.
+     *
+     * @param path The path to the folder where the videos are saved.
+     * @throws IOException If a video file can't be created
+     */
+    public void startRecording(String path) throws IOException {
+        String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        recordedCanvases = poseFanOut.getDispatchers();
+        for (CanvasDispatcher dispatcher : recordedCanvases) {
+            RenderCanvas canvas = dispatcher.getCanvas();
+            File video = new File(path, dispatcher.getProvider().getName() + "-" + time + ".avi");
+            canvas.startRecording(new MjpegAviWriter(video, canvas.canvasWidth, canvas.canvasHeight,
+                    RenderCanvas.RECORDING_FPS));
+        }
+    }
+
+    /**
+     * Stop recording the canvases, and wait for the videos to be written.
+     *
+     * @return A summary of the recordings, to display to the user
+     */
+    public String stopRecording() {
+        long recorded = 0, dropped = 0;
+        StringBuilder errors = new StringBuilder();
+        for (CanvasDispatcher dispatcher : recordedCanvases) {
+            try {
+                FrameRecorder recorder = dispatcher.getCanvas().stopRecording();
+                if (recorder == null) continue;
+                recorded += recorder.getRecordedFrames();
+                dropped += recorder.getDroppedFrames();
+            } catch (IOException e) {
+                errors.append("Failed to save the recording of ")
+                        .append(dispatcher.getProvider().getName()).append("\n");
+                e.printStackTrace();
+            }
+        }
+        recordedCanvases = new ArrayList<>();
+        return errors + "Recorded " + recorded + " frames, " + dropped + " dropped";
+    }
+
+    /**
+     * Clear the canvases, ie remove the drawings of the arm movements and
+     * display black canvases.
      */
     public void clearCanvas() {
-        if (canvas != null) {
-            canvas.clearCanvas();
+        for (CanvasDispatcher dispatcher : poseFanOut.getDispatchers()) {
+            if (dispatcher.getCanvas().isReady())
+                dispatcher.getCanvas().requestClear();
         }
     }
 
     /**
-     * Kill instances of the canvases in mapCanvases.
+     * Kill the instances of the canvases created so far.
      */
     public void destroyCanvases() {
-        for (RenderCanvas canvas : mapCanvases.values()) {
-            canvas.destroy();
-        }
+        poseFanOut.setDispatchers(new ArrayList<>());
+        canvases.destroyAll();
     }
 
     /**
-     * Creates the final render in high quality (only applies to the 3D skecth)
+     * Creates the final render in high quality (only applies to the canvases
+     * with the FINAL_RENDER capability, eg. the 3D sketch)
      */
     public void finalRender() {
-        if (canvas != null) {
-            canvas.finalRender();
+        for (CanvasDispatcher dispatcher : poseFanOut.getDispatchers()) {
+            if (dispatcher.getCanvas().isReady() && dispatcher.has(CanvasCapability.FINAL_RENDER))
+                dispatcher.getCanvas().requestFinalRender();
         }
     }
 
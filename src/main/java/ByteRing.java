@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed-size circular buffer of bytes. Inbound serial data is read into the
+ * ring as it arrives, and consumed byte by byte by the frame assembler. The
+ * ring is allocated once and reused for the whole connection.
+ *
+ * Not thread-safe: fill and consume it from the same thread.
+ */
+public class ByteRing {
+    private byte[] buffer;
+    // Index of the next byte to take
+    private int head = 0;
+    // Number of bytes in the ring
+    private int size = 0;
+
+    /**
+     * @param capacity The maximum number of bytes the ring can hold
+     */
+    public ByteRing(int capacity) {
+        buffer = new byte[capacity];
+    }
+
+    /**
+     * @return The number of bytes waiting to be taken
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of bytes that can still be written
+     */
+    public int free() {
+        return buffer.length - size;
+    }
+
+    /**
+     * Reads from the stream into the ring, without blocking: at most the
+     * number of bytes the stream reports as available are read.
+     * @param in The stream to read from
+     * @return The number of bytes read, or -1 if the stream is closed
+     * @throws IOException If reading the stream fails
+     */
+    public int readFrom(InputStream in) throws IOException {
+        int total = 0;
+        int available = in.available();
+        while (available > 0 && free() > 0) {
+            int tail = (head + size) % buffer.length;
+            int contiguous = Math.min(free(), buffer.length - tail);
+            int n = in.read(buffer, tail, Math.min(contiguous, available));
+            if (n < 0) return total > 0 ? total : -1;
+
+            size += n;
+            total += n;
+            available -= n;
+        }
+        return total;
+    }
+
+    /**
+     * Reads the remaining bytes of the buffer into the ring, in bulk, eg.
+     * from a direct buffer a datagram was received into.
+     * @param source The buffer to read from, its position is advanced
+     * @return The number of bytes read, less than remaining if the ring is full
+     */
+    public int readFrom(ByteBuffer source) {
+        int total = 0;
+        while (source.hasRemaining() && free() > 0) {
+            int tail = (head + size) % buffer.length;
+            int n = Math.min(source.remaining(), Math.min(free(), buffer.length - tail));
+            source.get(buffer, tail, n);
+            size += n;
+            total += n;
+        }
+        return total;
+    }
+
+    /**
+     * Writes bytes into the ring.
+     * @param bytes The bytes to write
+     * @param offset Index of the first byte to write
+     * @param length Number of bytes to write
+     * @return The number of bytes written, less than length if the ring is full
+     */
+    public int write(byte[] bytes, int offset, int length) {
+        int n = Math.min(length, free());
+        for (int i = 0; i < n; i++) {
+            buffer[(head + size + i) % buffer.length] = bytes[offset + i];
+        }
+        size += n;
+        return n;
+    }
+
+    /**
+     * Takes the oldest byte out of the ring. The ring must not be empty.
+     * @return The byte
+     */
+    public byte take() {
+        byte b = buffer[head];
+        head = (head + 1) % buffer.length;
+        size--;
+        return b;
+    }
+
+    /**
+     * Drops every byte of the ring.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * The optional features a canvas implements. The view only calls the
+ * corresponding RenderCanvas methods on canvases declaring them.
+ */
+public enum CanvasCapability {
+    // Draws the human body when selected (drawModelWithArm)
+    DRAWS_MODEL,
+    // Produces a high quality render once the stream ends (finalRender)
+    FINAL_RENDER,
+    // Each frame only depends on the last few poses, so a recording can be
+    // rendered in separate segments, in parallel (OfflineRenderer)
+    INDEPENDENT_FRAMES
+}
@@ -0,0 +1,154 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The commands sent to a canvas by the other threads (the pipeline, the
+ * Swing EDT), drained by its animation thread at the start of each frame. All
+ * the state of a canvas is then only touched by its animation thread.
+ *
+ * A bounded, lock-free queue for many producers and a single consumer: a
+ * ring of slots, each with a sequence number telling whether it is free for
+ * the producer of that turn or filled for the consumer (D. Vyukov's bounded
+ * queue). Neither side ever blocks, and commands are queued without
+ * allocating.
+ */
+public class CanvasCommandQueue {
+
+    /**
+     * What a canvas can be asked to do.
+     */
+    public enum Command {
+        // Draw a PoseSnapshot, then release it
+        POSE,
+        // Clear the canvas (clearCanvas)
+        CLEAR,
+        // Draw the human body (drawModelWithArm)
+        DRAW_MODEL,
+        // Produce the final render (finalRender)
+        FINAL_RENDER,
+        // Take a snapshot once the frame is drawn
+        SAVE
+    }
+
+    /**
+     * Runs the drained commands, on the consumer thread.
+     */
+    public interface Handler {
+        void handle(Command command, Object argument);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final Command[] commands;
+    private final Object[] arguments;
+    // The turn each slot is waiting for: i when free for the producer of
+    // turn i, i + 1 when filled for the consumer of turn i
+    private final AtomicLongArray sequences;
+    // The next turn to fill, shared by the producers
+    private final AtomicLong tail = new AtomicLong();
+    // The next turn to drain, only written by the consumer
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity The maximum number of queued commands, a power of two
+     */
+    public CanvasCommandQueue(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two, not " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.commands = new Command[capacity];
+        this.arguments = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Queues a command. Can be called from any thread.
+     * @param command What to do
+     * @param argument The argument of the command, if any
+     * @return false if the queue is full
+     */
+    public boolean offer(Command command, Object argument) {
+        return offer(command, argument, 0);
+    }
+
+    /**
+     * Queues a command unless fewer than reserved slots would be left, so
+     * that frequent commands (poses) can't crowd out the rare ones.
+     * @param command What to do
+     * @param argument The argument of the command, if any
+     * @param reserved The number of slots to leave free
+     * @return false if the queue is full
+     */
+    public boolean offer(Command command, Object argument, int reserved) {
+        long turn = tail.get();
+        int slot;
+        while (true) {
+            if (turn - head.get() >= capacity - reserved) return false;
+            slot = (int) (turn & mask);
+            long difference = sequences.get(slot) - turn;
+            if (difference == 0) {
+                if (tail.compareAndSet(turn, turn + 1)) break;
+                turn = tail.get();
+            } else if (difference < 0) {
+                // Still holding the command of the previous round
+                return false;
+            } else {
+                // Another producer took this turn
+                turn = tail.get();
+            }
+        }
+        commands[slot] = command;
+        arguments[slot] = argument;
+        // Publishes the command to the consumer
+        sequences.lazySet(slot, turn + 1);
+        return true;
+    }
+
+    /**
+     * Runs the commands queued so far, in order. Must only be called by the
+     * consumer thread. Commands queued while draining wait for the next
+     * call if the queue wrapped around, so a busy producer can't hold the
+     * consumer forever.
+     * @param handler What to do with each command
+     * @return The number of commands run
+     */
+    public int drain(Handler handler) {
+        long turn = head.get();
+        int drained = 0;
+        while (drained < capacity) {
+            int slot = (int) (turn & mask);
+            if (sequences.get(slot) != turn + 1) break;
+
+            Command command = commands[slot];
+            Object argument = arguments[slot];
+            arguments[slot] = null;
+            // Frees the slot for the producer of the next round
+            sequences.lazySet(slot, turn + capacity);
+            head.lazySet(++turn);
+            drained++;
+
+            handler.handle(command, argument);
+        }
+        return drained;
+    }
+
+    /**
+     * @return The number of commands queued, approximately if the queue is
+     *         being used by other threads
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * @return The maximum number of queued commands
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Feeds the poses to a canvas, the way its provider asks for: projected onto
+ * its plane, and one sample every sampleStride samples.
+ *
+ * The provider is only read once, so dispatching a sample doesn't depend on
+ * the type of the canvas.
+ */
+public class CanvasDispatcher {
+    private final RenderCanvasProvider provider;
+    private final RenderCanvas canvas;
+    private final int sampleStride;
+
+    // Number of samples received, to skip samples
+    private int count = 0;
+
+    /**
+     * @param provider: The rendering style of the canvas
+     * @param canvas: The canvas created by the provider
+     */
+    public CanvasDispatcher(RenderCanvasProvider provider, RenderCanvas canvas) {
+        this.provider = provider;
+        this.canvas = canvas;
+        this.sampleStride = Math.max(1, provider.getSampleStride());
+        canvas.setProjection(provider.getProjection());
+    }
+
+    /**
+     * Submits the new pose to the canvas, if this sample isn't skipped.
+     * The canvas draws it on its own thread.
+     * @param pose: The new position of the arms
+     */
+    public void poseAdded(PoseSnapshot pose) {
+        if (count++ % sampleStride == 0) {
+            canvas.submitPose(pose);
+        }
+    }
+
+    /**
+     * Restarts counting the samples, so the next one is drawn.
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * @param capability: An optional feature
+     * @return true if the canvas implements it
+     */
+    public boolean has(CanvasCapability capability) {
+        return provider.getCapabilities().contains(capability);
+    }
+
+    public RenderCanvasProvider getProvider() {
+        return provider;
+    }
+
+    public RenderCanvas getCanvas() {
+        return canvas;
+    }
+}
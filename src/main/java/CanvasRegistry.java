@@ -0,0 +1,165 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Creates the canvases on demand, the first time they are shown, instead
+ * of all of them at launch.
+ *
+ * Only the canvases shown run their animation thread: the other live
+ * canvases are suspended, so showing them again is immediate. When more
+ * than maxSuspendedCanvases are suspended, the least recently used one is
+ * destroyed to release its thread and buffers.
+ *
+ * A rendering style has at most one live canvas. A canvas can't be resized
+ * once set up, so showing its style at another size (eg. in or out of the
+ * split view) destroys it and creates a new one.
+ *
+ * @param <C> The type of the canvases, RenderCanvas in the application
+ */
+public class CanvasRegistry<C extends CanvasRegistry.Lifecycle> {
+
+    /**
+     * The lifecycle of a canvas, as implemented by every Processing applet.
+     */
+    public interface Lifecycle {
+        void init();
+        void start();
+        void stop();
+        void destroy();
+    }
+
+    /**
+     * Creates the canvases of a rendering style.
+     *
+     * @param <C> The type of the canvases created
+     */
+    public interface Factory<C> {
+        /**
+         * @return The name of the rendering style, unique among the factories
+         */
+        String getName();
+
+        /**
+         * @param canvasWidth: The width of the canvas
+         * @param canvasHeight: The height of the canvas
+         * @return A new canvas, not initialised yet
+         */
+        C create(int canvasWidth, int canvasHeight);
+    }
+
+    // The canvas used just before
+    public static final int DEFAULT_SUSPENDED_CANVASES = 1;
+
+    private final int maxSuspendedCanvases;
+
+    // The live canvases by name, from the least to the most recently used
+    private final Map<String, Entry<C>> canvases = new LinkedHashMap<>(8, 0.75f, true);
+
+    private List<C> shown = new ArrayList<>();
+
+    /**
+     * @param maxSuspendedCanvases: The number of canvases kept alive while
+     *                              not shown
+     */
+    public CanvasRegistry(int maxSuspendedCanvases) {
+        if (maxSuspendedCanvases < 0)
+            throw new IllegalArgumentException("maxSuspendedCanvases can't be negative");
+        this.maxSuspendedCanvases = maxSuspendedCanvases;
+    }
+
+    /**
+     * Shows the given canvases: suspends the ones previously shown that are
+     * not in the list, then creates the canvases if needed, mounts them and
+     * starts them.
+     *
+     * The canvases are mounted (eg. added to their panel) before being
+     * initialised the first time, as Processing applets expect to be in
+     * their container when init() is called.
+     *
+     * @param providers: The rendering styles to show
+     * @param canvasWidth: The width of each canvas
+     * @param canvasHeight: The height of each canvas
+     * @param mount: Adds the canvases to the view
+     * @return The canvases shown, in the order of the providers
+     */
+    public List<C> show(List<? extends Factory<? extends C>> providers, int canvasWidth, int canvasHeight,
+                        Consumer<List<C>> mount) {
+        List<C> selected = new ArrayList<>();
+        List<C> created = new ArrayList<>();
+        for (Factory<? extends C> provider : providers) {
+            Entry<C> entry = canvases.get(provider.getName());
+            if (entry != null && (entry.width != canvasWidth || entry.height != canvasHeight)) {
+                canvases.remove(provider.getName());
+                shown.remove(entry.canvas);
+                entry.canvas.destroy();
+                entry = null;
+            }
+            if (entry == null) {
+                entry = new Entry<>(provider.create(canvasWidth, canvasHeight), canvasWidth, canvasHeight);
+                canvases.put(provider.getName(), entry);
+                created.add(entry.canvas);
+            }
+            selected.add(entry.canvas);
+        }
+
+        for (C canvas : shown) {
+            if (!selected.contains(canvas)) canvas.stop();
+        }
+        shown = selected;
+
+        mount.accept(selected);
+        for (C canvas : selected) {
+            if (created.contains(canvas)) canvas.init();
+            else canvas.start();
+        }
+
+        evictLeastRecentlyUsed();
+        return selected;
+    }
+
+    /**
+     * @return The number of canvases currently alive
+     */
+    public int getLiveCount() {
+        return canvases.size();
+    }
+
+    /**
+     * Kills all the live canvases.
+     */
+    public void destroyAll() {
+        for (Entry<C> entry : canvases.values()) {
+            entry.canvas.destroy();
+        }
+        canvases.clear();
+        shown = new ArrayList<>();
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<Entry<C>> iterator = canvases.values().iterator();
+        while (canvases.size() > shown.size() + maxSuspendedCanvases && iterator.hasNext()) {
+            C canvas = iterator.next().canvas;
+            if (shown.contains(canvas)) continue;
+            iterator.remove();
+            canvas.destroy();
+        }
+    }
+
+    /**
+     * A live canvas, and the size it was created for.
+     */
+    private static class Entry<C> {
+        final C canvas;
+        final int width, height;
+
+        Entry(C canvas, int width, int height) {
+            this.canvas = canvas;
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
@@ -94,7 +94,7 @@ public class ConnectionView extends EventEmitter {
     /**
      * @return The availablePorts combo box
      */
-    public JComboBox getAvailablePortsComboBox() { return availablePortsComboBox; }
+    public JComboBox<String> getAvailablePortsComboBox() { return availablePortsComboBox; }
 
     /**
      * @return The 'Connect' button
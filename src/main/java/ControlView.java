@@ -27,6 +27,10 @@ public class ControlView extends EventEmitter {
     // The combo box to select a rendering style from
     private JComboBox<String> renderingOptionComboBox;
     private JButton applyButton;
+    // When checked, the selected rendering style is shown next to the others
+    private JCheckBox splitViewCheckBox;
+    // Starts and stops recording the canvases to videos
+    private JButton recordButton;
 
     // Buttons to activate and stop data processing, either by loading file or streaming
     private JButton loadFromFileButton;
@@ -85,7 +89,7 @@ public class ControlView extends EventEmitter {
         renderingOptionComboBox.setFont(StyleClass.FONT_TEXT);
         renderingOptionComboBox.setForeground(StyleClass.COLOR_DARK_GREY);
         fillRenderingOptionComboBox(renderingOptionComboBox);
-        renderingOptionComboBox.setSelectedItem(RenderCanvasEnum.None.getValue());
+        renderingOptionComboBox.setSelectedItem(RenderCanvasProviders.NONE);
 
         // Change rendering option
         applyButton = new JButton("Apply");
@@ -95,6 +99,13 @@ public class ControlView extends EventEmitter {
         // Initially disabled, until user selects an option
         applyButton.setEnabled(false);
 
+        // Split view option
+        splitViewCheckBox = new JCheckBox("Split view (add to the canvases shown)");
+        splitViewCheckBox.setFont(StyleClass.FONT_TEXT);
+        splitViewCheckBox.setForeground(StyleClass.COLOR_DARK_GREY);
+        splitViewCheckBox.setOpaque(false);
+        splitViewCheckBox.setBorder(new EmptyBorder(5, 0, 5, 0));
+
         // Save canvas(es) button
         Button buttonSaveCanvases = new Button("Save canvas");
         buttonSaveCanvases.setFont(StyleClass.FONT_TEXT);
@@ -105,6 +116,11 @@ public class ControlView extends EventEmitter {
         buttonClearCanvases.setFont(StyleClass.FONT_TEXT);
         buttonClearCanvases.setForeground(StyleClass.COLOR_DARK_GREY);
 
+        // Record canvas(es) button
+        recordButton = new JButton("Start recording");
+        recordButton.setFont(StyleClass.FONT_TEXT);
+        recordButton.setForeground(StyleClass.COLOR_DARK_GREY);
+
         // Add listeners
         renderingOptionComboBox.addItemListener((e) -> {
             if (e.getStateChange() == ItemEvent.SELECTED) { applyButton.setEnabled(true); }
@@ -112,16 +128,17 @@ public class ControlView extends EventEmitter {
         applyButton.addActionListener(event -> this.emit("applyChanges"));
         buttonSaveCanvases.addActionListener(event -> this.emit("saveCanvases"));
         buttonClearCanvases.addActionListener(event -> this.emit("clearCanvases"));
+        recordButton.addActionListener(event -> this.emit("record"));
 
         // Add components to grid, space them out and add separator
         addToGrid(sectionTitleSelectStyle, 0, 0, 3, GridBagConstraints.HORIZONTAL, 0);
         addToGrid(renderingOptionComboBox, 1, 0, 2, GridBagConstraints.HORIZONTAL, 10);
         addToGrid(applyButton, 1, 2, 1, GridBagConstraints.NONE, 10);
-        addToGrid(Box.createVerticalStrut(20), 2, 0, 3, GridBagConstraints.HORIZONTAL, 0);
+        addToGrid(splitViewCheckBox, 2, 0, 3, GridBagConstraints.HORIZONTAL, 0);
         addToGrid(buttonSaveCanvases, 3, 0, 3, GridBagConstraints.HORIZONTAL, 20);
         addToGrid(Box.createVerticalStrut(5), 4, 0, 3, GridBagConstraints.HORIZONTAL, 0);
         addToGrid(buttonClearCanvases, 5, 0, 3, GridBagConstraints.HORIZONTAL, 20);
-        addToGrid(Box.createVerticalStrut(20), 6, 0, 3, GridBagConstraints.HORIZONTAL, 0);
+        addToGrid(recordButton, 6, 0, 3, GridBagConstraints.HORIZONTAL, 10);
         addToGrid(new JSeparator(SwingConstants.HORIZONTAL), 7, 0, 3, GridBagConstraints.HORIZONTAL, 0);
     }
 
@@ -205,27 +222,38 @@ public class ControlView extends EventEmitter {
 
     /**
      * Helper method to fill the combo box containing the rendering styles.
-     * All rendering styles were added to the enum RenderCanvasEnum, all possible
-     * values are retrieved here and added to the combo box
+     * The rendering styles are discovered by RenderCanvasProviders, their names
+     * are added to the combo box after the 'None' option
      *
      * @param cb: The Rendering style combo box
      */
-    private void fillRenderingOptionComboBox(JComboBox cb) {
-        for (RenderCanvasEnum canvas : RenderCanvasEnum.values()) {
-            cb.addItem(canvas.getValue());
+    private void fillRenderingOptionComboBox(JComboBox<String> cb) {
+        cb.addItem(RenderCanvasProviders.NONE);
+        for (RenderCanvasProvider provider : RenderCanvasProviders.all()) {
+            cb.addItem(provider.getName());
         }
     }
 
     /**
      * @return The rendering style combo box
      */
-    public JComboBox getRenderingOptionComboBox() { return renderingOptionComboBox; }
+    public JComboBox<String> getRenderingOptionComboBox() { return renderingOptionComboBox; }
 
     /**
      * @return The 'Apply' button
      */
     public JButton getApplyButton() { return applyButton; }
 
+    /**
+     * @return The 'Split view' check box
+     */
+    public JCheckBox getSplitViewCheckBox() { return splitViewCheckBox; }
+
+    /**
+     * @return The 'Start/Stop recording' button
+     */
+    public JButton getRecordButton() { return recordButton; }
+
     /**
      * @return The 'Load File' button
      */
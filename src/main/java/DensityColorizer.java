@@ -0,0 +1,102 @@
+import processing.core.PConstants;
+import processing.core.PImage;
+
+/**
+ * Colors the cells of a DensityMap, as the de Jong attractor of the
+ * Digital3DSketch draws them: the hue comes from the x the point came from,
+ * the saturation falls and the brightness rises with the log of the density,
+ * and the color is blended over the pixel with SOFT_LIGHT.
+ *
+ * Instead of computing two logs, three maps and an HSB conversion per cell,
+ * the logs of the densities come from a table, and the colors from a
+ * palette of the map's hues by 256 density levels, computed once per
+ * brightness boost. Large maps are colored in parallel bands.
+ */
+public class DensityColorizer {
+    // Densities below this have their log in the table
+    private static final int LOG_TABLE_SIZE = 1 << 16;
+    private static final float[] LOG = new float[LOG_TABLE_SIZE];
+    static {
+        for (int d = 1; d < LOG_TABLE_SIZE; d++) {
+            LOG[d] = (float) Math.log(d);
+        }
+    }
+
+    // The hues go from 128 to 255, one per palette row
+    private static final int HUES = DensityMap.HUES;
+    private static final int LEVELS = 256;
+    // Below this number of cells, a single thread colors them
+    private static final int MIN_CELLS_PER_BAND = 16384;
+
+    // The palettes, by brightness boost, created when first used
+    private final int[][] palettes = new int[LEVELS][];
+
+    /**
+     * Colors the cells written in the map since it was cleared, writing
+     * straight into the pixels, which have the same indices as the cells.
+     * @param map The density of each cell
+     * @param logMaxDensity The log of the highest density
+     * @param boost Added to the brightness, from 0 to 255
+     * @param pixels The image to blend the colors over
+     */
+    public void colorize(DensityMap map, float logMaxDensity, int boost, int[] pixels) {
+        int[] palette = palette(Math.max(0, Math.min(LEVELS - 1, boost)));
+        float levelScale = logMaxDensity > 0 ? (LEVELS - 1) / logMaxDensity : 0;
+        int[] cells = map.getTouched();
+
+        ParallelBands.run(map.getTouchedCount(), MIN_CELLS_PER_BAND, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int cell = cells[i];
+                int d = map.count(cell);
+                float log = d < LOG_TABLE_SIZE ? LOG[d] : (float) Math.log(d);
+                int level = Math.min(LEVELS - 1, (int) (log * levelScale + 0.5f));
+                int color = palette[map.hue(cell) * LEVELS + level];
+                pixels[cell] = PImage.blendColor(color, pixels[cell], PConstants.SOFT_LIGHT);
+            }
+        });
+    }
+
+    private synchronized int[] palette(int boost) {
+        int[] palette = palettes[boost];
+        if (palette == null) {
+            palette = new int[HUES * LEVELS];
+            for (int hue = 0; hue < HUES; hue++) {
+                for (int level = 0; level < LEVELS; level++) {
+                    float saturation = 128 - 128 * level / 255f;
+                    float brightness = level + boost;
+                    palette[hue * LEVELS + level] = hsb(128 + hue, saturation, brightness);
+                }
+            }
+            palettes[boost] = palette;
+        }
+        return palette;
+    }
+
+    /**
+     * Converts a color the way Processing does in colorMode(HSB, 255).
+     */
+    static int hsb(float hue, float saturation, float brightness) {
+        float h = Math.max(0, Math.min(255, hue)) / 255;
+        float s = Math.max(0, Math.min(255, saturation)) / 255;
+        float b = Math.max(0, Math.min(255, brightness)) / 255;
+        float r, g, bl;
+        if (s == 0) {
+            r = g = bl = b;
+        } else {
+            float which = (h - (int) h) * 6.0f;
+            float f = which - (int) which;
+            float p = b * (1.0f - s);
+            float q = b * (1.0f - s * f);
+            float t = b * (1.0f - (s * (1.0f - f)));
+            switch ((int) which) {
+                case 0: r = b; g = t; bl = p; break;
+                case 1: r = q; g = b; bl = p; break;
+                case 2: r = p; g = b; bl = t; break;
+                case 3: r = p; g = q; bl = b; break;
+                case 4: r = t; g = p; bl = b; break;
+                default: r = b; g = p; bl = q; break;
+            }
+        }
+        return 0xFF000000 | (int) (255 * r) << 16 | (int) (255 * g) << 8 | (int) (255 * bl);
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.Arrays;
+
+/**
+ * How many times the points of an attractor fell in each cell of a square
+ * grid, and the hue of the last point, in 4 bytes per cell: the counts
+ * saturate in a char, with the higher counts in an overflow table, the hue
+ * is quantized to a byte, and each cell is stamped with the byte epoch it
+ * was last written in.
+ *
+ * The cells are indexed by x * size + y. Clearing starts a new epoch, and
+ * cells with an older stamp count as empty; the stamps are only reset when
+ * the epochs wrap around, every 255 clears. The cells written since the
+ * last clear are listed, so that they can be drawn without visiting the
+ * whole grid.
+ */
+public class DensityMap {
+    // The number of quantized hues
+    public static final int HUES = 128;
+    // Counts from this value on are in the overflow table
+    private static final int SATURATED = Character.MAX_VALUE;
+    private static final int INITIAL_TOUCHED_CAPACITY = 16384;
+
+    private final int size;
+    private final char[] counts;
+    private final byte[] hues;
+    private final byte[] stamps;
+    private final OverflowTable overflow = new OverflowTable();
+    private byte epoch = 1;
+
+    // The cells written in this epoch, and the ones of the previous epoch
+    // until forgetCleared() is called
+    private int[] touched = new int[INITIAL_TOUCHED_CAPACITY];
+    private int touchedCount = 0;
+    private int[] cleared = new int[INITIAL_TOUCHED_CAPACITY];
+    private int clearedCount = 0;
+
+    /**
+     * @param size The width and height of the grid
+     */
+    public DensityMap(int size) {
+        this.size = size;
+        this.counts = new char[size * size];
+        this.hues = new byte[size * size];
+        this.stamps = new byte[size * size];
+    }
+
+    /**
+     * @return The width and height of the grid
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Empties the map. The cells written so far are kept in the cleared list.
+     */
+    public void clear() {
+        int[] swap = cleared;
+        cleared = touched;
+        clearedCount = touchedCount;
+        touched = swap;
+        touchedCount = 0;
+        overflow.clear();
+
+        // The epochs go through the 255 non-zero bytes. Past the last one,
+        // stamps of 255 epochs ago would look current.
+        if (epoch == (byte) 0xFF) {
+            Arrays.fill(stamps, (byte) 0);
+            epoch = 0;
+        }
+        epoch++;
+    }
+
+    /**
+     * Counts a point in a cell.
+     * @param x The column, from 0 to size - 1
+     * @param y The row, from 0 to size - 1
+     * @param sourceX The x of the point before, giving the hue of the cell,
+     *                from 0 to size
+     * @return The new count of the cell
+     */
+    public int add(int x, int y, float sourceX) {
+        int cell = x * size + y;
+        int count;
+        if (stamps[cell] != epoch) {
+            stamps[cell] = epoch;
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, Math.min(counts.length, touched.length * 2));
+            }
+            touched[touchedCount++] = cell;
+            count = 1;
+            counts[cell] = 1;
+        } else if (counts[cell] == SATURATED) {
+            count = overflow.increment(cell);
+        } else {
+            count = counts[cell] + 1;
+            counts[cell] = (char) count;
+            if (count == SATURATED) overflow.put(cell, count);
+        }
+        hues[cell] = (byte) Math.max(0, Math.min(HUES - 1, (int) (sourceX * (HUES - 1) / size + 0.5f)));
+        return count;
+    }
+
+    /**
+     * @param cell A cell written in this epoch
+     * @return The number of points counted in the cell
+     */
+    public int count(int cell) {
+        int count = counts[cell];
+        return count == SATURATED ? overflow.get(cell) : count;
+    }
+
+    /**
+     * @param cell A cell written in this epoch
+     * @return The hue of the cell, from 0 to HUES - 1
+     */
+    public int hue(int cell) {
+        return hues[cell];
+    }
+
+    /**
+     * @return The cells written in this epoch, the first getTouchedCount()
+     */
+    public int[] getTouched() {
+        return touched;
+    }
+
+    public int getTouchedCount() {
+        return touchedCount;
+    }
+
+    /**
+     * @return The cells written in the epoch before the last clear(), the
+     *         first getClearedCount()
+     */
+    public int[] getCleared() {
+        return cleared;
+    }
+
+    public int getClearedCount() {
+        return clearedCount;
+    }
+
+    /**
+     * Empties the cleared list, once its cells are redrawn.
+     */
+    public void forgetCleared() {
+        clearedCount = 0;
+    }
+
+    /**
+     * The counts of the saturated cells: an open addressing hash table of
+     * primitives, emptied with the map.
+     */
+    private static class OverflowTable {
+        private int[] keys = new int[16];
+        private int[] values = new int[16];
+        private int entries = 0;
+
+        OverflowTable() {
+            Arrays.fill(keys, -1);
+        }
+
+        int get(int cell) {
+            return values[slot(cell)];
+        }
+
+        void put(int cell, int value) {
+            if ((entries + 1) * 2 > keys.length) grow();
+            int slot = slot(cell);
+            if (keys[slot] == -1) {
+                keys[slot] = cell;
+                entries++;
+            }
+            values[slot] = value;
+        }
+
+        int increment(int cell) {
+            int slot = slot(cell);
+            return ++values[slot];
+        }
+
+        void clear() {
+            if (entries == 0) return;
+            Arrays.fill(keys, -1);
+            entries = 0;
+        }
+
+        // The slot of the cell, or the empty slot where it would go
+        private int slot(int cell) {
+            int mask = keys.length - 1;
+            int hash = cell * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != -1 && keys[slot] != cell) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            Arrays.fill(keys, -1);
+            entries = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1) put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * The commands the host sends to the Arduino over the serial, one per line,
+ * starting with '!' so they can't be mistaken for data:
+ *
+ *   !rate HZ     Sends HZ messages per second
+ *   !mask BITS   Only sends the sensors whose bit is set (bit n = sensor n)
+ *   !mode MODE   Sends the messages as text (the default) or binary, see
+ *                BinaryFrameDecoder
+ *
+ * The Arduino applies a command as soon as its line ends. Sketches not
+ * reading their serial input ignore the commands.
+ */
+public class DeviceCommands {
+
+    /**
+     * How the Arduino encodes its messages.
+     */
+    public enum Mode {
+        // Lines of "id N time T x X y Y z Z", each message ended by "$"
+        TEXT("text"),
+        // Frames of fixed-size binary samples, see BinaryFrameDecoder
+        BINARY("binary");
+
+        private String value;
+
+        Mode(String value) {
+            this.value = value;
+        }
+
+        /**
+         * @return The name of the mode in the command
+         */
+        public String getValue() {
+            return value;
+        }
+    }
+
+    private DeviceCommands() {}
+
+    /**
+     * @param messagesPerSecond The rate the Arduino should send messages at
+     * @return The command
+     */
+    public static String rate(int messagesPerSecond) {
+        if (messagesPerSecond < 1) {
+            throw new IllegalArgumentException("The rate must be positive, not " + messagesPerSecond);
+        }
+        return "!rate " + messagesPerSecond;
+    }
+
+    /**
+     * @param sensors The sensors to send, bit n for sensor n
+     * @return The command
+     */
+    public static String sensorMask(int sensors) {
+        return "!mask " + Integer.toUnsignedString(sensors);
+    }
+
+    /**
+     * @param mode How the Arduino should encode its messages
+     * @return The command
+     */
+    public static String mode(Mode mode) {
+        return "!mode " + mode.getValue();
+    }
+}
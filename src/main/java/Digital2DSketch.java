@@ -8,6 +8,9 @@ import processing.core.PImage;
 public class Digital2DSketch extends RenderCanvas{
 
 	boolean smoothFade, render;
+	FadeCompositor fade = new FadeCompositor();
+	// The number of points of each line, at most its own
+	QualityKnob linePoints = addQualityKnob("sketch line points", 10, 31);
 
 	SketchLine  line0, line1, line2;
 	float x1, y1, x2, y2;
@@ -109,20 +112,21 @@ public class Digital2DSketch extends RenderCanvas{
 			line2.render(159,209,252, 0);
 		}
 
-		/* If smooth fade is selected, put a black rectangle with low opacity
-		 * onto the canvas. */
-		if (smoothFade) {
-			fill(0,12);
-			rect(0,0,canvasWidth,canvasHeight);
+		/* If smooth fade is selected, fade the whole canvas towards black,
+		 * at the same pace whatever the frame rate. */
+		if (smoothFade && fade.update(frameTime())) {
+			loadPixels();
+			fade.apply(pixels, width, height);
+			updatePixels();
 		}
 	}
 
 	/* This method changes the coordinates of the line which is to be rendered
 	 * in the draw function */
-	public void render(Point2D from, Point2D to)  {	
+	public void render(float fromX, float fromY, float toX, float toY)  {	
 		render = true;
-		xCo = (float)to.getX() * 1.7f - 50;
-		yCo = (float)to.getY() * 1.2f - 300 ; 
+		xCo = toX * 1.7f - 50;
+		yCo = toY * 1.2f - 300 ; 
 		
 	}
 
@@ -133,6 +137,7 @@ public class Digital2DSketch extends RenderCanvas{
 	public void keyPressed(){
 		if (key == 'f') {
 			smoothFade = !smoothFade;
+			fade.reset();
 		} 
 	}
 
@@ -169,7 +174,8 @@ public class Digital2DSketch extends RenderCanvas{
 			pointX = pointXVar;
 			pointY = pointYVar;
 
-			for (int i=0; i<stoixeia; i++){
+			int points = min(stoixeia, linePoints.get());
+			for (int i=0; i<points; i++){
 				if (i==0){
 					deltaX[i] = (pointX - x[i]);
 					deltaY[i] = (pointY - y[i]);
@@ -207,7 +213,8 @@ public class Digital2DSketch extends RenderCanvas{
 			noFill();
 			stroke(colorR, colorG, colorB, lineAlpha);
 			beginShape();
-			for (int i = 0; i < stoixeia; i++)  {
+			int points = min(stoixeia, linePoints.get());
+			for (int i = 0; i < points; i++)  {
 				curveVertex(x[i], y[i]);
 			}
 			endShape();
@@ -218,4 +225,16 @@ public class Digital2DSketch extends RenderCanvas{
 	public void drawModelWithArm() {}
 	public void finalRender() {}
 
+	/**
+	 * Registers this rendering style, see RenderCanvasProvider.
+	 */
+	public static class Provider implements RenderCanvasProvider {
+		public String getName() {
+			return "Digital 2D Sketch";
+		}
+
+		public RenderCanvas create(int canvasWidth, int canvasHeight) {
+			return new Digital2DSketch(canvasWidth, canvasHeight);
+		}
+	}
 }
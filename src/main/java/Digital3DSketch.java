@@ -1,6 +1,8 @@
-import javafx.geometry.Point2D;
 import processing.core.PImage;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * @author Peter de Jong attractor applet by Thor - modified by Lisa
  * from www.openprocessing.org
@@ -15,6 +17,11 @@ public class Digital3DSketch extends RenderCanvas {
 	boolean stop;
 	int stepCounter;
 
+	// The passes of 10,000 points added to the attractor every frame, and
+	// the number of frames refining it after each new position
+	QualityKnob passesPerFrame = addQualityKnob("de Jong passes per frame", 6, 60);
+	QualityKnob refiningFrames = addQualityKnob("de Jong refining frames", 32, 128);
+
 	/**
 	 * This function performs initialisation steps. It is the first thing that
 	 * is called when a Digital3DSketch object is made. 
@@ -36,7 +43,7 @@ public class Digital3DSketch extends RenderCanvas {
 		if (!init) {
 			if (!stop) {
 				stepCounter++;
-				if (stepCounter > 127) {
+				if (stepCounter >= refiningFrames.get()) {
 					stop = true;
 					return;
 				}
@@ -50,13 +57,13 @@ public class Digital3DSketch extends RenderCanvas {
 
 
 	/* While still reading samples */
-	public void render(Point2D from, Point2D to) {
+	public void render(float fromX, float fromY, float toX, float toY) {
 
 		stepCounter = 0;
 		loop();
 		init = false;
 		stop = false;
-		dj.reparam((float) to.getX(), (float) to.getY());
+		dj.reparam(toX, toY);
 		redraw();
 	}
 
@@ -69,19 +76,28 @@ public class Digital3DSketch extends RenderCanvas {
 	}
 
 
+	/**
+	 * The density of the attractor is kept in a DensityMap, whose cells have
+	 * the same index as the pixels of the image (x * N + y). Clearing it is
+	 * constant time, and plotting only visits the cells written since.
+	 */
 	class deJongAttractor {
 	  PImage pi;
 	  float pa, pb, pc, pd, newx, newy, oldx, oldy, logmaxd;
 	  int N = width;
 	  int maxdense = 0;
-	  int[][] density = new int[N][N];
-	  float[][] previousx = new float[N][N];
-	 
+	  DensityMap map = new DensityMap(N);
+	  DensityColorizer colorizer = new DensityColorizer();
+
+	  deJongAttractor() {
+	    // Reused by every plot, cleared cell by cell
+	    pi = createImage(N, N, RGB);
+	  }
+
 	  void construct(float x, float y) {
 	    //Produces the four variables to pass to the attractor
 	    float sensitivity = 0.03f;
 	    float xx = -0.8f;
-	    System.out.println("X: " + x + " Y: " + y);
 	    pa = map(x, 0, 600*2, xx, 0.9f) * sensitivity;
 	    pb = map(y, 0, 600*3,xx, 0.8f) * sensitivity;
 	    pc = map(x, 0, 600*3, xx, 0.6f) * sensitivity;
@@ -89,18 +105,13 @@ public class Digital3DSketch extends RenderCanvas {
 	    oldx = width/2;
 	    oldy = height/2;
 	  }
-	 
+
 	  void populate(int s, boolean c) {
 	    //Populate array with density info with s number of samples
 	    int samples = s;
 	    boolean clear = c;
 	    if (clear) {
-	      for (int i = 0; i < N; i++) {
-	        for (int j = 0; j < N; j++) {
-	          density[i][j] = 0;
-	          previousx[i][j] = 0;
-	        }
-	      }
+	      map.clear();
 	    }
 	    for (int i = 0; i < samples; i++) {
 	      for (int j = 0; j < 10000; j++) {
@@ -112,69 +123,78 @@ public class Digital3DSketch extends RenderCanvas {
 	        newy += random(-0.001f, 0.001f);
 	        //If coordinates are within range, up density count at its position
 	        if ((newx > 0) && (newx < N) && (newy > 0) && (newy < N) ) {
-	          density[(int)(newx)][(int)(newy)] += 1;
-	          previousx[(int)(newx)][(int)(newy)] = oldx;
+	          int dense = map.add((int)(newx), (int)(newy), oldx);
+	          //Keep the maximum density and its log()-value
+	          if (dense > maxdense) {
+	            maxdense = dense;
+	            logmaxd = log(maxdense);
+	          }
 	        }
 	        oldx = newx;
 	        oldy = newy;
 	      }
 	    }
-	    //Put maximum density and its log()-value into variables
-	    for (int i = 0; i < N; i++) {
-	      for (int j = 0; j < N; j++) {
-	        if (density[i][j] > maxdense) {
-	          maxdense = density[i][j];
-	          logmaxd = log(maxdense);
-	        }
-	      }
-	    }
 	  }
-	 
+
 	  void updateloop() {
 	    stop = false;
 	    stepCounter = 0;
 	  }
-	 
+
 	  void incrementalupdate() {
 	    //Loops the non-clearing update and plotting to produce low-noise render
-	    populate(60, false);
+	    populate(passesPerFrame.get(), false);
 	    plot(0, false);
 	    redraw();
 	  }
-	 
+
 	  void reparam(float x, float y) {
 	    //Fast reparametrization of variables
 	    dj.construct(x, y);
 	    dj.populate(1, true);
 	    dj.plot(50, true);
 	  }
-	 
+
 	  PImage plot(int f, boolean c) {
 	    int factor = f;
 	    boolean clear = c;
-	    //Plot image from density array
-	    if (clear) {
-	      pi = createImage(N, N, RGB);
-	    }
 	    pi.loadPixels();
-	    for (int i = 0; i < N; i++) {
-	      for (int j = 0; j < N; j++) {
-	        if (density[i][j] > 0) {
-	          float myhue = map(previousx[i][j], 0, N, 128, 255); //Select hue based on the x-coord that gave rise to current coord
-	          float mysat = map(log(density[i][j]), 0, logmaxd, 128, 0);
-	          float mybright = map(log(density[i][j]), 0, logmaxd, 0, 255) + factor;
-	          int newc = color(myhue, mysat, mybright);
-	          int oldc = pi.pixels[i * N + j];
-	          newc = blendColor(newc, oldc, SOFT_LIGHT);
-	          pi.pixels[i * N + j] = newc;
-	        }
+	    //Black out the pixels drawn before the density was cleared
+	    if (clear) {
+	      int[] cleared = map.getCleared();
+	      for (int i = 0; i < map.getClearedCount(); i++) {
+	        pi.pixels[cleared[i]] = 0;
 	      }
+	      map.forgetCleared();
 	    }
+	    //Plot image from density array: the hue is based on the x-coord that
+	    //gave rise to current coord, the saturation and brightness on the density
+	    colorizer.colorize(map, logmaxd, factor, pi.pixels);
 	    pi.updatePixels();
 	    return pi;
 	  }
-	 
+
 	}
 
+	/**
+	 * Registers this rendering style, see RenderCanvasProvider.
+	 */
+	public static class Provider implements RenderCanvasProvider {
+		public String getName() {
+			return "Digital 3D Sketch";
+		}
+
+		/* slow down sampling, only using every 5 samples */
+		public int getSampleStride() {
+			return 5;
+		}
 
+		public Set<CanvasCapability> getCapabilities() {
+			return EnumSet.of(CanvasCapability.FINAL_RENDER);
+		}
+
+		public RenderCanvas create(int canvasWidth, int canvasHeight) {
+			return new Digital3DSketch(canvasWidth, canvasHeight);
+		}
+	}
 }
@@ -10,6 +10,9 @@ import java.util.function.Consumer;
  * has occurred. The publication works in a simple multicast fashion.
  */
 public class EventEmitter {
+    // Payloads are empty, so a single one is shared by every event
+    private static final Payload EMPTY_PAYLOAD = new Payload();
+
     private Map<String, List<Consumer<Payload>>> _listeners = new HashMap<>();
 
     /**
@@ -51,9 +54,11 @@ public class EventEmitter {
         List<Consumer<Payload>> listeners = _listeners.get(eventType);
         if (listeners == null) return;
 
-        for (Consumer<Payload> listener : listeners) {
+        // Indexed, so emitting allocates no iterator
+        for (int i = 0; i < listeners.size(); i++) {
+            Consumer<Payload> listener = listeners.get(i);
             if (listener != null) {
-                listener.accept(new Payload());
+                listener.accept(EMPTY_PAYLOAD);
             }
         }
     }
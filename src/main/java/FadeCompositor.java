@@ -0,0 +1,108 @@
+/**
+ * Fades a frame towards black, as the smoothFade modes of the canvases do:
+ * the pixels lose half their brightness every half-life, however many
+ * frames are drawn in between. The decay is applied straight to the pixels
+ * with integer maths, in bands of rows processed in parallel, instead of
+ * blending a translucent black rectangle over the whole canvas.
+ *
+ * Each pass rounds the channels down, so that faint trails do reach black.
+ * The time between frames is added up until it is worth at least
+ * MIN_DECAY of the brightness, so that at high frame rates the rounding
+ * doesn't speed up the fade.
+ */
+public class FadeCompositor {
+    // About what fill(0, 12) over the whole canvas gave at 60 frames per second
+    public static final float DEFAULT_HALF_LIFE_MILLIS = 250;
+    // The smallest fraction of the brightness taken by a pass
+    private static final double MIN_DECAY = 1 / 16.0;
+    // The brightness kept by a pass is a fraction of this
+    private static final int ONE = 256;
+    // Below this number of rows, a single thread fades them
+    private static final int MIN_ROWS_PER_BAND = 64;
+
+    private float halfLifeMillis;
+    private long lastTime = -1;
+    // The time not faded yet
+    private double pendingMillis = 0;
+    // The brightness kept by the next pass, out of ONE
+    private int kept = ONE;
+
+    public FadeCompositor() {
+        this(DEFAULT_HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * @param halfLifeMillis The time for a pixel to lose half its brightness
+     */
+    public FadeCompositor(float halfLifeMillis) {
+        setHalfLife(halfLifeMillis);
+    }
+
+    /**
+     * @param halfLifeMillis The time for a pixel to lose half its brightness
+     */
+    public void setHalfLife(float halfLifeMillis) {
+        if (!(halfLifeMillis > 0)) {
+            throw new IllegalArgumentException("The half-life must be positive, not " + halfLifeMillis);
+        }
+        this.halfLifeMillis = halfLifeMillis;
+    }
+
+    public float getHalfLife() {
+        return halfLifeMillis;
+    }
+
+    /**
+     * Forgets the time of the last frame, eg. when the fade is turned back
+     * on, so that the next frame isn't faded for all the time in between.
+     */
+    public void reset() {
+        lastTime = -1;
+        pendingMillis = 0;
+        kept = ONE;
+    }
+
+    /**
+     * Adds the time since the last frame to the time to fade.
+     * @param nanoTime The time of the frame, eg. System.nanoTime()
+     * @return true if the frame should be faded by apply(), false if the
+     *         time since the last pass is too short to be worth it
+     */
+    public boolean update(long nanoTime) {
+        if (lastTime >= 0 && nanoTime > lastTime) {
+            pendingMillis += (nanoTime - lastTime) / 1e6;
+        }
+        lastTime = nanoTime;
+
+        int kept = (int) Math.round(ONE * Math.pow(0.5, pendingMillis / halfLifeMillis));
+        if (kept > ONE * (1 - MIN_DECAY)) return false;
+        this.kept = kept;
+        // The rounded fraction stands for slightly more or less time than
+        // was pending, the difference is carried over to the next pass
+        pendingMillis -= kept > 0 ? halfLifeMillis * Math.log((double) ONE / kept) / Math.log(2) : pendingMillis;
+        return true;
+    }
+
+    /**
+     * Fades the pixels by the time added up by update(), when it returned
+     * true. The alpha is left as it is.
+     * @param pixels The frame, in ARGB
+     * @param width The width of the frame
+     * @param height The height of the frame
+     */
+    public void apply(int[] pixels, int width, int height) {
+        int kept = this.kept;
+        this.kept = ONE;
+        if (kept == ONE) return;
+
+        ParallelBands.run(height, MIN_ROWS_PER_BAND, (from, to) -> {
+            for (int i = from * width, end = to * width; i < end; i++) {
+                int pixel = pixels[i];
+                // Red and blue are scaled together, each has 8 bits of room
+                int redBlue = (pixel & 0xFF00FF) * kept >>> 8 & 0xFF00FF;
+                int green = (pixel & 0x00FF00) * kept >>> 8 & 0x00FF00;
+                pixels[i] = pixel & 0xFF000000 | redBlue | green;
+            }
+        });
+    }
+}
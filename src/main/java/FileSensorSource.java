@@ -0,0 +1,68 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Replays a file recorded from the Arduino. Every line of the file is a
+ * message, and message boundaries ("$") are skipped.
+ */
+public class FileSensorSource extends PollingSensorSource {
+    private File file;
+    private long millisBetweenMessages;
+    private BufferedReader reader;
+
+    /**
+     * @param file The file to replay
+     * @param millisBetweenMessages Pause between two messages, to simulate the
+     *                              rate of the Arduino. 0 replays at full speed.
+     */
+    public FileSensorSource(File file, long millisBetweenMessages) {
+        this.file = file;
+        this.millisBetweenMessages = millisBetweenMessages;
+    }
+
+    @Override
+    public synchronized void start(Listener listener) {
+        // The previous loop must be done with the reader before it changes
+        stop();
+        try {
+            reader = new BufferedReader(new FileReader(file));
+        } catch (IOException e) {
+            listener.streamFailed(e);
+            return;
+        }
+        super.start(listener);
+    }
+
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        closeReader();
+    }
+
+    @Override
+    protected List<Sample> poll() throws IOException, InterruptedException {
+        String line = reader.readLine();
+        while (line != null && line.equals("$")) { // message boundary
+            line = reader.readLine();
+        }
+        if (line == null) return null;
+
+        if (millisBetweenMessages > 0) {
+            Thread.sleep(millisBetweenMessages); // simulate events coming in
+        }
+        return Sample.parseMessage(line);
+    }
+
+    private void closeReader() {
+        if (reader == null) return;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        reader = null;
+    }
+}
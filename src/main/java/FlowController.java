@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adjusts the rate the Arduino sends messages at to what the application
+ * keeps up with, so that overload is handled at the source instead of by
+ * dropping messages or poses downstream.
+ *
+ * The signal is the depth of the queue of messages received but not yet
+ * processed. Like TCP congestion control, the rate is increased additively
+ * and decreased multiplicatively (AIMD): when the queue is deeper than
+ * HIGH_WATER the rate is halved, at most every DECREASE_INTERVAL so the
+ * queue has time to drain; when it stays at most LOW_WATER, the rate grows
+ * by INCREASE_STEP every INCREASE_INTERVAL. The new rates are sent with
+ * DeviceCommands.rate().
+ *
+ * update() runs on the thread receiving the messages, eg. the RXTX event
+ * thread, which must never block writing to the port: wrap the sink in an
+ * AsyncRateSink.
+ */
+public class FlowController {
+
+    /**
+     * Where the rates are sent, eg. the Serial the Arduino is on.
+     */
+    public interface RateSink {
+        void setRate(int messagesPerSecond) throws IOException;
+    }
+
+    /**
+     * Sends the rates to another sink on a thread of its own, so setRate()
+     * returns at once. Only the latest rate matters: the rates asked for
+     * while one is being sent are replaced by the last of them.
+     */
+    public static class AsyncRateSink implements RateSink {
+        private final RateSink sink;
+        // The rate waiting to be sent, 0 if none
+        private final AtomicInteger latest = new AtomicInteger();
+        // Its thread exits when idle, so the sink needs no closing
+        private final ThreadPoolExecutor sender = new ThreadPoolExecutor(1, 1,
+                1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "RateSender");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        /**
+         * @param sink Where the rates are sent, eg. the Serial the Arduino is on
+         */
+        public AsyncRateSink(RateSink sink) {
+            this.sink = sink;
+            sender.allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void setRate(int messagesPerSecond) {
+            if (latest.getAndSet(messagesPerSecond) == 0) sender.execute(this::send);
+        }
+
+        private void send() {
+            int rate = latest.getAndSet(0);
+            try {
+                sink.setRate(rate);
+            } catch (IOException e) {
+                System.err.println("Could not set the rate of the Arduino: " + e.getMessage());
+            }
+        }
+    }
+
+    public static final int DEFAULT_MIN_RATE = 10;
+    public static final int DEFAULT_MAX_RATE = 200;
+    // The rate of the Arduino sketch when it is not told otherwise
+    public static final int DEFAULT_RATE = 100;
+
+    static final int HIGH_WATER = 8;
+    static final int LOW_WATER = 1;
+    static final int INCREASE_STEP = 5;
+    static final long DECREASE_INTERVAL = 250000000L;
+    static final long INCREASE_INTERVAL = 1000000000L;
+
+    private final RateSink sink;
+    private final int minRate;
+    private final int maxRate;
+    private int rate;
+    private final int initialRate;
+    private long lastChange;
+    private boolean started = false;
+    // Whether the queue has been at most LOW_WATER since idleSince
+    private boolean idle = false;
+    private long idleSince;
+
+    /**
+     * Creates a controller between DEFAULT_MIN_RATE and DEFAULT_MAX_RATE,
+     * starting from DEFAULT_RATE.
+     * @param sink Where the new rates are sent
+     */
+    public FlowController(RateSink sink) {
+        this(sink, DEFAULT_MIN_RATE, DEFAULT_MAX_RATE, DEFAULT_RATE);
+    }
+
+    /**
+     * @param sink Where the new rates are sent
+     * @param minRate The lowest rate to ask for, in messages per second
+     * @param maxRate The highest rate to ask for
+     * @param initialRate The rate the device is sending at
+     */
+    public FlowController(RateSink sink, int minRate, int maxRate, int initialRate) {
+        if (minRate < 1 || minRate > maxRate || initialRate < minRate || initialRate > maxRate) {
+            throw new IllegalArgumentException("Invalid rates: min " + minRate + ", max " + maxRate
+                    + ", initial " + initialRate);
+        }
+        this.sink = sink;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.rate = initialRate;
+        this.initialRate = initialRate;
+    }
+
+    /**
+     * @return The rate last asked for, in messages per second
+     */
+    public synchronized int getRate() {
+        return rate;
+    }
+
+    /**
+     * Starts again from the initial rate, without sending it, eg. when the
+     * device restarted and is back to its default rate.
+     */
+    public synchronized void reset() {
+        rate = initialRate;
+        started = false;
+        idle = false;
+    }
+
+    /**
+     * Accounts for the depth of the queue, and sends a new rate if needed.
+     * @param queueDepth The number of messages waiting to be processed
+     * @param nanoTime The current System.nanoTime()
+     * @throws IOException If the new rate can't be sent
+     */
+    public synchronized void update(int queueDepth, long nanoTime) throws IOException {
+        if (!started) {
+            started = true;
+            lastChange = nanoTime;
+        }
+
+        if (queueDepth > HIGH_WATER) {
+            idle = false;
+            if (nanoTime - lastChange >= DECREASE_INTERVAL) {
+                change(Math.max(minRate, rate / 2), nanoTime);
+            }
+        } else if (queueDepth > LOW_WATER) {
+            // Neither overloaded nor idle: the rate holds
+            idle = false;
+        } else {
+            if (!idle) {
+                idle = true;
+                idleSince = nanoTime;
+            }
+            if (nanoTime - idleSince >= INCREASE_INTERVAL && nanoTime - lastChange >= INCREASE_INTERVAL) {
+                change(Math.min(maxRate, rate + INCREASE_STEP), nanoTime);
+            }
+        }
+    }
+
+    private void change(int newRate, long nanoTime) throws IOException {
+        lastChange = nanoTime;
+        if (newRate == rate) return;
+        rate = newRate;
+        sink.setRate(newRate);
+    }
+}
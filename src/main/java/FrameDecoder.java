@@ -0,0 +1,18 @@
+/**
+ * Turns the bytes received from the Arduino into messages of Samples, in one
+ * of the encodings of DeviceCommands.Mode. Bytes may arrive in chunks of any
+ * size, so decoders keep the partial message between calls.
+ */
+public interface FrameDecoder {
+
+    /**
+     * Consumes every byte of the ring, delivering the messages it completes.
+     * @param ring The bytes received
+     */
+    void consume(ByteRing ring);
+
+    /**
+     * Forgets the partial message, eg. after a reconnection.
+     */
+    void reset();
+}
@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the frames of a canvas to a FrameSink, without blocking the
+ * canvas.
+ *
+ * The frames are copied into a fixed pool of pixel buffers on the animation
+ * thread, then written by a background thread. When the sink can't keep up
+ * and no buffer is free, the frame is dropped and counted. Each frame is
+ * stamped with the time of its capture, so a video sink can fill the time
+ * of the dropped frames.
+ */
+public class FrameRecorder {
+    // An empty frame telling the writer thread to finish
+    private static final Frame END = new Frame(new int[0]);
+
+    private final FrameSink sink;
+    private final int width;
+    private final int height;
+
+    private final BlockingQueue<Frame> freeBuffers;
+    private final BlockingQueue<Frame> frames;
+    private final Thread writerThread;
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile IOException failure;
+    private volatile boolean stopped = false;
+
+    /**
+     * Starts the writer thread.
+     * @param sink Where to write the frames
+     * @param width The width of the frames
+     * @param height The height of the frames
+     * @param bufferCount The number of frames that can wait to be written
+     */
+    public FrameRecorder(FrameSink sink, int width, int height, int bufferCount) {
+        this.sink = sink;
+        this.width = width;
+        this.height = height;
+        this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        this.frames = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            freeBuffers.add(new Frame(new int[width * height]));
+        }
+
+        writerThread = new Thread(this::writeFrames, "FrameRecorder");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues a copy of the frame to be written, captured now. Never blocks:
+     * the frame is dropped if all the buffers are waiting to be written.
+     * @param pixels The pixels of the frame, ARGB, row by row
+     * @return false if the frame was dropped
+     */
+    public boolean capture(int[] pixels) {
+        return capture(pixels, System.nanoTime());
+    }
+
+    /**
+     * Queues a copy of the frame to be written. Never blocks: the frame is
+     * dropped if all the buffers are waiting to be written.
+     * @param pixels The pixels of the frame, ARGB, row by row
+     * @param nanos When the frame was drawn, from System.nanoTime()
+     * @return false if the frame was dropped
+     */
+    public boolean capture(int[] pixels, long nanos) {
+        if (stopped) return false;
+        Frame buffer = freeBuffers.poll();
+        if (buffer == null || pixels.length != buffer.pixels.length) {
+            if (buffer != null) freeBuffers.offer(buffer);
+            dropped.incrementAndGet();
+            return false;
+        }
+        System.arraycopy(pixels, 0, buffer.pixels, 0, pixels.length);
+        buffer.nanos = nanos;
+        frames.offer(buffer);
+        return true;
+    }
+
+    /**
+     * Waits for the queued frames to be written, then closes the sink.
+     * @throws IOException If a frame or the end of the recording couldn't be
+     *                     written
+     */
+    public void stop() throws IOException {
+        if (stopped) return;
+        stopped = true;
+        frames.offer(END);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * @return The number of frames written so far
+     */
+    public long getRecordedFrames() {
+        return recorded.get();
+    }
+
+    /**
+     * @return The number of frames dropped because the sink was too slow
+     */
+    public long getDroppedFrames() {
+        return dropped.get();
+    }
+
+    private void writeFrames() {
+        try {
+            while (true) {
+                Frame frame = frames.take();
+                if (frame == END) return;
+                try {
+                    // Keep emptying the queue after a failure, but stop writing
+                    if (failure == null) {
+                        sink.writeFrame(frame.pixels, width, height, frame.nanos);
+                        recorded.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                } finally {
+                    freeBuffers.offer(frame);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A pixel buffer of the pool, and when its frame was captured.
+     */
+    private static class Frame {
+        final int[] pixels;
+        long nanos;
+
+        Frame(int[] pixels) {
+            this.pixels = pixels;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+import java.io.IOException;
+
+/**
+ * Where a FrameRecorder writes the recorded frames, eg. a video file or a
+ * sequence of images. Called from the recorder's writer thread only.
+ */
+public interface FrameSink {
+
+    /**
+     * Writes the next frame.
+     * @param pixels The pixels, ARGB, row by row. Only valid during the call.
+     * @param width The width of the frame
+     * @param height The height of the frame
+     * @throws IOException If the frame can't be written
+     */
+    void writeFrame(int[] pixels, int width, int height) throws IOException;
+
+    /**
+     * Writes the next frame, captured at the given time. The frames are
+     * captured when the canvas draws, so they may be unevenly spaced: sinks
+     * played back in time, like videos, override this method to keep the
+     * pace of the capture. The others ignore the time.
+     * @param pixels The pixels, ARGB, row by row. Only valid during the call.
+     * @param width The width of the frame
+     * @param height The height of the frame
+     * @param nanos When the frame was captured, from System.nanoTime()
+     * @throws IOException If the frame can't be written
+     */
+    default void writeFrame(int[] pixels, int width, int height, long nanos) throws IOException {
+        writeFrame(pixels, width, height);
+    }
+
+    /**
+     * Completes the recording, once all the frames are written.
+     * @throws IOException If the recording can't be completed
+     */
+    void close() throws IOException;
+}
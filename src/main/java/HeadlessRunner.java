@@ -0,0 +1,171 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the whole pipeline (source, parse, smooth, model, render) without any
+ * window, and reports the pipeline metrics. Used to load-test the pipeline,
+ * eg. on a CI box, with a synthetic or recorded sensor stream.
+ *
+ * Everything runs on the thread of the source, as fast as it produces. The
+ * canvas draws into an offscreen buffer. Canvases are applets, so on a box
+ * without display run with -Djava.awt.headless=false under Xvfb, or use
+ * "--canvas None" to stop after the model.
+ *
+ * Options (all optional):
+ *   --source synthetic|PATH   Generate samples, or replay a recorded file
+ *   --source udp://PORT       Receive the datagrams of a suit over Wi-Fi
+ *   --rate N                  Synthetic messages per second, 0 for no limit
+ *   --sensors N               Synthetic sensor count
+ *   --noise DEGREES           Synthetic noise standard deviation
+ *   --seed N                  Synthetic noise seed
+ *   --seconds N               How long to run
+ *   --canvas NAME             A rendering style, eg. Digital2DSketch, or None
+ *   --width N / --height N    Size of the canvas
+ *   --fps N                   How many canvas frames to draw per second
+ */
+public class HeadlessRunner {
+    private Map<String, String> options = new HashMap<>();
+
+    private Modeler model = new Modeler();
+    private SamplePipeline pipeline = new SamplePipeline(model);
+    private RenderCanvas canvas;
+    private PoseFanOut poseFanOut = new PoseFanOut();
+
+    private long frameIntervalNanos;
+    private long nextFrame;
+
+    public static void main(String[] args) throws InterruptedException {
+        new HeadlessRunner(args).run();
+    }
+
+    /**
+     * @param args The command line options, see the class documentation
+     */
+    public HeadlessRunner(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+
+    /**
+     * Runs the pipeline for the configured duration, or until the source
+     * ends, printing the metrics every second.
+     */
+    public void run() throws InterruptedException {
+        String canvasName = option("canvas", "Digital2DSketch");
+        if (!canvasName.equals(RenderCanvasProviders.NONE)) {
+            RenderCanvasProvider provider = RenderCanvasProviders.get(canvasName);
+            if (provider == null) {
+                throw new IllegalArgumentException("Unknown rendering style " + canvasName);
+            }
+            canvas = provider.create(
+                    Integer.parseInt(option("width", "1280")),
+                    Integer.parseInt(option("height", "720")));
+            canvas.initOffscreen();
+            poseFanOut.setDispatchers(Collections.singletonList(new CanvasDispatcher(provider, canvas)));
+        }
+        frameIntervalNanos = (long) (1e9 / Double.parseDouble(option("fps", "60")));
+
+        model.addListener(Modeler.NEW_SAMPLE, p -> modelAddedNewSample());
+        model.getNextSample(); // skip the resting position
+
+        CountDownLatch ended = new CountDownLatch(1);
+        SensorSource source = createSource();
+        PipelineMetrics.get().reset();
+        source.start(new SensorSource.Listener() {
+            @Override
+            public void messageReceived(List<Sample> samples) {
+                pipeline.accept(samples);
+                drawFrameIfDue();
+            }
+
+            @Override
+            public void streamEnded() {
+                pipeline.flush();
+                ended.countDown();
+            }
+
+            @Override
+            public void streamFailed(IOException e) {
+                e.printStackTrace();
+                ended.countDown();
+            }
+        });
+
+        long seconds = Long.parseLong(option("seconds", "10"));
+        for (long s = 0; s < seconds; s++) {
+            if (ended.await(1, TimeUnit.SECONDS)) break;
+            report();
+        }
+        source.stop();
+        report();
+    }
+
+    private String option(String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private SensorSource createSource() {
+        String source = option("source", "synthetic");
+        if (UdpSensorSource.isUdp(source)) {
+            return new UdpSensorSource(UdpSensorSource.parsePort(source));
+        }
+        if (!source.equals("synthetic")) {
+            return new FileSensorSource(new File(source), 0);
+        }
+        return new SyntheticSensorSource(
+                Double.parseDouble(option("rate", "10000")),
+                Integer.parseInt(option("sensors", "2")),
+                Double.parseDouble(option("noise", "0.5")),
+                Long.parseLong(option("seed", "42")));
+    }
+
+    /**
+     * Publishes the new arm position, the same way Renderer.modelAddedNewSample
+     * does. The canvas draws it before its next frame.
+     */
+    private void modelAddedNewSample() {
+        poseFanOut.publish(model.getNextSample());
+    }
+
+    /**
+     * Draws a canvas frame, like its animation thread would, if one is due.
+     */
+    private void drawFrameIfDue() {
+        if (canvas == null) return;
+        long now = System.nanoTime();
+        if (now < nextFrame) return;
+
+        nextFrame = now + frameIntervalNanos;
+        canvas.handleDraw();
+    }
+
+    private void report() {
+        PipelineMetrics metrics = PipelineMetrics.get();
+        System.out.println("stage         count        /s    mean     p50     p99     max (us)");
+        for (PipelineStage stage : PipelineStage.values()) {
+            StageStats s = metrics.stats(stage);
+            System.out.println(String.format("%-11s %8d %9.0f %7.1f %7.1f %7.1f %7.1f",
+                    stage.getValue(), s.getCount(), s.getThroughput(), s.getMeanMicros(),
+                    s.getP50Micros(), s.getP99Micros(), s.getMaxMicros()));
+        }
+        System.out.println("invalid lines: " + metrics.getInvalidLines());
+        JitterBuffer jitter = pipeline.getJitterBuffer();
+        System.out.println(String.format("jitter buffer: %d reordered, %d duplicates, %d late, %d gaps",
+                jitter.getReordered(), jitter.getDuplicates(), jitter.getLate(), jitter.getGaps()));
+        if (canvas != null) {
+            System.out.println("dropped poses: " + canvas.getDroppedPoses());
+        }
+        System.out.println();
+    }
+}
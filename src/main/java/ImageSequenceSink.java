@@ -0,0 +1,45 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes each recorded frame to its own image file, numbered in order:
+ * prefix-000000.png, prefix-000001.png...
+ */
+public class ImageSequenceSink implements FrameSink {
+    private final File folder;
+    private final String prefix;
+    private final SnapshotEncoder.Format format;
+    private int frame;
+
+    /**
+     * @param folder The folder to write the images to, created if needed
+     * @param prefix The start of the file names
+     * @param format The image format, PNG for lossless frames
+     */
+    public ImageSequenceSink(File folder, String prefix, SnapshotEncoder.Format format) {
+        this(folder, prefix, format, 0);
+    }
+
+    /**
+     * @param folder The folder to write the images to, created if needed
+     * @param prefix The start of the file names
+     * @param format The image format, PNG for lossless frames
+     * @param firstFrame The number of the first frame written, to write a
+     *                   sequence in several parts
+     */
+    public ImageSequenceSink(File folder, String prefix, SnapshotEncoder.Format format, int firstFrame) {
+        this.folder = folder;
+        this.prefix = prefix;
+        this.format = format;
+        this.frame = firstFrame;
+    }
+
+    @Override
+    public void writeFrame(int[] pixels, int width, int height) throws IOException {
+        File file = new File(folder, String.format("%s-%06d.%s", prefix, frame++, format.getExtension()));
+        SnapshotEncoder.encode(pixels, width, height, file, format);
+    }
+
+    @Override
+    public void close() {}
+}
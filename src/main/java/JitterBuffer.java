@@ -0,0 +1,239 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Puts the samples of each sensor back in the order of their timestamps,
+ * as the serial link can reorder them or deliver them in bursts. Downstream
+ * stages then see, per sensor, a stream of increasing timestamps.
+ *
+ * The samples of a sensor are held until one at least the latency newer
+ * arrives, or until more than the capacity are held, and released oldest
+ * first. Samples arriving after a newer one was released are dropped as
+ * late, and repeated samples (same timestamp and angles) as duplicates.
+ * When the time between two released samples is over the gap threshold,
+ * the gap listener is told.
+ *
+ * The timestamps are the Arduino millis(), which wraps around after 2^32
+ * ms (49.7 days): they are unwrapped into a continuous count before being
+ * compared, and the released samples carry the unwrapped timestamp.
+ *
+ * The latency is in sensor time: when a sensor stops sending, its last
+ * samples are only released by flush(), eg. at the end of a stream.
+ */
+public class JitterBuffer {
+
+    /**
+     * Told about the holes in the stream of a sensor.
+     */
+    public interface GapListener {
+        /**
+         * @param sensorId The sensor that skipped samples
+         * @param lastTimestamp The timestamp of the sample before the gap
+         * @param nextTimestamp The timestamp of the sample after the gap
+         */
+        void gap(int sensorId, long lastTimestamp, long nextTimestamp);
+    }
+
+    public static final long DEFAULT_LATENCY_MILLIS = 20;
+    public static final long DEFAULT_GAP_MILLIS = 100;
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final long latencyMillis;
+    private final long gapMillis;
+    private final int capacity;
+    private final Consumer<Sample> output;
+    private GapListener gapListener;
+
+    private Map<Integer, SensorBuffer> sensors = new HashMap<>();
+
+    private long reordered = 0;
+    private long duplicates = 0;
+    private long late = 0;
+    private long gaps = 0;
+
+    /**
+     * Creates a buffer with the default latency, gap threshold and capacity.
+     * @param output Where the samples are released, in order
+     */
+    public JitterBuffer(Consumer<Sample> output) {
+        this(DEFAULT_LATENCY_MILLIS, DEFAULT_GAP_MILLIS, DEFAULT_CAPACITY, output);
+    }
+
+    /**
+     * @param latencyMillis How much newer a sample must be for the older ones
+     *                      to be released, 0 to release every sample at once
+     * @param gapMillis The time between two samples above which a gap is
+     *                  reported
+     * @param capacity The most samples held per sensor
+     * @param output Where the samples are released, in order
+     */
+    public JitterBuffer(long latencyMillis, long gapMillis, int capacity, Consumer<Sample> output) {
+        if (latencyMillis < 0 || gapMillis <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Invalid jitter buffer: latency " + latencyMillis
+                    + " ms, gap " + gapMillis + " ms, capacity " + capacity);
+        }
+        this.latencyMillis = latencyMillis;
+        this.gapMillis = gapMillis;
+        this.capacity = capacity;
+        this.output = output;
+    }
+
+    /**
+     * @param listener Told about the gaps in the released samples, or null
+     */
+    public void setGapListener(GapListener listener) {
+        this.gapListener = listener;
+    }
+
+    /**
+     * Adds a sample, and releases the samples of its sensor that are due.
+     * @param sample The sample, with the raw timestamp of the sensor
+     */
+    public void accept(Sample sample) {
+        SensorBuffer buffer = sensors.get(sample.sensorId);
+        if (buffer == null) {
+            buffer = new SensorBuffer(sample.sensorId, capacity);
+            sensors.put(sample.sensorId, buffer);
+        }
+        buffer.add(sample);
+    }
+
+    /**
+     * Releases every sample held, eg. when the stream ends.
+     */
+    public void flush() {
+        for (SensorBuffer buffer : sensors.values()) {
+            buffer.releaseAll();
+        }
+    }
+
+    /**
+     * Forgets every sample held and the clock of every sensor. Should be
+     * called when a new stream starts.
+     */
+    public void reset() {
+        sensors.clear();
+    }
+
+    /**
+     * @return The number of samples that arrived before an older one
+     */
+    public long getReordered() {
+        return reordered;
+    }
+
+    /**
+     * @return The number of repeated samples dropped
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return The number of samples dropped because newer ones had already
+     *         been released
+     */
+    public long getLate() {
+        return late;
+    }
+
+    /**
+     * @return The number of gaps reported
+     */
+    public long getGaps() {
+        return gaps;
+    }
+
+    /**
+     * The samples held for one sensor, sorted by unwrapped timestamp.
+     */
+    private class SensorBuffer {
+        final int sensorId;
+        final Sample[] held;
+        int count = 0;
+        // The newest unwrapped timestamp seen, the reference for unwrapping
+        long newest;
+        boolean started = false;
+        // The last sample released, as it was received: downstream stages
+        // may change the sample itself
+        boolean released = false;
+        long lastTimestamp;
+        double lastYaw, lastPitch, lastRoll;
+
+        SensorBuffer(int sensorId, int capacity) {
+            this.sensorId = sensorId;
+            this.held = new Sample[capacity + 1];
+        }
+
+        void add(Sample sample) {
+            sample.timestamp = unwrap(sample.timestamp);
+
+            if (released && sample.timestamp < lastTimestamp) {
+                late++;
+                return;
+            }
+            if (released && sample.timestamp == lastTimestamp && sample.yaw == lastYaw
+                    && sample.pitch == lastPitch && sample.roll == lastRoll) {
+                duplicates++;
+                return;
+            }
+
+            // Insertion from the end: samples mostly arrive in order
+            int i = count;
+            while (i > 0 && held[i - 1].timestamp > sample.timestamp) i--;
+            for (int j = i - 1; j >= 0 && held[j].timestamp == sample.timestamp; j--) {
+                if (sameReading(held[j], sample)) {
+                    duplicates++;
+                    return;
+                }
+            }
+            if (i < count) reordered++;
+            System.arraycopy(held, i, held, i + 1, count - i);
+            held[i] = sample;
+            count++;
+
+            while (count > 0 && (count > capacity || newest - held[0].timestamp >= latencyMillis)) {
+                releaseOldest();
+            }
+        }
+
+        void releaseAll() {
+            while (count > 0) releaseOldest();
+        }
+
+        private long unwrap(long raw) {
+            if (!started) {
+                started = true;
+                newest = raw;
+                return raw;
+            }
+            // The difference modulo 2^32, between -2^31 and 2^31 ms
+            long unwrapped = newest + (int) (raw - newest);
+            newest = Math.max(newest, unwrapped);
+            return unwrapped;
+        }
+
+        private void releaseOldest() {
+            Sample sample = held[0];
+            System.arraycopy(held, 1, held, 0, count - 1);
+            held[--count] = null;
+
+            if (released && sample.timestamp - lastTimestamp > gapMillis) {
+                gaps++;
+                if (gapListener != null) gapListener.gap(sensorId, lastTimestamp, sample.timestamp);
+            }
+            released = true;
+            lastTimestamp = sample.timestamp;
+            lastYaw = sample.yaw;
+            lastPitch = sample.pitch;
+            lastRoll = sample.roll;
+            output.accept(sample);
+        }
+    }
+
+    // Both samples have the same timestamp
+    private static boolean sameReading(Sample a, Sample b) {
+        return a.yaw.equals(b.yaw) && a.pitch.equals(b.pitch) && a.roll.equals(b.roll);
+    }
+}
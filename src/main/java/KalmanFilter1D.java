@@ -0,0 +1,49 @@
+/**
+ * A one dimensional Kalman filter with a constant-value process model. Works
+ * well for sensors whose noise is roughly gaussian and whose signal changes
+ * slowly compared to the sample rate.
+ */
+public class KalmanFilter1D implements SignalFilter {
+    // Variance of the change of the real value between two samples.
+    private double processNoise;
+    // Variance of the sensor measurement error.
+    private double measurementNoise;
+
+    private boolean initialised = false;
+    private double estimate;
+    private double errorCovariance;
+
+    /**
+     * @param processNoise How much the real value is expected to move between
+     *                     two samples. Higher values follow the signal faster.
+     * @param measurementNoise How noisy the sensor is. Higher values smooth more.
+     */
+    public KalmanFilter1D(double processNoise, double measurementNoise) {
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+    }
+
+    @Override
+    public double filter(double value, double timestamp) {
+        if (!initialised) {
+            initialised = true;
+            estimate = value;
+            errorCovariance = measurementNoise;
+            return value;
+        }
+
+        // Predict
+        errorCovariance += processNoise;
+
+        // Update
+        double gain = errorCovariance / (errorCovariance + measurementNoise);
+        estimate += gain * (value - estimate);
+        errorCovariance *= (1 - gain);
+        return estimate;
+    }
+
+    @Override
+    public void reset() {
+        initialised = false;
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations, in the spirit of HdrHistogram. Values
+ * are grouped in buckets whose width doubles with every power of two, each
+ * split in SUB_BUCKETS linear sub-buckets. This keeps the relative error of
+ * percentiles under 1/SUB_BUCKETS (~6%) with a small fixed memory footprint,
+ * and recording a value is a handful of instructions without any allocation.
+ *
+ * It is safe to record from several threads while another one reads.
+ */
+public class LatencyHistogram {
+    // Number of linear sub-buckets per power of two (must be a power of two)
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Values above 2^MAX_BITS nanoseconds (~18 minutes) are clamped
+    private static final int MAX_BITS = 40;
+
+    private AtomicLongArray counts =
+            new AtomicLongArray((MAX_BITS - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+    private LongAdder count = new LongAdder();
+    private LongAdder sum = new LongAdder();
+    private AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(indexOf(nanos));
+        count.increment();
+        sum.add(nanos);
+
+        long currentMax = max.get();
+        while (nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return The number of recorded durations
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The mean of the recorded durations in nanoseconds, 0 if none
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @return The longest recorded duration in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the duration under which the given percentage of the recorded
+     * durations fall.
+     * @param percentile The percentile, between 0 and 100
+     * @return The duration in nanoseconds (upper bound of its bucket), 0 if
+     *         no duration has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) total += counts.get(i);
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        if (rank < 1) rank = 1;
+
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBoundOf(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets every recorded duration.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    // Bucket 0 holds the values 0..SUB_BUCKETS-1 exactly, then each power of
+    // two gets SUB_BUCKETS sub-buckets.
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        if (bits > MAX_BITS) return (MAX_BITS - SUB_BUCKET_BITS + 2) * SUB_BUCKETS - 1;
+        int shift = bits - SUB_BUCKET_BITS - 1;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,94 @@
+import processing.core.PApplet;
+import processing.event.KeyEvent;
+
+/**
+ * Draws the pipeline metrics on top of a canvas, and times its frames.
+ *
+ * The overlay hooks into the canvas with PApplet.registerMethod(), so it
+ * works with every canvas without changing their draw(). Press 'm' on the
+ * canvas to show or hide it.
+ */
+public class MetricsOverlay {
+    private static final int LINE_HEIGHT = 14;
+
+    private PApplet canvas;
+    private PipelineMetrics metrics = PipelineMetrics.get();
+
+    private boolean visible = false;
+    private long frameStart;
+
+    /**
+     * Attaches a new overlay to the given canvas.
+     * @param canvas The canvas to draw on
+     */
+    public MetricsOverlay(PApplet canvas) {
+        this.canvas = canvas;
+        canvas.registerMethod("pre", this);
+        canvas.registerMethod("draw", this);
+        canvas.registerMethod("keyEvent", this);
+    }
+
+    /**
+     * Called by the canvas before its draw().
+     */
+    public void pre() {
+        frameStart = System.nanoTime();
+    }
+
+    /**
+     * Called by the canvas after its draw().
+     */
+    public void draw() {
+        metrics.record(PipelineStage.FRAME, frameStart);
+        if (!visible) return;
+
+        canvas.pushStyle();
+        canvas.colorMode(PApplet.RGB, 255);
+        canvas.noStroke();
+        canvas.fill(0, 200);
+        canvas.rect(0, 0, 330, (PipelineStage.values().length + 3) * LINE_HEIGHT + 6);
+
+        canvas.fill(255);
+        canvas.textSize(11);
+        canvas.textAlign(PApplet.LEFT, PApplet.TOP);
+        int y = 4;
+        canvas.text("stage          /s   mean   p50   p99   max (us)", 6, y);
+        for (PipelineStage stage : PipelineStage.values()) {
+            y += LINE_HEIGHT;
+            StageStats s = metrics.stats(stage);
+            canvas.text(String.format("%-11s %6.0f %6.0f %5.0f %5.0f %5.0f", stage.getValue(),
+                    s.getThroughput(), s.getMeanMicros(), s.getP50Micros(),
+                    s.getP99Micros(), s.getMaxMicros()), 6, y);
+        }
+        y += LINE_HEIGHT;
+        canvas.text(String.format("invalid lines: %d, reconnects: %d, lost samples: %d, gaps: %d (%d ms)",
+                metrics.getInvalidLines(), metrics.getSerialReconnects(), metrics.getLostSamples(),
+                metrics.getSampleGaps(), metrics.getSampleGapMillis()), 6, y);
+        if (canvas instanceof RenderCanvas) {
+            QualityController quality = ((RenderCanvas) canvas).getQualityController();
+            if (!quality.getKnobs().isEmpty()) {
+                y += LINE_HEIGHT;
+                canvas.text(String.format("quality: %.0f%% (frame %.1f ms, budget %.1f ms)",
+                        quality.getQuality() * 100, quality.getAverageFrameMillis(), quality.getBudgetMillis()), 6, y);
+            }
+        }
+        canvas.popStyle();
+    }
+
+    /**
+     * Toggles the overlay when 'm' is pressed on the canvas.
+     */
+    public void keyEvent(KeyEvent event) {
+        if (event.getAction() == KeyEvent.PRESS && event.getKey() == 'm') {
+            visible = !visible;
+            canvas.redraw();
+        }
+    }
+
+    /**
+     * @param visible Whether the overlay should be drawn
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+}
@@ -0,0 +1,363 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the recorded frames to an AVI video, each frame compressed as a
+ * JPEG (Motion JPEG). Pure Java: the frames are encoded with ImageIO and the
+ * AVI structure is written by hand, so no codec needs to be installed. The
+ * videos play in VLC, ffmpeg, QuickTime and Windows Media Player.
+ *
+ * The file layout is:
+ *   RIFF 'AVI '
+ *     LIST 'hdrl'  avih, LIST 'strl' (strh, strf)
+ *     LIST 'movi'  one '00dc' chunk per frame
+ *     idx1         the offset and size of every frame
+ * The sizes and frame counts in the headers are filled in by close().
+ *
+ * The rate of an AVI is constant, but the frames are captured when the
+ * canvas draws, which may be slower or uneven. Each frame written with its
+ * capture time goes at the position of that time in the video: until then,
+ * the previous frame is repeated by indexing its chunk again, which costs
+ * 16 bytes per repeat. The video therefore plays at the speed of the
+ * performance.
+ *
+ * The offsets and sizes of AVI 1.0 are 32 bits, and many players read them
+ * as signed. Long recordings are therefore split: before a file would grow
+ * past MAX_FILE_SIZE, it is closed and the next frames go to a new file,
+ * numbered after the first (video.avi, video-2.avi, video-3.avi...). Every
+ * file is a complete video.
+ */
+public class MjpegAviWriter implements FrameSink {
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final int AVIF_HASINDEX = 0x10;
+    private static final int AVIIF_KEYFRAME = 0x10;
+
+    // Positions of the values patched by close()
+    private static final int RIFF_SIZE = 4;
+    private static final int AVIH_TOTAL_FRAMES = 48;
+    private static final int AVIH_SUGGESTED_BUFFER = 60;
+    private static final int STRH_LENGTH = 140;
+    private static final int STRH_SUGGESTED_BUFFER = 144;
+    private static final int MOVI_SIZE = 216;
+    private static final int MOVI_TAG = 220;
+
+    // The largest file written, well below the 2 GB of signed 32-bit offsets
+    public static final long MAX_FILE_SIZE = 1L << 30;
+
+    private final File output;
+    private final int width;
+    private final int height;
+    private final int framesPerSecond;
+    private final long maxFileSize;
+
+    // The file being written, and the files written so far (including it)
+    private RandomAccessFile file;
+    private final List<File> files = new ArrayList<>();
+
+    private final BufferedImage image;
+    private final ImageWriter writer;
+    private final ImageWriteParam param;
+    private final ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+
+    // The idx1 entries, 16 bytes per frame
+    private ByteBuffer index = ByteBuffer.allocate(16 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+    // The frames of the file being written, and of every file, repeats included
+    private int frames = 0;
+    private int totalFrames = 0;
+    private int largestFrame = 0;
+    // The last chunk written in the current file, relative to the movi tag
+    private int lastChunk;
+    private int lastChunkSize;
+    // When the first frame was captured
+    private long startNanos;
+
+    /**
+     * Creates the video file and writes its headers.
+     * @param output The video file, overwritten if it exists
+     * @param width The width of the frames
+     * @param height The height of the frames
+     * @param framesPerSecond The playback rate
+     * @throws IOException If the file can't be written
+     */
+    public MjpegAviWriter(File output, int width, int height, int framesPerSecond) throws IOException {
+        this(output, width, height, framesPerSecond, MAX_FILE_SIZE);
+    }
+
+    /**
+     * @param output The first video file, overwritten if it exists
+     * @param width The width of the frames
+     * @param height The height of the frames
+     * @param framesPerSecond The playback rate
+     * @param maxFileSize The size at which the video goes on in a new file
+     * @throws IOException If the file can't be written
+     */
+    MjpegAviWriter(File output, int width, int height, int framesPerSecond, long maxFileSize) throws IOException {
+        this.output = output;
+        this.width = width;
+        this.height = height;
+        this.framesPerSecond = framesPerSecond;
+        this.maxFileSize = maxFileSize;
+        this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        this.writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        this.param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        openFile();
+    }
+
+    // Starts the next file of the video, with its headers
+    private void openFile() throws IOException {
+        File next = output;
+        if (!files.isEmpty()) {
+            String name = output.getName();
+            int dot = name.lastIndexOf('.');
+            String numbered = dot < 0
+                    ? name + "-" + (files.size() + 1)
+                    : name.substring(0, dot) + "-" + (files.size() + 1) + name.substring(dot);
+            next = new File(output.getAbsoluteFile().getParentFile(), numbered);
+        }
+        file = new RandomAccessFile(next, "rw");
+        file.setLength(0);
+        file.write(headers(framesPerSecond).array());
+        files.add(next);
+        frames = 0;
+        largestFrame = 0;
+        index.clear();
+    }
+
+    /**
+     * Writes the frame right after the previous one, ie. as if the frames
+     * were captured at the rate of the video.
+     */
+    @Override
+    public void writeFrame(int[] pixels, int width, int height) throws IOException {
+        checkSize(width, height);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(pixels, 0, data, 0, width * height);
+
+        jpeg.reset();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(jpeg)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        }
+        writeChunk();
+    }
+
+    /**
+     * Writes the frame at the position of its capture time in the video,
+     * counted from the first frame: the previous frame is repeated until
+     * then. The frames of a video should all be written with their time, or
+     * all without.
+     */
+    @Override
+    public void writeFrame(int[] pixels, int width, int height, long nanos) throws IOException {
+        checkSize(width, height);
+        if (totalFrames == 0) startNanos = nanos;
+        long position = Math.round((nanos - startNanos) * (double) framesPerSecond / 1000000000L);
+        while (totalFrames > 0 && totalFrames < position) {
+            repeatLastFrame();
+        }
+        writeFrame(pixels, width, height);
+    }
+
+    private void checkSize(int width, int height) throws IOException {
+        if (width != this.width || height != this.height) {
+            throw new IOException("Frame of " + width + "x" + height + " in a "
+                    + this.width + "x" + this.height + " video");
+        }
+    }
+
+    // Writes the JPEG just encoded as the next frame
+    private void writeChunk() throws IOException {
+        int size = jpeg.size();
+
+        // The chunk, its index entry and the idx1 header must fit the file
+        long needed = 8 + size + size % 2 + 8 + index.position() + 16;
+        if (frames > 0 && file.length() + needed > maxFileSize) {
+            finishFile();
+            openFile();
+        }
+
+        long chunk = file.length();
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        fourcc(header, "00dc");
+        header.putInt(size);
+        file.seek(chunk);
+        file.write(header.array());
+        file.write(jpeg.toByteArray(), 0, size);
+        // Chunks are aligned on 2 bytes
+        if (size % 2 == 1) file.write(0);
+
+        // The files stay below MAX_FILE_SIZE, so the offsets fit an int
+        lastChunk = (int) (chunk - MOVI_TAG);
+        lastChunkSize = size;
+        largestFrame = Math.max(largestFrame, size);
+        addIndexEntry(lastChunk, size);
+    }
+
+    // Shows the last frame for one more frame. A new file has no chunk to
+    // index yet, so the frame is written again, still encoded in jpeg.
+    private void repeatLastFrame() throws IOException {
+        if (frames > 0 && file.length() + 8 + index.position() + 16 > maxFileSize) {
+            finishFile();
+            openFile();
+        }
+        if (frames == 0) writeChunk();
+        else addIndexEntry(lastChunk, lastChunkSize);
+    }
+
+    private void addIndexEntry(int chunk, int size) {
+        if (index.remaining() < 16) {
+            ByteBuffer bigger = ByteBuffer.allocate(index.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            index.flip();
+            bigger.put(index);
+            index = bigger;
+        }
+        fourcc(index, "00dc");
+        index.putInt(AVIIF_KEYFRAME);
+        index.putInt(chunk);
+        index.putInt(size);
+
+        frames++;
+        totalFrames++;
+    }
+
+    /**
+     * @return The number of frames written so far, in every file, including
+     *         the repeated ones
+     */
+    public int getFrameCount() {
+        return totalFrames;
+    }
+
+    /**
+     * @return The files of the video, in order
+     */
+    public List<File> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
+
+    /**
+     * Writes the index, fills in the headers and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finishFile();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Writes the index of the current file, fills in its headers and closes it
+    private void finishFile() throws IOException {
+        try {
+            long moviEnd = file.length();
+            ByteBuffer idx1 = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            fourcc(idx1, "idx1");
+            idx1.putInt(index.position());
+            file.seek(moviEnd);
+            file.write(idx1.array());
+            file.write(index.array(), 0, index.position());
+
+            patch(RIFF_SIZE, (int) (file.length() - 8));
+            patch(AVIH_TOTAL_FRAMES, frames);
+            patch(AVIH_SUGGESTED_BUFFER, largestFrame + 8);
+            patch(STRH_LENGTH, frames);
+            patch(STRH_SUGGESTED_BUFFER, largestFrame + 8);
+            patch(MOVI_SIZE, (int) (moviEnd - MOVI_TAG));
+        } finally {
+            file.close();
+        }
+    }
+
+    private ByteBuffer headers(int framesPerSecond) {
+        ByteBuffer b = ByteBuffer.allocate(MOVI_TAG + 4).order(ByteOrder.LITTLE_ENDIAN);
+        fourcc(b, "RIFF");
+        b.putInt(0); // file size - 8, patched
+        fourcc(b, "AVI ");
+
+        fourcc(b, "LIST");
+        b.putInt(MOVI_SIZE - 4 - 20); // size of the hdrl list, which ends with the movi LIST
+        fourcc(b, "hdrl");
+
+        fourcc(b, "avih");
+        b.putInt(56);
+        b.putInt(1000000 / framesPerSecond); // microseconds per frame
+        b.putInt(0);                         // max bytes per second
+        b.putInt(0);                         // padding granularity
+        b.putInt(AVIF_HASINDEX);
+        b.putInt(0);                         // total frames, patched
+        b.putInt(0);                         // initial frames
+        b.putInt(1);                         // streams
+        b.putInt(0);                         // suggested buffer size, patched
+        b.putInt(width);
+        b.putInt(height);
+        b.putInt(0).putInt(0).putInt(0).putInt(0);
+
+        fourcc(b, "LIST");
+        b.putInt(4 + 8 + 56 + 8 + 40);
+        fourcc(b, "strl");
+
+        fourcc(b, "strh");
+        b.putInt(56);
+        fourcc(b, "vids");
+        fourcc(b, "MJPG");
+        b.putInt(0);                         // flags
+        b.putShort((short) 0);               // priority
+        b.putShort((short) 0);               // language
+        b.putInt(0);                         // initial frames
+        b.putInt(1);                         // scale
+        b.putInt(framesPerSecond);           // rate, frames per second is rate / scale
+        b.putInt(0);                         // start
+        b.putInt(0);                         // length in frames, patched
+        b.putInt(0);                         // suggested buffer size, patched
+        b.putInt(-1);                        // quality
+        b.putInt(0);                         // sample size
+        b.putShort((short) 0).putShort((short) 0);
+        b.putShort((short) width).putShort((short) height);
+
+        fourcc(b, "strf");
+        b.putInt(40);
+        b.putInt(40);                        // BITMAPINFOHEADER size
+        b.putInt(width);
+        b.putInt(height);
+        b.putShort((short) 1);               // planes
+        b.putShort((short) 24);              // bits per pixel
+        fourcc(b, "MJPG");
+        b.putInt(width * height * 3);
+        b.putInt(0).putInt(0).putInt(0).putInt(0);
+
+        fourcc(b, "LIST");
+        b.putInt(0); // size of the movi list, patched
+        fourcc(b, "movi");
+        return b;
+    }
+
+    private void patch(int position, int value) throws IOException {
+        file.seek(position);
+        file.writeInt(Integer.reverseBytes(value));
+    }
+
+    private static void fourcc(ByteBuffer buffer, String code) {
+        buffer.put(code.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the messages of an Arduino that can switch between the encodings
+ * of DeviceCommands.Mode. The Arduino switches once it reads the command,
+ * while the bytes it sent before are still on their way: the decoder keeps
+ * the previous encoding until the bytes received show the new one, so no
+ * message is lost around the switch.
+ *
+ * Text is ASCII, so the binary start byte can only be the start of a frame:
+ * the decoder switches to binary on the first one. Binary frames may hold
+ * any byte, but the Arduino switches between two frames: the decoder
+ * switches to text on the first byte after a frame that is not a start
+ * byte. Until the switch, the bytes are decoded one at a time.
+ */
+public class ModeSwitchingDecoder implements FrameDecoder {
+    private final SampleFrameAssembler text;
+    private final BinaryFrameDecoder binary;
+
+    // The encoding of the bytes decoded last, and the one asked of the Arduino
+    private DeviceCommands.Mode mode;
+    private volatile DeviceCommands.Mode expected;
+
+    /**
+     * @param messageBoundary The line that ends a text message, eg. "$"
+     * @param mode The encoding the Arduino sends in
+     * @param consumer Receives the samples of every complete message
+     */
+    public ModeSwitchingDecoder(String messageBoundary, DeviceCommands.Mode mode,
+                                Consumer<List<Sample>> consumer) {
+        this.text = new SampleFrameAssembler(messageBoundary, consumer);
+        this.binary = new BinaryFrameDecoder(consumer);
+        this.mode = mode;
+        this.expected = mode;
+    }
+
+    /**
+     * Switches to the given encoding once the bytes received are in it. Can
+     * be called from any thread, eg. right after sending the command.
+     * @param mode The encoding asked of the Arduino
+     */
+    public void expect(DeviceCommands.Mode mode) {
+        this.expected = mode;
+    }
+
+    /**
+     * @return The encoding of the bytes decoded last. Only read it from the
+     *         thread consuming the bytes.
+     */
+    public DeviceCommands.Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void consume(ByteRing ring) {
+        while (ring.size() > 0) {
+            DeviceCommands.Mode expected = this.expected;
+            if (expected == mode) {
+                current().consume(ring);
+                return;
+            }
+
+            byte b = ring.take();
+            boolean switched = expected == DeviceCommands.Mode.BINARY
+                    ? b == BinaryFrameDecoder.START
+                    : binary.isBetweenFrames() && b != BinaryFrameDecoder.START;
+            if (switched) {
+                current().reset();
+                mode = expected;
+                current().reset();
+            }
+            if (mode == DeviceCommands.Mode.BINARY) binary.push(b);
+            else text.push(b);
+        }
+    }
+
+    @Override
+    public void reset() {
+        text.reset();
+        binary.reset();
+    }
+
+    private FrameDecoder current() {
+        return mode == DeviceCommands.Mode.BINARY ? binary : text;
+    }
+}
@@ -11,8 +11,18 @@ import java.util.List;
  * model of the user's limb in space during each time-slice. The 3-dimensional
  * model produced by the Modeler will be consumed by the Renderer.
  */
-public class Modeler extends EventEmitter implements Iterable<BothArms> {
-	private List<BothArms> pastArms = new ArrayList<BothArms>();
+public class Modeler extends EventEmitter implements Iterable<PoseSnapshot> {
+	// Number of recent poses kept, for getPastLeftArm() and getPastRightArm()
+	public static final int HISTORY_CAPACITY = 256;
+	// Free snapshots kept for reuse, enough for the history and the canvases
+	private static final int POOL_CAPACITY = 1024;
+
+	// The recent poses, a ring indexed by sequence % HISTORY_CAPACITY. The
+	// Modeler holds a reference to each of them.
+	private PoseSnapshot[] history = new PoseSnapshot[HISTORY_CAPACITY];
+	private PosePool pool = new PosePool(POOL_CAPACITY);
+	// Number of poses computed so far, ie. the sequence of the next pose
+	private long poseCount;
 	private double secondsBetweenSamples = 0.25;//Currently four samples per second
 	private double elbowToWrist;
 	private double shoulderToElbow;
@@ -23,7 +33,9 @@ public class Modeler extends EventEmitter implements Iterable<BothArms> {
 	private Point3D leftShoulder;
 	private Point3D rightShoulder;
 
-	private int iterationUpTo;
+	private long iterationUpTo;
+
+	private PipelineMetrics metrics = PipelineMetrics.get();
 
 	// Event constants
 	public static final String NEW_SAMPLE = "newSample";
@@ -40,9 +52,16 @@ public class Modeler extends EventEmitter implements Iterable<BothArms> {
 		startRightRoll = 0;//90;//Shoulder up/down
 		leftShoulder = new Point3D(0, 0, 0);//TODO: Dynamic again
 		rightShoulder = new Point3D(0, 0, 0);
-		BothArms currentArms = new BothArms(new Arm(leftShoulder, 0, -shoulderToElbow, 0, 0, -elbowToWrist, 0, true),
-				new Arm(rightShoulder, 0, -shoulderToElbow, 0, 0, -elbowToWrist, 0, false));//Create arms at rest
-		pastArms.add(currentArms);
+
+		//Create arms at rest
+		PoseSnapshot rest = pool.acquire(poseCount);
+		double[] joints = rest.joints();
+		for (int elbow : new int[] { PoseSnapshot.LEFT_ELBOW, PoseSnapshot.RIGHT_ELBOW }) {
+			Point3D shoulder = elbow == PoseSnapshot.LEFT_ELBOW ? leftShoulder : rightShoulder;
+			storeJoints(shoulder, 0, -shoulderToElbow, 0, 0, -elbowToWrist, 0, joints, elbow * 3);
+		}
+		rest.setArms(true, true);
+		add(rest);
 
 		iterationUpTo = 0;
 	}
@@ -56,6 +75,21 @@ public class Modeler extends EventEmitter implements Iterable<BothArms> {
 	 * @return A new arm object that models the arm's position in space.
 	 */
 	public Arm computeNewArmPosition(Sample armSample, boolean isLeftArm) {
+		double[] joints = new double[6];
+		computeArmInto(armSample, isLeftArm, joints, 0);
+		return new Arm(new Point3D(joints[0], joints[1], joints[2]),
+				new Point3D(joints[3], joints[4], joints[5]), isLeftArm);
+	}
+
+	/**
+	 * Computes an arm's position using the specified sensor sample, without
+	 * allocating: the elbow then the wrist are written to out, x, y, z each.
+	 * @param armSample The sensor sample used to compute the arm position.
+	 * @param isLeftArm Whether we are computing the arm position for a left arm.
+	 * @param out Where to write the 6 coordinates
+	 * @param offset Index of the elbow x in out
+	 */
+	public void computeArmInto(Sample armSample, boolean isLeftArm, double[] out, int offset) {
 		// flip the sign for certain operations when it is a left arm.
 		double sign =  isLeftArm ? 1 : -1;
 
@@ -77,10 +111,24 @@ public class Modeler extends EventEmitter implements Iterable<BothArms> {
 
 		Point3D shoulderLocation = (isLeftArm) ? leftShoulder
 													: rightShoulder;
-		return new Arm(shoulderLocation,
-				       upperX, upperY, upperZ,
-				       lowerX, lowerY, lowerZ,
-				       isLeftArm);
+		storeJoints(shoulderLocation,
+				upperX, upperY, upperZ,
+				lowerX, lowerY, lowerZ,
+				out, offset);
+	}
+
+	/**
+	 * Writes the elbow and wrist positions, the same way the Arm constructor
+	 * computes them from the upper and lower arm.
+	 */
+	private static void storeJoints(Point3D shoulder, double EX, double EY, double EZ,
+									double WX, double WY, double WZ, double[] out, int offset) {
+		out[offset] = EX + shoulder.getX();
+		out[offset + 1] = EY + shoulder.getY();
+		out[offset + 2] = EZ + shoulder.getZ();
+		out[offset + 3] = EX + WX + shoulder.getX();
+		out[offset + 4] = EY + WY + shoulder.getY();
+		out[offset + 5] = EZ + WZ + shoulder.getZ();
 	}
 
 	/**
@@ -108,10 +156,16 @@ public class Modeler extends EventEmitter implements Iterable<BothArms> {
 	 * @param rightArmSample The sensor reading for the right arm.
 	 */
 	public void newSensorReading(Sample rightArmSample) {
-		Arm rightArm = computeNewArmPosition(rightArmSample, false);
-		BothArms arms = new BothArms(null, rightArm);
-		pastArms.add(arms);
+		long start = System.nanoTime();
+		PoseSnapshot pose = pool.acquire(poseCount);
+		computeArmInto(rightArmSample, false, pose.joints(), PoseSnapshot.RIGHT_ELBOW * 3);
+		pose.setArms(false, true);
+		add(pose);
+		metrics.record(PipelineStage.MODEL, start);
+
+		start = System.nanoTime();
 		this.emit(NEW_SAMPLE);
+		metrics.record(PipelineStage.EMIT, start);
 	}
 
 	/**
@@ -121,11 +175,36 @@ public class Modeler extends EventEmitter implements Iterable<BothArms> {
 	 * @param rightArmSample The righ arm sensor reading
 	 */
 	public void newSensorReading(Sample leftArmSample, Sample rightArmSample) {
-		Arm leftArm = computeNewArmPosition(leftArmSample, true);
-		Arm rightArm = computeNewArmPosition(rightArmSample, false);
-		BothArms arms = new BothArms(leftArm, rightArm);
-		pastArms.add(arms);
+		long start = System.nanoTime();
+		PoseSnapshot pose = pool.acquire(poseCount);
+		computeArmInto(leftArmSample, true, pose.joints(), PoseSnapshot.LEFT_ELBOW * 3);
+		computeArmInto(rightArmSample, false, pose.joints(), PoseSnapshot.RIGHT_ELBOW * 3);
+		pose.setArms(true, true);
+		add(pose);
+		metrics.record(PipelineStage.MODEL, start);
+
+		start = System.nanoTime();
 		this.emit(NEW_SAMPLE);
+		metrics.record(PipelineStage.EMIT, start);
+	}
+
+	/**
+	 * Adds a new pose to the history, releasing the one it replaces.
+	 */
+	private void add(PoseSnapshot pose) {
+		int slot = (int) (poseCount % HISTORY_CAPACITY);
+		if (history[slot] != null) {
+			history[slot].release();
+		}
+		history[slot] = pose;
+		poseCount++;
+	}
+
+	/**
+	 * @return The number of poses still in the history
+	 */
+	private int historySize() {
+		return (int) Math.min(poseCount, HISTORY_CAPACITY);
 	}
 
 	/**
@@ -133,21 +212,22 @@ public class Modeler extends EventEmitter implements Iterable<BothArms> {
 	 * Use getNextSample to read the next one
 	 */
 	public boolean hasUnreadSample(){
-		//past arms index = size - 1
-		//iterationUpTo
-		//have we read them all - is past arms index larger than iterationUpTo?
-		return ((pastArms.size() - 1) >= iterationUpTo);
+		return iterationUpTo < poseCount;
 	}
 
 	/**
-	 * Returns the next BothArms object
-	 * @return A BothArms object, or null if all objects have been read
+	 * Returns the next pose. The Modeler only keeps the last
+	 * HISTORY_CAPACITY poses: a reader further behind skips to the oldest
+	 * one kept. The pose is recycled once it leaves the history, so a reader
+	 * keeping it longer must retain() it.
+	 * @return A PoseSnapshot, or null if all poses have been read
 	 */
-	public BothArms getNextSample(){
-		if (iterationUpTo >= pastArms.size()){
+	public PoseSnapshot getNextSample(){
+		if (iterationUpTo >= poseCount){
 			return null;
 		}
-		BothArms result = pastArms.get(iterationUpTo);
+		iterationUpTo = Math.max(iterationUpTo, poseCount - HISTORY_CAPACITY);
+		PoseSnapshot result = history[(int) (iterationUpTo % HISTORY_CAPACITY)];
 		iterationUpTo++;
 		return result;
 	}
@@ -171,41 +251,55 @@ public class Modeler extends EventEmitter implements Iterable<BothArms> {
 	/**
 	 * Retrieve the left arm's position at a given iteration
 	 * @param iterationsAgo the number of iterations since the arm position desired (0 is a valid value)
-	 * @return The object representing the left arm of the subject
+	 * @return The object representing the left arm of the subject, or the
+	 *         oldest one kept if iterationsAgo is out of the history
 	 */
 	public Arm getPastLeftArm(int iterationsAgo){
-		if(iterationsAgo < 0 || iterationsAgo > pastArms.size()){
-			BothArms armsInQuestion = pastArms.get(0);
-			return armsInQuestion.getLeftArm();
+		if(iterationsAgo < 0 || iterationsAgo >= historySize()){
+			return getPastPose(historySize() - 1).getLeftArm();
 		}
-		BothArms armsInQuestion = pastArms.get(pastArms.size() - (iterationsAgo + 1));
-		return armsInQuestion.getLeftArm();
+		return getPastPose(iterationsAgo).getLeftArm();
 	}
 
 	/**
 	 * Retrieve the right arm's position at a given iteration
-	 * @param iterationsAgo the number of iterations since the arm position desired (0 is a valid value)
+	 * @param iterationsAgo the number of iterations since the arm position desired (0 is a valid value),
+	 *                      at most HISTORY_CAPACITY - 1
 	 * @return The object representing the right arm of the subject
 	 */
 	public Arm getPastRightArm(int iterationsAgo){
-		if(iterationsAgo < 0 || iterationsAgo > pastArms.size()){
+		if(iterationsAgo < 0 || iterationsAgo >= historySize()){
 			throw new Error("That is not a valid number of iterations ago!");
 		}
-		BothArms armsInQuestion = pastArms.get(pastArms.size() - (iterationsAgo + 1));
-		return armsInQuestion.getRightArm();
+		return getPastPose(iterationsAgo).getRightArm();
+	}
+
+	private PoseSnapshot getPastPose(int iterationsAgo) {
+		return history[(int) ((poseCount - 1 - iterationsAgo) % HISTORY_CAPACITY)];
 	}
 
 	/**
-	 * Returns an iterator for the past arms, with the most recent arms at the end of the array
+	 * Returns an iterator for the poses in the history, with the most recent pose at the end
 	 */
-	public Iterator<BothArms> iterator(){
-		return pastArms.iterator();
+	public Iterator<PoseSnapshot> iterator(){
+		List<PoseSnapshot> poses = new ArrayList<>(historySize());
+		for (int i = historySize() - 1; i >= 0; i--) {
+			poses.add(getPastPose(i));
+		}
+		return poses.iterator();
 	}
 
 	/**
 	 * Returns the number of arm calculations done so far
 	 */
 	public int pastArmsCount() {
-		return pastArms.size();
+		return (int) poseCount;
+	}
+
+	/**
+	 * @return The pool recycling the poses of this Modeler
+	 */
+	public PosePool getPosePool() {
+		return pool;
 	}
 }
@@ -0,0 +1,51 @@
+/**
+ * Replaces each value by the median of the last N values. Removes isolated
+ * spikes (eg. a corrupted serial line) without blurring real movements as
+ * much as an average would.
+ */
+public class MovingMedianFilter implements SignalFilter {
+    // The last N values, used as a ring buffer
+    private double[] window;
+    // Scratch space used to sort the window, allocated once
+    private double[] sorted;
+    private int next = 0;
+    private int count = 0;
+
+    /**
+     * @param windowSize The number of values the median is computed over.
+     */
+    public MovingMedianFilter(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("The window size must be at least 1");
+        }
+        window = new double[windowSize];
+        sorted = new double[windowSize];
+    }
+
+    @Override
+    public double filter(double value, double timestamp) {
+        window[next] = value;
+        next = (next + 1) % window.length;
+        if (count < window.length) count++;
+
+        // Insertion sort: the window is small, so this beats anything fancier
+        for (int i = 0; i < count; i++) {
+            double v = window[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > v) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = v;
+        }
+
+        if (count % 2 == 1) return sorted[count / 2];
+        return (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+    }
+
+    @Override
+    public void reset() {
+        next = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Re-renders a recorded session with any rendering style, as fast as the
+ * CPU allows, and writes every frame as a numbered image. Unlike replaying
+ * the file in the app, the result doesn't depend on timing: the same file,
+ * options and seed always give the same images.
+ *
+ * The file is modeled first, on a single thread, then drawn a fixed number
+ * of poses per frame into offscreen canvases. Canvases declaring
+ * INDEPENDENT_FRAMES are drawn in segments of frames, in parallel, each
+ * segment starting a few poses early so it picks up the trails of the
+ * previous one. The segments don't depend on the number of threads, so
+ * neither do the images.
+ *
+ * Canvases are applets, so on a box without display run with
+ * -Djava.awt.headless=false under Xvfb.
+ *
+ * Options:
+ *   --input PATH              The recorded file (required)
+ *   --output FOLDER           Where to write the frames, default "render"
+ *   --canvas NAME             A rendering style, eg. "2D Front View"
+ *   --width N / --height N    Size of the frames
+ *   --poses-per-frame N       Poses drawn between two frames
+ *   --format png|jpg|bmp      Image format of the frames
+ *   --seed N                  Seed of the random numbers used by the canvas
+ *   --threads N               Segments drawn at the same time
+ *   --segment N               Frames per segment
+ *   --warmup N                Poses drawn before a segment, not written
+ */
+public class OfflineRenderer {
+    private Map<String, String> options = new HashMap<>();
+
+    private RenderCanvasProvider provider;
+    private List<PoseSnapshot> poses;
+    private File output;
+    private int width;
+    private int height;
+    private int posesPerFrame;
+    private SnapshotEncoder.Format format;
+    private long seed;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        new OfflineRenderer(args).run();
+    }
+
+    /**
+     * @param args The command line options, see the class documentation
+     */
+    public OfflineRenderer(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+
+    /**
+     * Models the input file, then renders and writes all its frames.
+     * @throws IOException If the input can't be read or a frame can't be
+     *                     written
+     */
+    public void run() throws IOException, InterruptedException {
+        String input = options.get("input");
+        if (input == null) {
+            throw new IllegalArgumentException("Missing --input PATH");
+        }
+        String canvasName = option("canvas", "Digital2DSketch");
+        provider = RenderCanvasProviders.get(canvasName);
+        if (provider == null) {
+            throw new IllegalArgumentException("Unknown rendering style " + canvasName);
+        }
+        output = new File(option("output", "render"));
+        width = Integer.parseInt(option("width", "1280"));
+        height = Integer.parseInt(option("height", "720"));
+        posesPerFrame = Integer.parseInt(option("poses-per-frame", "1"));
+        if (posesPerFrame < 1 || posesPerFrame > RenderCanvas.PENDING_POSES_CAPACITY) {
+            throw new IllegalArgumentException("--poses-per-frame must be between 1 and "
+                    + RenderCanvas.PENDING_POSES_CAPACITY);
+        }
+        format = parseFormat(option("format", "png"));
+        seed = Long.parseLong(option("seed", "42"));
+
+        long start = System.nanoTime();
+        poses = model(new File(input));
+        int frames = (poses.size() + posesPerFrame - 1) / posesPerFrame;
+        System.out.println("Modeled " + poses.size() + " poses, " + frames + " frames to render");
+
+        if (provider.getCapabilities().contains(CanvasCapability.INDEPENDENT_FRAMES)) {
+            renderInSegments(frames,
+                    Integer.parseInt(option("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    Integer.parseInt(option("segment", "300")),
+                    Integer.parseInt(option("warmup", "64")));
+        } else {
+            renderSegment(0, 0, frames, 0);
+        }
+        System.out.println(String.format("Rendered %d frames to %s in %.1f s",
+                frames, output, (System.nanoTime() - start) / 1e9));
+    }
+
+    private String option(String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static SnapshotEncoder.Format parseFormat(String name) {
+        for (SnapshotEncoder.Format format : SnapshotEncoder.Format.values()) {
+            if (format.name().equalsIgnoreCase(name) || format.getExtension().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown image format " + name);
+    }
+
+    /**
+     * Feeds the recorded file through the same pipeline as the app.
+     * @return The modeled poses, in order, without the resting position.
+     *         They are all retained, so they are never recycled.
+     */
+    private static List<PoseSnapshot> model(File file) throws IOException {
+        Modeler model = new Modeler();
+        SamplePipeline pipeline = new SamplePipeline(model);
+        List<PoseSnapshot> poses = new ArrayList<>();
+        model.getNextSample(); // skip the resting position
+        model.addListener(Modeler.NEW_SAMPLE, p -> poses.add(model.getNextSample().retain()));
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals("$")) continue; // message boundary
+                pipeline.accept(Sample.parseMessage(line));
+            }
+        }
+        pipeline.flush();
+        return poses;
+    }
+
+    /**
+     * Splits the frames into segments, and renders them on a pool of threads.
+     */
+    private void renderInSegments(int frames, int threads, int segmentFrames, int warmupPoses)
+            throws IOException, InterruptedException {
+        int warmupFrames = (warmupPoses + posesPerFrame - 1) / posesPerFrame;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<Void>> segments = new ArrayList<>();
+            for (int first = 0, segment = 0; first < frames; first += segmentFrames, segment++) {
+                int index = segment;
+                int firstFrame = first;
+                int endFrame = Math.min(frames, first + segmentFrames);
+                segments.add(executor.submit((Callable<Void>) () -> {
+                    renderSegment(index, firstFrame, endFrame, warmupFrames);
+                    return null;
+                }));
+            }
+            for (Future<Void> segment : segments) {
+                segment.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Draws the frames [firstFrame, endFrame) on a new canvas, and writes
+     * them. The frames before, down to warmupFrames, are drawn but not
+     * written.
+     * @param segment The number of the segment, to seed the canvas
+     */
+    private void renderSegment(int segment, int firstFrame, int endFrame, int warmupFrames) throws IOException {
+        RenderCanvas canvas = provider.create(width, height);
+        canvas.randomSeed(seed + segment);
+        canvas.noiseSeed(seed + segment);
+        canvas.setProjection(provider.getProjection());
+        // Time-based effects (fades) follow the frames, not the time taken
+        // to draw them
+        canvas.setFrameInterval(1000000000L / RenderCanvas.RECORDING_FPS);
+        // The frames are drawn at the best quality, however long they take
+        canvas.getQualityController().setEnabled(false);
+        canvas.initOffscreen();
+        // The frame drawn when the canvas is shown, before any pose
+        canvas.handleDraw();
+
+        int sampleStride = Math.max(1, provider.getSampleStride());
+        FrameSink sink = new ImageSequenceSink(output, "frame", format, firstFrame);
+        try {
+            for (int frame = Math.max(0, firstFrame - warmupFrames); frame < endFrame; frame++) {
+                int end = Math.min(poses.size(), (frame + 1) * posesPerFrame);
+                for (int pose = frame * posesPerFrame; pose < end; pose++) {
+                    // The stride counts from the start of the file, whatever the segment
+                    if (pose % sampleStride == 0) {
+                        canvas.submitPose(poses.get(pose));
+                    }
+                }
+                canvas.handleDraw();
+
+                if (frame >= firstFrame) {
+                    canvas.g.loadPixels();
+                    sink.writeFrame(canvas.g.pixels, width, height);
+                }
+            }
+        } finally {
+            sink.close();
+            canvas.dispose();
+        }
+        System.out.println("Rendered frames " + firstFrame + " to " + (endFrame - 1));
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * The One Euro filter (Casiez, Roussel & Vogel, CHI 2012). A low pass filter whose
+ * cutoff frequency rises with the speed of the signal: slow movements are
+ * heavily smoothed to remove jitter, fast movements are barely smoothed to
+ * keep the lag low.
+ */
+public class OneEuroFilter implements SignalFilter {
+    // Sample rate assumed when two values share the same timestamp.
+    private static final double DEFAULT_RATE = 60;
+
+    // Cutoff frequency (Hz) used when the signal is not moving.
+    private double minCutoff;
+    // How much the cutoff frequency increases with the speed of the signal.
+    private double beta;
+    // Cutoff frequency (Hz) used to smooth the derivative.
+    private double derivativeCutoff;
+
+    private boolean initialised = false;
+    private double previousValue;
+    private double previousDerivative;
+    private double previousTimestamp;
+
+    /**
+     * @param minCutoff Cutoff frequency in Hz when the signal is still.
+     *                  Lower values remove more jitter.
+     * @param beta Speed coefficient. Higher values reduce lag on fast moves.
+     * @param derivativeCutoff Cutoff frequency in Hz of the speed estimate.
+     */
+    public OneEuroFilter(double minCutoff, double beta, double derivativeCutoff) {
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+        this.derivativeCutoff = derivativeCutoff;
+    }
+
+    @Override
+    public double filter(double value, double timestamp) {
+        if (!initialised) {
+            initialised = true;
+            previousValue = value;
+            previousDerivative = 0;
+            previousTimestamp = timestamp;
+            return value;
+        }
+
+        double elapsed = timestamp - previousTimestamp;
+        if (elapsed <= 0) elapsed = 1 / DEFAULT_RATE;
+        previousTimestamp = timestamp;
+
+        // Smooth the speed of the signal, then use it to pick the cutoff
+        double derivative = (value - previousValue) / elapsed;
+        previousDerivative += alpha(derivativeCutoff, elapsed) * (derivative - previousDerivative);
+
+        double cutoff = minCutoff + beta * Math.abs(previousDerivative);
+        previousValue += alpha(cutoff, elapsed) * (value - previousValue);
+        return previousValue;
+    }
+
+    @Override
+    public void reset() {
+        initialised = false;
+    }
+
+    /**
+     * Computes the smoothing factor of an exponential low pass filter.
+     * @param cutoff The cutoff frequency in Hz
+     * @param elapsed The time since the previous value in seconds
+     * @return The smoothing factor, between 0 and 1
+     */
+    private static double alpha(double cutoff, double elapsed) {
+        double tau = 1 / (2 * Math.PI * cutoff);
+        return 1 / (1 + tau / elapsed);
+    }
+}
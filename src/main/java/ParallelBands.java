@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Splits per-pixel work into bands processed in parallel, eg. the rows of
+ * an image. Shared by the canvases, on a pool of daemon threads sized to
+ * the cores. The calling thread processes a band too, and returns once
+ * every band is done.
+ */
+public class ParallelBands {
+
+    /**
+     * The work on one band.
+     */
+    public interface Band {
+        /**
+         * @param from The first index of the band
+         * @param to The index after the last one of the band
+         */
+        void run(int from, int to);
+    }
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final ExecutorService workers = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "ParallelBands");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ParallelBands() {}
+
+    /**
+     * Runs band on [0, size), split into at most one band per core.
+     * @param size The number of indices to process
+     * @param minBandSize Below this number of indices per band, fewer bands
+     *                    are used: splitting costs more than it saves
+     * @param band The work on each band
+     */
+    public static void run(int size, int minBandSize, Band band) {
+        int bands = Math.max(1, Math.min(THREADS, size / Math.max(1, minBandSize)));
+        if (bands == 1) {
+            band.run(0, size);
+            return;
+        }
+
+        List<Future<?>> others = new ArrayList<>(bands - 1);
+        for (int i = 1; i < bands; i++) {
+            int from = (int) ((long) size * i / bands);
+            int to = (int) ((long) size * (i + 1) / bands);
+            others.add(workers.submit(() -> band.run(from, to)));
+        }
+        band.run(0, size / bands);
+
+        try {
+            for (Future<?> other : others) {
+                other.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
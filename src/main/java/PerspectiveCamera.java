@@ -0,0 +1,95 @@
+/**
+ * A camera turning around a target, which projects 3D points onto the
+ * screen in perspective, in software.
+ *
+ * The points are stored x, y, z in float arrays, with x to the right of the
+ * body, y up and z in front of it. A point with a NaN x (eg. a missing arm),
+ * or closer to the camera than the near plane, is projected to a NaN x.
+ */
+public class PerspectiveCamera {
+    private final float targetY;
+    private final float distance;
+    private final float near;
+
+    // The rotation and the perspective of the current frame
+    private float cosYaw = 1, sinYaw = 0, cosPitch = 1, sinPitch = 0;
+    private float focal, centerX, centerY;
+
+    /**
+     * @param targetY The height the camera looks at
+     * @param distance The distance from the camera to the target
+     * @param near The points closer to the camera are not visible
+     */
+    public PerspectiveCamera(float targetY, float distance, float near) {
+        this.targetY = targetY;
+        this.distance = distance;
+        this.near = near;
+    }
+
+    /**
+     * Moves the camera, before projecting the points of a frame.
+     * @param yaw The angle of the camera around the vertical axis, in radians
+     * @param pitch The angle of the camera above the horizon, in radians
+     * @param width The width of the screen
+     * @param height The height of the screen
+     */
+    public void update(float yaw, float pitch, int width, int height) {
+        cosYaw = (float) Math.cos(yaw);
+        sinYaw = (float) Math.sin(yaw);
+        cosPitch = (float) Math.cos(pitch);
+        sinPitch = (float) Math.sin(pitch);
+        focal = height * 1.5f;
+        centerX = width / 2f;
+        centerY = height / 2f;
+    }
+
+    /**
+     * @return The focal length, in pixels: a length l at depth d is drawn
+     *         l * focal / d pixels long
+     */
+    public float getFocal() {
+        return focal;
+    }
+
+    /**
+     * Projects a point onto the screen.
+     * @param points The points, x, y, z for each
+     * @param offset The index of the x of the point in points
+     * @param out The projected points, x, y for each
+     * @param outOffset The index of the x of the projected point in out
+     */
+    public void project(float[] points, int offset, float[] out, int outOffset) {
+        float x = points[offset];
+        if (Float.isNaN(x)) {
+            out[outOffset] = Float.NaN;
+            return;
+        }
+        float y = points[offset + 1] - targetY;
+        float z = points[offset + 2];
+
+        // Turn the body in front of the camera, then tilt it
+        float x1 = x * cosYaw - z * sinYaw;
+        float z1 = x * sinYaw + z * cosYaw;
+        float y2 = y * cosPitch - z1 * sinPitch;
+        float z2 = y * sinPitch + z1 * cosPitch;
+
+        float depth = distance - z2;
+        if (depth < near) {
+            out[outOffset] = Float.NaN;
+            return;
+        }
+        out[outOffset] = centerX - focal * x1 / depth;
+        out[outOffset + 1] = centerY - focal * y2 / depth;
+    }
+
+    /**
+     * @param points The points, x, y, z for each
+     * @param offset The index of the x of the point in points
+     * @return The distance from the camera to the point, along its axis
+     */
+    public float depth(float[] points, int offset) {
+        float y = points[offset + 1] - targetY;
+        float z1 = points[offset] * sinYaw + points[offset + 2] * cosYaw;
+        return distance - (y * sinPitch + z1 * cosPitch);
+    }
+}
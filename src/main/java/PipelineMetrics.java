@@ -0,0 +1,252 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects timings of each stage of the pipeline (serial read, parse, model,
+ * emit, render and frame) so we can see where time goes under live load.
+ *
+ * There is a single instance for the application, obtained with get().
+ * Recording is lock-free and allocation-free, so stages can be timed on any
+ * thread. The metrics are exposed over JMX (see registerMBean) and can be
+ * displayed on top of the canvas (see MetricsOverlay).
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+    // The name under which the metrics are published over JMX
+    public static final String OBJECT_NAME = "bodyTracker:type=PipelineMetrics";
+
+    private static final PipelineMetrics instance = new PipelineMetrics();
+
+    private Map<PipelineStage, LatencyHistogram> histograms = new EnumMap<>(PipelineStage.class);
+
+    // Number of lines that did not match the sample grammar
+    private LongAdder invalidLines = new LongAdder();
+
+    // The quality controllers of the live canvases, by name, and the number
+    // of times they turned the quality down and up
+    private Map<String, QualityController> qualityControllers = new ConcurrentHashMap<>();
+    private LongAdder qualityDowngrades = new LongAdder();
+    private LongAdder qualityUpgrades = new LongAdder();
+
+    // The reconnections of the serial, and the samples lost meanwhile
+    private LongAdder serialReconnects = new LongAdder();
+    private LongAdder lostSamples = new LongAdder();
+    private volatile long lastReconnectNanos = 0;
+
+    // The holes in the stream of samples, and the time they span
+    private LongAdder sampleGaps = new LongAdder();
+    private LongAdder sampleGapMillis = new LongAdder();
+
+    // When the metrics were last reset, used to compute throughputs
+    private volatile long since = System.nanoTime();
+
+    private PipelineMetrics() {
+        for (PipelineStage stage : PipelineStage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * @return The metrics of the application
+     */
+    public static PipelineMetrics get() {
+        return instance;
+    }
+
+    /**
+     * Records the duration of a stage that started at the given time.
+     * @param stage The stage that just ended
+     * @param startNanos The System.nanoTime() when the stage started
+     */
+    public void record(PipelineStage stage, long startNanos) {
+        histograms.get(stage).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param stage The stage to query
+     * @return The histogram of the durations of the stage
+     */
+    public LatencyHistogram histogram(PipelineStage stage) {
+        return histograms.get(stage);
+    }
+
+    /**
+     * Counts a line that could not be parsed into a Sample.
+     */
+    public void invalidLine() {
+        invalidLines.increment();
+    }
+
+    /**
+     * Lists the quality of a canvas in the metrics, until it is removed.
+     * @param name The name of the canvas
+     * @param controller The quality controller of the canvas
+     */
+    public void addQualityController(String name, QualityController controller) {
+        qualityControllers.put(name, controller);
+    }
+
+    /**
+     * @param name The name of a canvas that was destroyed
+     */
+    public void removeQualityController(String name) {
+        qualityControllers.remove(name);
+    }
+
+    /**
+     * Counts a decision of a quality controller.
+     * @param upgrade true if the quality was turned up, false if down
+     */
+    public void qualityChanged(boolean upgrade) {
+        (upgrade ? qualityUpgrades : qualityDowngrades).increment();
+    }
+
+    /**
+     * Counts a reconnection of the serial.
+     * @param downtimeNanos The time without messages
+     * @param lostSamples An estimate of the samples not received meanwhile
+     */
+    public void serialReconnected(long downtimeNanos, long lostSamples) {
+        serialReconnects.increment();
+        this.lostSamples.add(lostSamples);
+        lastReconnectNanos = downtimeNanos;
+    }
+
+    /**
+     * Counts a hole in the stream of a sensor, see JitterBuffer.GapListener.
+     * @param millis The time between the samples before and after the hole
+     */
+    public void sampleGap(long millis) {
+        sampleGaps.increment();
+        sampleGapMillis.add(millis);
+    }
+
+    /**
+     * Summarises the durations of a stage.
+     * @param stage The stage to summarise
+     * @return A snapshot of the statistics of the stage
+     */
+    public StageStats stats(PipelineStage stage) {
+        LatencyHistogram h = histograms.get(stage);
+        double seconds = (System.nanoTime() - since) / 1e9;
+        long count = h.getCount();
+
+        return new StageStats(
+                count,
+                seconds > 0 ? count / seconds : 0,
+                h.getMean() / 1000,
+                h.getValueAtPercentile(50) / 1000.0,
+                h.getValueAtPercentile(99) / 1000.0,
+                h.getMax() / 1000.0);
+    }
+
+    /**
+     * Publishes the metrics on the platform MBean server, so they can be
+     * inspected with jconsole or VisualVM. Does nothing if already published.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    //      JMX ATTRIBUTES
+    // -------------------------------------------------------------------------
+
+    @Override
+    public StageStats getSerialRead() { return stats(PipelineStage.SERIAL_READ); }
+
+    @Override
+    public StageStats getDispatch() { return stats(PipelineStage.DISPATCH); }
+
+    @Override
+    public StageStats getParse() { return stats(PipelineStage.PARSE); }
+
+    @Override
+    public StageStats getModel() { return stats(PipelineStage.MODEL); }
+
+    @Override
+    public StageStats getEmit() { return stats(PipelineStage.EMIT); }
+
+    @Override
+    public StageStats getRender() { return stats(PipelineStage.RENDER); }
+
+    @Override
+    public StageStats getFrame() { return stats(PipelineStage.FRAME); }
+
+    @Override
+    public long getInvalidLines() {
+        return invalidLines.sum();
+    }
+
+    @Override
+    public long getSerialReconnects() {
+        return serialReconnects.sum();
+    }
+
+    @Override
+    public double getLastReconnectMillis() {
+        return lastReconnectNanos / 1e6;
+    }
+
+    @Override
+    public long getLostSamples() {
+        return lostSamples.sum();
+    }
+
+    @Override
+    public long getSampleGaps() {
+        return sampleGaps.sum();
+    }
+
+    @Override
+    public long getSampleGapMillis() {
+        return sampleGapMillis.sum();
+    }
+
+    @Override
+    public Map<String, Float> getQuality() {
+        Map<String, Float> quality = new TreeMap<>();
+        for (QualityController controller : qualityControllers.values()) {
+            quality.put(controller.getName(), controller.getQuality());
+        }
+        return quality;
+    }
+
+    @Override
+    public long getQualityDowngrades() {
+        return qualityDowngrades.sum();
+    }
+
+    @Override
+    public long getQualityUpgrades() {
+        return qualityUpgrades.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram h : histograms.values()) h.reset();
+        invalidLines.reset();
+        qualityDowngrades.reset();
+        qualityUpgrades.reset();
+        serialReconnects.reset();
+        lostSamples.reset();
+        lastReconnectNanos = 0;
+        sampleGaps.reset();
+        sampleGapMillis.reset();
+        since = System.nanoTime();
+    }
+}
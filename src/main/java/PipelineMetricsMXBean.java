@@ -0,0 +1,76 @@
+import java.util.Map;
+
+/**
+ * The JMX view of PipelineMetrics. Each stage is published as a composite
+ * attribute holding its count, throughput and latency percentiles.
+ */
+public interface PipelineMetricsMXBean {
+
+    StageStats getSerialRead();
+
+    StageStats getDispatch();
+
+    StageStats getParse();
+
+    StageStats getModel();
+
+    StageStats getEmit();
+
+    StageStats getRender();
+
+    StageStats getFrame();
+
+    /**
+     * @return The number of lines that did not match the sample grammar
+     */
+    long getInvalidLines();
+
+    /**
+     * @return The number of times the serial was reopened after its
+     *         connection was lost
+     */
+    long getSerialReconnects();
+
+    /**
+     * @return The time without messages of the last reconnection
+     */
+    double getLastReconnectMillis();
+
+    /**
+     * @return An estimate of the samples lost while the serial was
+     *         disconnected
+     */
+    long getLostSamples();
+
+    /**
+     * @return The number of holes in the stream of samples, once put back
+     *         in order
+     */
+    long getSampleGaps();
+
+    /**
+     * @return The time spanned by the holes in the stream of samples
+     */
+    long getSampleGapMillis();
+
+    /**
+     * @return The quality of each canvas adapting to its frame rate, from 0
+     *         (lowest) to 1 (best), see QualityController
+     */
+    Map<String, Float> getQuality();
+
+    /**
+     * @return The number of times a canvas turned its quality down
+     */
+    long getQualityDowngrades();
+
+    /**
+     * @return The number of times a canvas turned its quality back up
+     */
+    long getQualityUpgrades();
+
+    /**
+     * Forgets every recorded timing and counter.
+     */
+    void reset();
+}
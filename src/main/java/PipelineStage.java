@@ -0,0 +1,37 @@
+/**
+ * The stages of the pipeline that are timed by PipelineMetrics.
+ */
+public enum PipelineStage {
+    // Time to read the bytes available on the serial, and reassemble them
+    // into messages (including their parsing).
+    SERIAL_READ("Serial read"),
+    // Time between a message being received from any source and the
+    // application thread starting to process it.
+    DISPATCH("Dispatch"),
+    // Time to parse a message into Samples.
+    PARSE("Parse"),
+    // Time to compute the arm positions of a new reading.
+    MODEL("Model"),
+    // Time to publish a new reading to the listeners, including their work.
+    EMIT("Emit"),
+    // Time for the canvas to draw a new arm position.
+    RENDER("Render"),
+    // Time of a whole canvas frame (ie. the PApplet draw()).
+    FRAME("Frame");
+
+    private String value;
+
+    /**
+     * @param value: The name presented to the user
+     */
+    private PipelineStage(String value) {
+        this.value = value;
+    }
+
+    /**
+     * @return The name presented to the user
+     */
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Base class of the sources that produce messages by polling them in a loop
+ * on a dedicated thread.
+ */
+public abstract class PollingSensorSource implements SensorSource {
+    // The thread running the polling loop
+    private Thread thread;
+
+    // The current polling loop, null when stopped
+    private Loop current;
+
+    // Held while a message is delivered, so stop() can wait for it
+    private final Object deliveryLock = new Object();
+
+    /**
+     * Returns the next message of the source, blocking until there is one.
+     * @return The samples of the next message, or null if the source has no
+     *         more messages
+     * @throws IOException If the source fails
+     * @throws InterruptedException If the source is stopped while waiting
+     *
+     * Must return soon once the thread is interrupted: stopping the source
+     * waits for it.
+     */
+    protected abstract List<Sample> poll() throws IOException, InterruptedException;
+
+    @Override
+    public synchronized void start(Listener listener) {
+        stopPolling();
+
+        Loop loop = new Loop(listener);
+        thread = new Thread(loop, getClass().getSimpleName());
+        thread.setDaemon(true);
+        current = loop;
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        stopPolling();
+    }
+
+    // Stops the polling loop, and waits for it to exit, so poll() is never
+    // called by two loops. Kept separate from stop() so subclasses can
+    // release their resources in stop() without this affecting start().
+    private void stopPolling() {
+        if (current == null) return;
+        synchronized (deliveryLock) {
+            // Any message being delivered is done, and no other will be
+            current.running = false;
+        }
+        current = null;
+        if (thread != Thread.currentThread()) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * A polling loop. Each loop has its own flag, so a loop being stopped
+     * never sees the flag of the loop replacing it.
+     */
+    private class Loop implements Runnable {
+        private final Listener listener;
+        private volatile boolean running = true;
+
+        Loop(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    List<Sample> samples = poll();
+                    synchronized (deliveryLock) {
+                        if (!running) return;
+
+                        if (samples == null) {
+                            listener.streamEnded();
+                            return;
+                        }
+                        listener.messageReceived(samples);
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (deliveryLock) {
+                    if (running) listener.streamFailed(e);
+                }
+            } catch (InterruptedException e) {
+                // Stopped while waiting, nothing to do
+            }
+        }
+    }
+}
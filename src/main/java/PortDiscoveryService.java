@@ -0,0 +1,184 @@
+import gnu.io.CommPort;
+import gnu.io.CommPortIdentifier;
+import gnu.io.PortInUseException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Finds the serial ports available to connect to the Arduino, off the
+ * application thread.
+ *
+ * Every port is probed (opened and closed) concurrently, each with its own
+ * timeout, so a slow port doesn't delay the others. The result is cached
+ * until the next discovery. In the background, the list of port names is watched so plugging
+ * or unplugging a device triggers a new discovery.
+ *
+ * Emits PORTS_CHANGED (on a background thread) when a discovery finds a
+ * different set of ports, or after every explicit refresh.
+ */
+public class PortDiscoveryService extends EventEmitter {
+    // Event constants
+    public static final String PORTS_CHANGED = "portsChanged";
+
+    // Time to wait for a port to open while probing it
+    private static final int PROBE_OPEN_WAIT = 50;
+    // Time after which a probe is abandoned, and the port considered unusable
+    private static final long PROBE_TIMEOUT_MILLIS = 1000;
+    // Time between two checks for plugged/unplugged devices
+    private static final long WATCH_PERIOD_MILLIS = 2000;
+
+    // Runs the probes, one port per thread
+    private ExecutorService probes = Executors.newCachedThreadPool(daemon("PortProbe"));
+    // Runs the discoveries and the hot-plug watch
+    private ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(daemon("PortDiscovery"));
+
+    private volatile List<String> cachedPorts = Collections.emptyList();
+    // The port names listed by the last discovery, to detect hot-plug.
+    // Only used on the scheduler thread.
+    private List<String> watchedNames = Collections.emptyList();
+
+    /**
+     * Runs a first discovery and starts watching for plugged/unplugged devices.
+     * Returns immediately.
+     */
+    public void start() {
+        refreshAsync();
+        scheduler.scheduleWithFixedDelay(this::watch,
+                WATCH_PERIOD_MILLIS, WATCH_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops every background thread.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+        probes.shutdownNow();
+    }
+
+    /**
+     * Discovers the ports again in the background, ignoring the cache.
+     * PORTS_CHANGED is emitted when done. Returns immediately.
+     */
+    public void refreshAsync() {
+        scheduler.execute(() -> {
+            update(discover());
+            emit(PORTS_CHANGED);
+        });
+    }
+
+    /**
+     * Returns the ports found by the last discovery. Never blocks.
+     * @return The names of the available serial ports
+     */
+    public List<String> getCachedPorts() {
+        return cachedPorts;
+    }
+
+    // Checks whether a port was plugged or unplugged since the last watch.
+    // Only lists the port names: ports are probed only if something changed,
+    // so a connected device is never disturbed.
+    private void watch() {
+        List<String> names = new ArrayList<>(serialPorts().keySet());
+        if (names.equals(watchedNames)) return;
+
+        List<String> previous = cachedPorts;
+        update(discover());
+        if (!cachedPorts.equals(previous)) emit(PORTS_CHANGED);
+    }
+
+    private void update(List<String> ports) {
+        cachedPorts = Collections.unmodifiableList(ports);
+    }
+
+    /**
+     * Probes every serial port concurrently.
+     * @return The names of the ports that could be opened, in the order the
+     *         system lists them
+     */
+    private List<String> discover() {
+        Map<String, CommPortIdentifier> ports = serialPorts();
+        // The next watch only probes again if these names change
+        watchedNames = new ArrayList<>(ports.keySet());
+
+        Map<String, Future<Boolean>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, CommPortIdentifier> port : ports.entrySet()) {
+            results.put(port.getKey(), probes.submit(() -> probe(port.getValue())));
+        }
+
+        List<String> available = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PROBE_TIMEOUT_MILLIS);
+        for (Map.Entry<String, Future<Boolean>> result : results.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (result.getValue().get(remaining, TimeUnit.NANOSECONDS)) {
+                    available.add(result.getKey());
+                }
+            } catch (TimeoutException e) {
+                result.getValue().cancel(true);
+                System.err.println("Timed out probing port " + result.getKey());
+            } catch (ExecutionException e) {
+                System.err.println("Failed to open port " + result.getKey());
+                e.getCause().printStackTrace();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Checks if a port can be used, by opening and closing it. Ports that we
+     * already own (ie. we are connected to them) are usable.
+     */
+    private static boolean probe(CommPortIdentifier port) {
+        if (port.isCurrentlyOwned()) {
+            String owner = port.getCurrentOwner();
+            return owner != null && owner.startsWith(Serial.OWNER_PREFIX);
+        }
+        try {
+            CommPort thePort = port.open("CommUtil", PROBE_OPEN_WAIT);
+            thePort.close();
+            return true;
+        } catch (PortInUseException e) {
+            return false; // Do nothing, the port is used
+        }
+    }
+
+    /**
+     * @return The serial ports listed by the system, by name
+     */
+    private static Map<String, CommPortIdentifier> serialPorts() {
+        Map<String, CommPortIdentifier> ports = new LinkedHashMap<>();
+        Enumeration<?> identifiers = CommPortIdentifier.getPortIdentifiers();
+        while (identifiers.hasMoreElements()) {
+            CommPortIdentifier port = (CommPortIdentifier) identifiers.nextElement();
+            if (port.getPortType() == CommPortIdentifier.PORT_SERIAL) {
+                ports.put(port.getName(), port);
+            }
+        }
+        return ports;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
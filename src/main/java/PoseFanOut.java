@@ -0,0 +1,48 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Publishes each modeled pose to all the canvases shown, through their
+ * dispatchers. The pose is computed once whatever the number of canvases:
+ * each canvas then draws it on its own animation thread.
+ */
+public class PoseFanOut {
+    // Replaced as a whole when the canvases shown change, never modified
+    private volatile List<CanvasDispatcher> dispatchers = Collections.emptyList();
+
+    /**
+     * @param dispatchers The dispatchers of the canvases now shown
+     */
+    public void setDispatchers(List<CanvasDispatcher> dispatchers) {
+        this.dispatchers = Collections.unmodifiableList(new ArrayList<>(dispatchers));
+    }
+
+    /**
+     * @return The dispatchers of the canvases shown
+     */
+    public List<CanvasDispatcher> getDispatchers() {
+        return dispatchers;
+    }
+
+    /**
+     * Sends a new pose to all the canvases. Each canvas retains the pose
+     * until it has drawn it.
+     * @param pose The pose just computed by the Modeler
+     */
+    public void publish(PoseSnapshot pose) {
+        List<CanvasDispatcher> dispatchers = this.dispatchers;
+        for (int i = 0; i < dispatchers.size(); i++) {
+            dispatchers.get(i).poseAdded(pose);
+        }
+    }
+
+    /**
+     * Restarts counting the samples of every canvas, so the next pose is drawn.
+     */
+    public void reset() {
+        for (CanvasDispatcher dispatcher : dispatchers) {
+            dispatcher.reset();
+        }
+    }
+}
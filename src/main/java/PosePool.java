@@ -0,0 +1,55 @@
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recycles the PoseSnapshots of a Modeler, so that streaming doesn't
+ * allocate once enough snapshots are in circulation.
+ *
+ * Snapshots are taken by the modeling thread and given back by whichever
+ * thread releases them last, eg. the animation thread of a canvas. When more
+ * snapshots are released than the pool can hold, the extra ones are left to
+ * the garbage collector.
+ */
+public class PosePool {
+    private final BlockingQueue<PoseSnapshot> free;
+    private final AtomicLong created = new AtomicLong();
+
+    /**
+     * @param capacity The maximum number of free snapshots kept
+     */
+    public PosePool(int capacity) {
+        this.free = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Takes a free snapshot, or creates one if none is free. The snapshot
+     * has a single reference, owned by the caller.
+     * @param sequence The number of the pose in the stream
+     * @return A snapshot to fill in
+     */
+    public PoseSnapshot acquire(long sequence) {
+        PoseSnapshot pose = free.poll();
+        if (pose == null) {
+            pose = new PoseSnapshot(this);
+            created.incrementAndGet();
+        }
+        pose.reset(sequence);
+        return pose;
+    }
+
+    /**
+     * @return The number of snapshots created so far. Stops growing once
+     *         streaming reaches a steady state.
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * Called by PoseSnapshot.release() once the snapshot isn't referenced.
+     */
+    void recycle(PoseSnapshot pose) {
+        free.offer(pose);
+    }
+}
@@ -0,0 +1,189 @@
+import javafx.geometry.Point3D;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The modeled position of both arms at one time slice: the elbow and wrist
+ * of each arm, relative to its shoulder, in the Arm coordinates.
+ *
+ * The joints are kept in a primitive array, and snapshots are recycled by
+ * their PosePool once nobody references them anymore. Snapshots are
+ * immutable by contract: they are only written by the Modeler before being
+ * published, so a single instance is shared by every canvas showing the
+ * pose, whatever the thread they draw it on.
+ *
+ * Whoever keeps a snapshot after handing it on (eg. a canvas queueing it
+ * until its next frame) must retain() it, and release() it once done.
+ */
+public final class PoseSnapshot {
+    // The joints, in order in the coordinates
+    public static final int LEFT_ELBOW = 0;
+    public static final int LEFT_WRIST = 1;
+    public static final int RIGHT_ELBOW = 2;
+    public static final int RIGHT_WRIST = 3;
+    static final int JOINT_COUNT = 4;
+
+    // Where the snapshot goes back once released, null if not pooled
+    private final PosePool pool;
+    // x, y, z of each joint
+    private final double[] joints = new double[JOINT_COUNT * 3];
+    private final AtomicInteger references = new AtomicInteger();
+    private long sequence;
+    private boolean hasLeftArm;
+    private boolean hasRightArm;
+
+    /**
+     * Creates a snapshot recycled by the given pool.
+     */
+    PoseSnapshot(PosePool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a snapshot that isn't pooled, from Arm objects.
+     * @param sequence The number of the pose in the stream
+     * @param arms The arms computed by the Modeler
+     */
+    public PoseSnapshot(long sequence, BothArms arms) {
+        this.pool = null;
+        reset(sequence);
+        setArms(arms.getLeftArm() != null, arms.getRightArm() != null);
+        if (hasLeftArm) store(arms.getLeftArm(), LEFT_ELBOW);
+        if (hasRightArm) store(arms.getRightArm(), RIGHT_ELBOW);
+    }
+
+    /**
+     * @return The number of the pose in the stream
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return true if the left arm was modeled for this pose
+     */
+    public boolean hasLeftArm() {
+        return hasLeftArm;
+    }
+
+    /**
+     * @return true if the right arm was modeled for this pose
+     */
+    public boolean hasRightArm() {
+        return hasRightArm;
+    }
+
+    /**
+     * @param joint One of LEFT_ELBOW, LEFT_WRIST, RIGHT_ELBOW, RIGHT_WRIST
+     * @return The distance of the joint in front of its shoulder
+     */
+    public double getX(int joint) {
+        return joints[joint * 3];
+    }
+
+    /**
+     * @param joint One of LEFT_ELBOW, LEFT_WRIST, RIGHT_ELBOW, RIGHT_WRIST
+     * @return The distance of the joint above its shoulder
+     */
+    public double getY(int joint) {
+        return joints[joint * 3 + 1];
+    }
+
+    /**
+     * @param joint One of LEFT_ELBOW, LEFT_WRIST, RIGHT_ELBOW, RIGHT_WRIST
+     * @return The distance of the joint to the right of its resting position
+     */
+    public double getZ(int joint) {
+        return joints[joint * 3 + 2];
+    }
+
+    /**
+     * Returns the left arm as an Arm object. Allocates: the canvases should
+     * read the joints instead.
+     * @return The left arm, or null if it wasn't modeled
+     */
+    public Arm getLeftArm() {
+        return hasLeftArm ? toArm(LEFT_ELBOW, true) : null;
+    }
+
+    /**
+     * Returns the right arm as an Arm object. Allocates: the canvases should
+     * read the joints instead.
+     * @return The right arm, or null if it wasn't modeled
+     */
+    public Arm getRightArm() {
+        return hasRightArm ? toArm(RIGHT_ELBOW, false) : null;
+    }
+
+    /**
+     * Adds a reference to the snapshot, so it isn't recycled until the
+     * matching release().
+     * @return This snapshot
+     */
+    public PoseSnapshot retain() {
+        if (references.getAndIncrement() <= 0) {
+            references.decrementAndGet();
+            throw new IllegalStateException("Pose " + sequence + " was already released");
+        }
+        return this;
+    }
+
+    /**
+     * Removes a reference to the snapshot. The last one returns it to its
+     * pool: it must not be read anymore.
+     */
+    public void release() {
+        int left = references.decrementAndGet();
+        if (left < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("Pose " + sequence + " was released too many times");
+        }
+        if (left == 0 && pool != null) {
+            pool.recycle(this);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    //      WRITTEN BY THE MODELER, BEFORE PUBLISHING
+    // -------------------------------------------------------------------------
+
+    /**
+     * Prepares the snapshot for a new pose, with a single reference.
+     */
+    void reset(long sequence) {
+        this.sequence = sequence;
+        this.hasLeftArm = false;
+        this.hasRightArm = false;
+        references.set(1);
+    }
+
+    /**
+     * @return The joints, to be filled in by Modeler.computeArmInto()
+     */
+    double[] joints() {
+        return joints;
+    }
+
+    void setArms(boolean hasLeftArm, boolean hasRightArm) {
+        this.hasLeftArm = hasLeftArm;
+        this.hasRightArm = hasRightArm;
+    }
+
+    private void store(Arm arm, int elbow) {
+        Point3D e = arm.elbowPos();
+        Point3D w = arm.wristPos();
+        int i = elbow * 3;
+        joints[i] = e.getX();
+        joints[i + 1] = e.getY();
+        joints[i + 2] = e.getZ();
+        joints[i + 3] = w.getX();
+        joints[i + 4] = w.getY();
+        joints[i + 5] = w.getZ();
+    }
+
+    private Arm toArm(int elbow, boolean left) {
+        int i = elbow * 3;
+        return new Arm(new Point3D(joints[i], joints[i + 1], joints[i + 2]),
+                new Point3D(joints[i + 3], joints[i + 4], joints[i + 5]), left);
+    }
+}
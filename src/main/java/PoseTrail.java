@@ -0,0 +1,66 @@
+/**
+ * The last poses of a skeleton, in a ring buffer of floats allocated once.
+ * When full, a new pose replaces the oldest one.
+ *
+ * Each pose is a fixed number of floats, eg. x, y, z for each of its
+ * points. The poses are copied as they are, so a missing point stored as
+ * NaN stays NaN in the trail.
+ */
+public class PoseTrail {
+    private final int capacity;
+    private final int poseSize;
+    private final float[] points;
+    // Where the next pose goes, and the number of poses stored
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * @param capacity The number of poses kept
+     * @param poseSize The number of floats of a pose
+     */
+    public PoseTrail(int capacity, int poseSize) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+        this.capacity = capacity;
+        this.poseSize = poseSize;
+        this.points = new float[capacity * poseSize];
+    }
+
+    /**
+     * Copies the pose at the end of the trail.
+     * @param pose The first poseSize floats are copied
+     */
+    public void add(float[] pose) {
+        System.arraycopy(pose, 0, points, head * poseSize, poseSize);
+        head = (head + 1) % capacity;
+        if (size < capacity) size++;
+    }
+
+    /**
+     * Forgets every pose.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return The number of poses stored, at most the capacity
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The poses, in the order of the ring, see offset()
+     */
+    public float[] getPoints() {
+        return points;
+    }
+
+    /**
+     * @param age 0 for the oldest pose, size() - 1 for the newest
+     * @return The index of the first float of the pose in getPoints()
+     */
+    public int offset(int age) {
+        return (head - size + capacity + age) % capacity * poseSize;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Projects 3D points of the arm model onto a 2D camera plane, then rebases
+ * them to the canvas coordinate system.
+ *
+ * The plane is given by two unit vectors u (the canvas x axis) and v (the
+ * canvas y axis), so projecting is a 2x3 matrix product. Projections are
+ * immutable and write into buffers owned by the caller: projecting a point
+ * allocates nothing.
+ */
+public final class Projection {
+
+    // The (z, y) plane, ie. the arm seen from the front
+    public static final Projection FRONT = new Projection(0, 0, 1, 0, 1, 0);
+    // The (x, y) plane, ie. the arm seen from the side
+    public static final Projection SIDE = new Projection(1, 0, 0, 0, 1, 0);
+
+    private final double ux, uy, uz;
+    private final double vx, vy, vz;
+
+    /**
+     * @param ux, uy, uz - The model direction drawn along the canvas x axis
+     * @param vx, vy, vz - The model direction drawn along the canvas y axis
+     */
+    public Projection(double ux, double uy, double uz, double vx, double vy, double vz) {
+        this.ux = ux;
+        this.uy = uy;
+        this.uz = uz;
+        this.vx = vx;
+        this.vy = vy;
+        this.vz = vz;
+    }
+
+    /**
+     * Creates the projection of a camera orbiting around the shoulder.
+     * @param yawDegrees - The rotation around the vertical axis: 0 is the
+     *                     front view, 90 the side view
+     * @param pitchDegrees - The rotation above (positive) or below the
+     *                       horizontal plane
+     * @return The projection onto the camera plane
+     */
+    public static Projection orbit(double yawDegrees, double pitchDegrees) {
+        double yaw = Math.toRadians(yawDegrees);
+        double pitch = Math.toRadians(pitchDegrees);
+        double sinYaw = Math.sin(yaw), cosYaw = Math.cos(yaw);
+        double sinPitch = Math.sin(pitch), cosPitch = Math.cos(pitch);
+        return new Projection(
+                sinYaw, 0, cosYaw,
+                sinPitch * cosYaw, cosPitch, -sinPitch * sinYaw);
+    }
+
+    /**
+     * Projects a point, and rebases it so the model origin is drawn at
+     * (rebaseX, rebaseY) with positive coordinates only.
+     * @param x, y, z - The point in the model coordinate system
+     * @param rebaseX, rebaseY - Where the model origin is drawn on the canvas
+     * @param out - Receives the canvas x and y coordinates
+     * @param offset - The index of x in out, y is written at offset + 1
+     */
+    public void project(double x, double y, double z, double rebaseX, double rebaseY,
+                        float[] out, int offset) {
+        double u = ux * x + uy * y + uz * z;
+        double v = vx * x + vy * y + vz * z;
+        out[offset] = (float) Math.abs(rebaseX - u);
+        out[offset + 1] = (float) Math.abs(rebaseY - v);
+    }
+}
@@ -0,0 +1,178 @@
+import processing.core.PApplet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a canvas at its target frame rate by turning its QualityKnobs down
+ * when its frames take too long, and back up when there is time to spare.
+ *
+ * The time from pre() to post() of each frame (the commands and draw()) is
+ * averaged with an exponentially weighted moving average. When the average
+ * goes above DEGRADE_ABOVE of the frame budget, the quality drops by a large
+ * step; when it stays below RECOVER_BELOW, it rises by a small one. Between
+ * the two the quality is left alone, and after a change the average is given
+ * SETTLE_FRAMES to follow, so that the quality doesn't flap.
+ *
+ * Controllers with knobs are listed in PipelineMetrics, which publishes
+ * their quality and counts their decisions.
+ */
+public class QualityController {
+    public static final int DEFAULT_TARGET_FPS = 60;
+    // The weight of the last frame in the average
+    private static final double ALPHA = 0.1;
+    // The fractions of the budget between which the quality is kept
+    static final double DEGRADE_ABOVE = 0.9;
+    static final double RECOVER_BELOW = 0.6;
+    static final float DEGRADE_STEP = 0.2f;
+    static final float RECOVER_STEP = 0.05f;
+    static final int SETTLE_FRAMES = 30;
+
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    private final String name;
+    private final List<QualityKnob> knobs = new ArrayList<>();
+    private PipelineMetrics metrics = PipelineMetrics.get();
+
+    private volatile boolean enabled = true;
+    private volatile long budget = 1000000000L / DEFAULT_TARGET_FPS;
+    private volatile float quality = 1;
+    private volatile double averageFrame = 0;
+    private int framesSinceChange = 0;
+    private long frameStart;
+
+    /**
+     * Attaches a new controller to the given canvas.
+     * @param canvas The canvas to time
+     */
+    public QualityController(PApplet canvas) {
+        this(canvas.getClass().getSimpleName() + "-" + ids.incrementAndGet());
+        canvas.registerMethod("pre", this);
+        canvas.registerMethod("post", this);
+        canvas.registerMethod("dispose", this);
+    }
+
+    /**
+     * A controller fed frame times by frame(), eg. in tests.
+     * @param name The name of the controller in the metrics
+     */
+    QualityController(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds a setting to turn down when the canvas is too slow.
+     * @param knob The setting, at its best value
+     * @return The knob
+     */
+    public synchronized QualityKnob addKnob(QualityKnob knob) {
+        knob.setQuality(quality);
+        knobs.add(knob);
+        if (knobs.size() == 1) metrics.addQualityController(name, this);
+        return knob;
+    }
+
+    /**
+     * @return The settings of the canvas
+     */
+    public synchronized List<QualityKnob> getKnobs() {
+        return Collections.unmodifiableList(new ArrayList<>(knobs));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param fps The frame rate to hold
+     */
+    public void setTargetFps(float fps) {
+        if (!(fps > 0)) {
+            throw new IllegalArgumentException("The target frame rate must be positive, not " + fps);
+        }
+        budget = (long) (1e9 / fps);
+    }
+
+    /**
+     * @param enabled false to put the knobs back to their best values and
+     *                leave them there, eg. when rendering offline, where
+     *                the frames must not depend on how fast they are drawn
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) setQuality(1);
+        averageFrame = 0;
+        framesSinceChange = 0;
+    }
+
+    /**
+     * @return From 0 when the knobs are at their lowest to 1 at their best
+     */
+    public float getQuality() {
+        return quality;
+    }
+
+    /**
+     * @return The average time spent on a frame, in milliseconds
+     */
+    public double getAverageFrameMillis() {
+        return averageFrame / 1e6;
+    }
+
+    /**
+     * @return The time a frame may take, in milliseconds
+     */
+    public double getBudgetMillis() {
+        return budget / 1e6;
+    }
+
+    /**
+     * Called by the canvas before its commands and draw().
+     */
+    public void pre() {
+        frameStart = System.nanoTime();
+    }
+
+    /**
+     * Called by the canvas once a frame is drawn.
+     */
+    public void post() {
+        frame(System.nanoTime() - frameStart);
+    }
+
+    /**
+     * Called by the canvas when it is destroyed.
+     */
+    public void dispose() {
+        metrics.removeQualityController(name);
+    }
+
+    /**
+     * Accounts for a frame, and moves the knobs if needed.
+     * @param nanos The time spent on the frame
+     */
+    synchronized void frame(long nanos) {
+        if (!enabled || knobs.isEmpty()) return;
+
+        averageFrame = averageFrame == 0 ? nanos : averageFrame + ALPHA * (nanos - averageFrame);
+        if (++framesSinceChange < SETTLE_FRAMES) return;
+
+        if (averageFrame > budget * DEGRADE_ABOVE && quality > 0) {
+            setQuality(Math.max(0, quality - DEGRADE_STEP));
+            metrics.qualityChanged(false);
+        } else if (averageFrame < budget * RECOVER_BELOW && quality < 1) {
+            setQuality(Math.min(1, quality + RECOVER_STEP));
+            metrics.qualityChanged(true);
+        }
+    }
+
+    private void setQuality(float quality) {
+        this.quality = quality;
+        for (QualityKnob knob : knobs) {
+            knob.setQuality(quality);
+        }
+        framesSinceChange = 0;
+    }
+}
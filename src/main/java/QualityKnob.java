@@ -0,0 +1,56 @@
+/**
+ * A setting of a canvas trading how good its frames look for how long they
+ * take, eg. the number of points of a line. The QualityController of the
+ * canvas moves it between its lowest and its best value, which is the
+ * setting the canvas was written with.
+ */
+public class QualityKnob {
+    private final String name;
+    private final int lowest;
+    private final int best;
+    private int value;
+
+    /**
+     * @param name What the setting is, shown in the metrics
+     * @param lowest The value at the lowest quality
+     * @param best The value at the best quality, used until the canvas is
+     *             too slow
+     */
+    public QualityKnob(String name, int lowest, int best) {
+        if (lowest > best) {
+            throw new IllegalArgumentException(name + ": the lowest value " + lowest
+                    + " is above the best one " + best);
+        }
+        this.name = name;
+        this.lowest = lowest;
+        this.best = best;
+        this.value = best;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The value to use for the next frame
+     */
+    public int get() {
+        return value;
+    }
+
+    public int getLowest() {
+        return lowest;
+    }
+
+    public int getBest() {
+        return best;
+    }
+
+    /**
+     * Moves the value to the given quality.
+     * @param quality From 0 for the lowest value to 1 for the best
+     */
+    void setQuality(float quality) {
+        value = lowest + Math.round((best - lowest) * Math.max(0, Math.min(1, quality)));
+    }
+}
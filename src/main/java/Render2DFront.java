@@ -1,4 +1,6 @@
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Set;
 
 import javafx.geometry.Point2D;
 
@@ -68,13 +70,12 @@ public class Render2DFront extends RenderCanvas {
 	/**
 	 * Draws the arm in the current position, as well as the previous 3 positions
 	 */
-	public void render(Point2D from, Point2D to) {
+	public void render(float fromX, float fromY, float toX, float toY) {
 
 		/* Draws the model without the arm that we are trying to render */
 		drawModel();
 
-		lines.add( new Line((float)from.getX(), (float)from.getY(), 
-				(float)to.getX(), (float)to.getY()));
+		lines.add( new Line(fromX, fromY, toX, toY));
 
 		/* Remove the last trace as a new render point is added */
 		if (lines.size() > 4) {
@@ -182,4 +183,20 @@ public class Render2DFront extends RenderCanvas {
 		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Registers this rendering style, see RenderCanvasProvider.
+	 */
+	public static class Provider implements RenderCanvasProvider {
+		public String getName() {
+			return "2D Front View";
+		}
+
+		public Set<CanvasCapability> getCapabilities() {
+			return EnumSet.of(CanvasCapability.DRAWS_MODEL, CanvasCapability.INDEPENDENT_FRAMES);
+		}
+
+		public RenderCanvas create(int canvasWidth, int canvasHeight) {
+			return new Render2DFront(canvasWidth, canvasHeight);
+		}
+	}
+}
@@ -1,5 +1,7 @@
 
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Set;
 import javafx.geometry.Point2D;
 
 /**
@@ -67,13 +69,12 @@ public class Render2DSide extends RenderCanvas {
 	/**
 	 * Draws the arm in the current position, as well as the previous 3 positions
 	 */
-	public void render(Point2D from, Point2D to) {
+	public void render(float fromX, float fromY, float toX, float toY) {
 
 		/* Draws the model without the arm that we are trying to render */
 		drawModel();
 
-		lines.add( new Line((float)from.getX(), (float)from.getY(), 
-				(float)to.getX(), (float)to.getY()));
+		lines.add( new Line(fromX, fromY, toX, toY));
 
 		/* Draw the past 3 lines to give the illusion of a 3 dimensional trace */
 		if (lines.size() > 4) {
@@ -172,4 +173,24 @@ public class Render2DSide extends RenderCanvas {
 		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Registers this rendering style, see RenderCanvasProvider.
+	 */
+	public static class Provider implements RenderCanvasProvider {
+		public String getName() {
+			return "2D Side View";
+		}
+
+		public Projection getProjection() {
+			return Projection.SIDE;
+		}
+
+		public Set<CanvasCapability> getCapabilities() {
+			return EnumSet.of(CanvasCapability.DRAWS_MODEL, CanvasCapability.INDEPENDENT_FRAMES);
+		}
+
+		public RenderCanvas create(int canvasWidth, int canvasHeight) {
+			return new Render2DSide(canvasWidth, canvasHeight);
+		}
+	}
+}
@@ -0,0 +1,267 @@
+/**
+ * Draws the whole upper body in perspective: the shoulder-elbow-wrist chain
+ * of both arms, seen by a camera orbiting around the body, with the 3D
+ * trails of the elbows and wrists.
+ *
+ * The perspective is computed in software by a PerspectiveCamera, and drawn
+ * with the default Java2D renderer, so no GPU is needed. The trails are kept
+ * in a PoseTrail, a ring buffer of primitives, and drawn as a single batch
+ * of lines per frame, with the stroke only changing between a few levels of
+ * transparency.
+ *
+ * Drag the mouse to move the camera, press 'o' to start or stop orbiting.
+ */
+public class Render3DSkeleton extends RenderCanvas {
+
+	// Half the distance between the shoulders, in millimeters
+	private static final float SHOULDER_HALF_WIDTH = 180;
+	private static final float TORSO_LENGTH = 550;
+	private static final float NECK_LENGTH = 120;
+	private static final float HEAD_RADIUS = 100;
+	// Where the camera looks at, and from how far
+	private static final float TARGET_Y = -250;
+	private static final float CAMERA_DISTANCE = 2200;
+	// Points closer to the camera are not drawn
+	private static final float NEAR = 50;
+	// Degrees per frame when orbiting
+	private static final float ORBIT_SPEED = 0.25f;
+
+	// Number of past poses in the trails
+	private static final int TRAIL_CAPACITY = 2048;
+	// The trails fade out in this many steps
+	private static final int ALPHA_LEVELS = 16;
+
+	// The points of a pose, in order in the buffers
+	private static final int LEFT_ELBOW = 0, LEFT_WRIST = 1, RIGHT_ELBOW = 2, RIGHT_WRIST = 3;
+	private static final int POINTS_PER_POSE = 4;
+	// The colour of the trail of each point
+	private static final int[][] TRAIL_COLOURS = {
+		{ 159, 209, 252 }, { 96, 160, 235 }, { 156, 96, 235 }, { 240, 31, 166 }
+	};
+
+	// The past poses, x, y, z for each point. A missing arm is stored as NaN.
+	private final PoseTrail trail = new PoseTrail(TRAIL_CAPACITY, POINTS_PER_POSE * 3);
+	// The trail projected onto the screen for the current frame, from the
+	// oldest pose, x, y for each point, NaN when not visible
+	private final float[] screen = new float[TRAIL_CAPACITY * POINTS_PER_POSE * 2];
+
+	// The current pose, and the fixed joints of the body
+	private final float[] current = new float[POINTS_PER_POSE * 3];
+	private final float[] body = {
+		-SHOULDER_HALF_WIDTH, 0, 0,     // left shoulder
+		SHOULDER_HALF_WIDTH, 0, 0,      // right shoulder
+		0, 0, 0,                        // neck
+		0, -TORSO_LENGTH, 0,            // hips
+		0, NECK_LENGTH + HEAD_RADIUS, 0 // head
+	};
+	private final float[] projectedCurrent = new float[POINTS_PER_POSE * 2];
+	private final float[] projectedBody = new float[body.length / 3 * 2];
+
+	// The camera, and its angles in radians
+	private final PerspectiveCamera camera = new PerspectiveCamera(TARGET_Y, CAMERA_DISTANCE, NEAR);
+	private float yaw = 0.5f, pitch = 0.25f;
+	private boolean orbiting = true;
+
+	/**
+	 * This class draws a 3 dimensional skeleton of the arms in perspective.
+	 * @param canvasWidth - Width of the canvas for rendering
+	 * @param canvasHeight - Height of the canvas for rendering
+	 */
+	public Render3DSkeleton(int canvasWidth, int canvasHeight) {
+		super(canvasWidth, canvasHeight);
+		setRestPose();
+	}
+
+	/**
+	 * Performs initialisation steps for the PApplet.
+	 */
+	public void setup() {
+		frameRate(60);
+		size(canvasWidth, canvasHeight);
+		background(0);
+	}
+
+	/**
+	 * Draws the trails, then the body in its current pose.
+	 */
+	public void draw() {
+		if (orbiting) yaw += radians(ORBIT_SPEED);
+		camera.update(yaw, pitch, width, height);
+
+		background(0);
+		drawTrails();
+		drawBody();
+	}
+
+	/**
+	 * Adds the pose to the trails, and makes it the current pose.
+	 */
+	@Override
+	protected void drawPose(PoseSnapshot pose, Projection projection) {
+		storeArm(pose, pose.hasLeftArm(), PoseSnapshot.LEFT_ELBOW, -SHOULDER_HALF_WIDTH, LEFT_ELBOW, current);
+		storeArm(pose, pose.hasRightArm(), PoseSnapshot.RIGHT_ELBOW, SHOULDER_HALF_WIDTH, RIGHT_ELBOW, current);
+
+		trail.add(current);
+	}
+
+	/**
+	 * The poses are drawn by drawPose(), with both arms.
+	 */
+	public void render(float fromX, float fromY, float toX, float toY) {}
+
+	@Override
+	public void clearCanvas() {
+		trail.clear();
+		setRestPose();
+	}
+
+	public void drawModelWithArm() {}
+	public void finalRender() {}
+
+	/**
+	 * Drag the mouse to move the camera around the body.
+	 */
+	public void mouseDragged() {
+		orbiting = false;
+		yaw += (mouseX - pmouseX) * 0.01f;
+		pitch = constrain(pitch + (mouseY - pmouseY) * 0.01f, -HALF_PI + 0.1f, HALF_PI - 0.1f);
+	}
+
+	/**
+	 * When the o key is pressed on the keyboard, the camera starts or stops
+	 * orbiting.
+	 */
+	public void keyPressed() {
+		if (key == 'o') {
+			orbiting = !orbiting;
+		}
+	}
+
+	// -------------------------------------------------------------------------
+	//      DRAWING
+	// -------------------------------------------------------------------------
+
+	private void drawTrails() {
+		int trailSize = trail.size();
+		if (trailSize < 2) return;
+
+		float[] points = trail.getPoints();
+		for (int i = 0; i < trailSize; i++) {
+			int pose = trail.offset(i);
+			for (int point = 0; point < POINTS_PER_POSE; point++) {
+				camera.project(points, pose + point * 3, screen, (i * POINTS_PER_POSE + point) * 2);
+			}
+		}
+
+		strokeWeight(1.5f);
+		beginShape(LINES);
+		for (int point = 0; point < POINTS_PER_POSE; point++) {
+			int[] colour = TRAIL_COLOURS[point];
+			int level = -1;
+			for (int i = 1; i < trailSize; i++) {
+				// Older segments are more transparent
+				int segmentLevel = i * ALPHA_LEVELS / trailSize;
+				if (segmentLevel != level) {
+					level = segmentLevel;
+					stroke(colour[0], colour[1], colour[2], 255f * (level + 1) / ALPHA_LEVELS);
+				}
+				int from = ((i - 1) * POINTS_PER_POSE + point) * 2;
+				int to = (i * POINTS_PER_POSE + point) * 2;
+				if (Float.isNaN(screen[from]) || Float.isNaN(screen[to])) continue;
+				vertex(screen[from], screen[from + 1]);
+				vertex(screen[to], screen[to + 1]);
+			}
+		}
+		endShape();
+	}
+
+	private void drawBody() {
+		for (int i = 0; i < body.length / 3; i++) {
+			camera.project(body, i * 3, projectedBody, i * 2);
+		}
+		for (int i = 0; i < POINTS_PER_POSE; i++) {
+			camera.project(current, i * 3, projectedCurrent, i * 2);
+		}
+
+		stroke(249, 226, 210);
+		strokeWeight(6);
+		noFill();
+		beginShape(LINES);
+		segment(projectedBody, 0, projectedBody, 1);     // shoulders
+		segment(projectedBody, 2, projectedBody, 3);     // spine
+		segment(projectedBody, 0, projectedCurrent, LEFT_ELBOW);
+		segment(projectedCurrent, LEFT_ELBOW, projectedCurrent, LEFT_WRIST);
+		segment(projectedBody, 1, projectedCurrent, RIGHT_ELBOW);
+		segment(projectedCurrent, RIGHT_ELBOW, projectedCurrent, RIGHT_WRIST);
+		endShape();
+
+		// The head, scaled by its distance to the camera
+		float headX = projectedBody[8], headY = projectedBody[9];
+		if (!Float.isNaN(headX)) {
+			float radius = HEAD_RADIUS * camera.getFocal() / camera.depth(body, 12);
+			strokeWeight(4);
+			ellipse(headX, headY, radius * 2, radius * 2);
+		}
+	}
+
+	private void segment(float[] from, int fromPoint, float[] to, int toPoint) {
+		float fromX = from[fromPoint * 2], toX = to[toPoint * 2];
+		if (Float.isNaN(fromX) || Float.isNaN(toX)) return;
+		vertex(fromX, from[fromPoint * 2 + 1]);
+		vertex(toX, to[toPoint * 2 + 1]);
+	}
+
+	// -------------------------------------------------------------------------
+	//      POSES
+	// -------------------------------------------------------------------------
+
+	/**
+	 * Stores the elbow and wrist of an arm in body coordinates. The arm is
+	 * given in the Modeler coordinates (x in front, y up, z to the right),
+	 * relative to its shoulder.
+	 */
+	private static void storeArm(PoseSnapshot pose, boolean hasArm, int poseElbow,
+								 float shoulderX, int elbowPoint, float[] out) {
+		int elbow = elbowPoint * 3;
+		if (!hasArm) {
+			out[elbow] = Float.NaN;
+			out[elbow + 3] = Float.NaN;
+			return;
+		}
+		storePoint(pose, poseElbow, shoulderX, out, elbow);
+		storePoint(pose, poseElbow + 1, shoulderX, out, elbow + 3);
+	}
+
+	private static void storePoint(PoseSnapshot pose, int joint, float shoulderX, float[] out, int offset) {
+		out[offset] = shoulderX + (float) pose.getZ(joint);
+		out[offset + 1] = (float) pose.getY(joint);
+		out[offset + 2] = (float) pose.getX(joint);
+	}
+
+	// Both arms hang beside the body
+	private void setRestPose() {
+		for (int arm = 0; arm < 2; arm++) {
+			float shoulderX = arm == 0 ? -SHOULDER_HALF_WIDTH : SHOULDER_HALF_WIDTH;
+			int elbow = (arm == 0 ? LEFT_ELBOW : RIGHT_ELBOW) * 3;
+			current[elbow] = shoulderX;
+			current[elbow + 1] = -ARM_LENGTH;
+			current[elbow + 2] = 0;
+			current[elbow + 3] = shoulderX;
+			current[elbow + 4] = -2 * ARM_LENGTH;
+			current[elbow + 5] = 0;
+		}
+	}
+
+	/**
+	 * Registers this rendering style, see RenderCanvasProvider.
+	 */
+	public static class Provider implements RenderCanvasProvider {
+		public String getName() {
+			return "3D Skeleton";
+		}
+
+		public RenderCanvas create(int canvasWidth, int canvasHeight) {
+			return new Render3DSkeleton(canvasWidth, canvasHeight);
+		}
+	}
+}
@@ -1,11 +1,17 @@
 import javafx.geometry.Point2D;
 import javafx.geometry.Point3D;
 import processing.core.PApplet;
+import processing.core.PGraphics;
+import processing.core.PGraphicsJava2D;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A wrapper for all Processing Applets
  */
-public abstract class RenderCanvas extends PApplet {
+public abstract class RenderCanvas extends PApplet implements CanvasRegistry.Lifecycle {
 
 	// The default length of the arm segment
 	protected static final int ARM_LENGTH = 300;
@@ -13,6 +19,41 @@ public abstract class RenderCanvas extends PApplet {
 	//The point at which canvases use as the origin to start rendering
 	protected Point2D rebasePoint;
 	protected boolean init;
+	// Shows the pipeline metrics on top of the canvas when 'm' is pressed
+	protected MetricsOverlay metricsOverlay;
+	// Turns the quality knobs of the canvas down when it is too slow
+	protected QualityController qualityController;
+
+	// The commands sent by the other threads, run by the animation thread
+	// before each frame. When the canvas can't keep up, new poses are
+	// dropped, leaving room for the other commands.
+	private static final int COMMAND_QUEUE_CAPACITY = 64;
+	private static final int RESERVED_FOR_CONTROL = 8;
+	static final int PENDING_POSES_CAPACITY = COMMAND_QUEUE_CAPACITY - RESERVED_FOR_CONTROL;
+	private final CanvasCommandQueue commands = new CanvasCommandQueue(COMMAND_QUEUE_CAPACITY);
+	private final CanvasCommandQueue.Handler commandHandler = this::runCommand;
+	private final AtomicLong droppedPoses = new AtomicLong();
+	// The plane the submitted poses are projected onto
+	private volatile Projection projection = Projection.FRONT;
+	// The shoulder and elbow on the canvas, reused by every drawArm()
+	private final float[] projected = new float[4];
+
+	// The snapshot to take once the current frame is drawn
+	private SnapshotRequest pendingSnapshot;
+
+	// The frames of a recording are captured at most this often, and the
+	// rate of the video. They are captured when the canvas draws, which may
+	// be less often: each frame is stamped with its time, and the video
+	// repeats frames to fill the gaps, see MjpegAviWriter.
+	public static final int RECORDING_FPS = 60;
+	// The number of frames waiting to be written before frames are dropped
+	private static final int RECORDING_BUFFERS = 6;
+	private volatile FrameRecorder recorder;
+	private long nextRecordedFrame;
+
+	// When set, the frame clock advances by this much every frame instead
+	// of following the wall clock, see setFrameInterval()
+	private long frameInterval = 0;
 
 	/**
 	 * This is the class the all the canvases extend - provides basic functions
@@ -24,89 +65,328 @@ public abstract class RenderCanvas extends PApplet {
 		this.canvasWidth = canvasWidth;
 		this.canvasHeight = canvasHeight;
 		this.rebasePoint = new Point2D(ARM_LENGTH, ARM_LENGTH);
+		this.metricsOverlay = new MetricsOverlay(this);
+		// Registered first, so that the commands run in pre() are timed
+		this.qualityController = new QualityController(this);
+		registerMethod("pre", this);
+		registerMethod("post", this);
 	}
 
 	/**
-	 * Clears the current state of the canvas, and set's background to black
+	 * Prepares the canvas to draw into an offscreen buffer, then draws the
+	 * first frame (which runs setup()). Used instead of init() when no window
+	 * or animation thread is wanted, eg. in benchmarks or headless runs.
+	 * Further frames are drawn by calling handleDraw().
 	 */
-	public void clearCanvas() {
-		this.init = true;
-		background(0);
+	public void initOffscreen() {
+		PGraphics graphics = new PGraphicsJava2D();
+		graphics.setParent(this);
+		graphics.setPrimary(false);
+		graphics.setSize(canvasWidth, canvasHeight);
+
+		width = canvasWidth;
+		height = canvasHeight;
+		g = graphics;
+		handleDraw();
+	}
+
+	/**
+	 * @return true once setup() has run, ie. the canvas can be drawn on
+	 */
+	public boolean isReady() {
+		return frameCount > 0;
+	}
+
+	/**
+	 * Declares a setting of the canvas that can be turned down to hold the
+	 * frame rate, see QualityController.
+	 * @param name - What the setting is, shown in the metrics
+	 * @param lowest - The value at the lowest quality
+	 * @param best - The value the canvas was designed with
+	 * @return The knob, to read the current value from
+	 */
+	protected QualityKnob addQualityKnob(String name, int lowest, int best) {
+		return qualityController.addKnob(new QualityKnob(name, lowest, best));
+	}
+
+	/**
+	 * @return The controller adapting the quality of the canvas
+	 */
+	public QualityController getQualityController() {
+		return qualityController;
+	}
+
+	/**
+	 * Makes the frame clock advance by a fixed time every frame, so that
+	 * effects depending on time (eg. fades) give the same images however
+	 * fast the frames are drawn. Used when rendering offline.
+	 * @param nanos - The time between two frames, or 0 to follow the wall
+	 *                clock
+	 */
+	public void setFrameInterval(long nanos) {
+		this.frameInterval = nanos;
+	}
+
+	/**
+	 * @return The time of the current frame in nanoseconds, from an
+	 *         arbitrary origin, see setFrameInterval()
+	 */
+	protected long frameTime() {
+		return frameInterval > 0 ? frameCount * frameInterval : System.nanoTime();
+	}
+
+	/**
+	 * @param projection - The plane the submitted poses are projected onto
+	 */
+	public void setProjection(Projection projection) {
+		this.projection = projection;
+	}
+
+	/**
+	 * Queues a pose to be drawn by the animation thread of the canvas, before
+	 * its next frame. Can be called from any thread. The pose is retained
+	 * until it is drawn or dropped.
+	 * @param pose - The new position of the arms
+	 */
+	public void submitPose(PoseSnapshot pose) {
+		pose.retain();
+		if (!commands.offer(CanvasCommandQueue.Command.POSE, pose, RESERVED_FOR_CONTROL)) {
+			pose.release();
+			droppedPoses.incrementAndGet();
+		}
 		redraw();
 	}
 
+	/**
+	 * Asks the animation thread to clear the canvas (clearCanvas()) before
+	 * its next frame. Can be called from any thread.
+	 */
+	public void requestClear() {
+		request(CanvasCommandQueue.Command.CLEAR, null);
+	}
 
 	/**
-	 * This is the method that encapsulates the arm rendering process. 
-	 * @param arm - The arm object that is passed in to process for obtaining
-	 * 			    coordinates that can be used for rendering
-	 * @param side - front or side view, which uses the (x,z) plane or the (z,y)
+	 * Asks the animation thread to draw the human body (drawModelWithArm())
+	 * before its next frame. Can be called from any thread.
 	 */
-	public void drawArm(Arm arm, String side) {
-		Point3D shoulder = new Point3D(0, 0, 0);
-		Point3D elbow = arm.elbowPos();
+	public void requestModel() {
+		request(CanvasCommandQueue.Command.DRAW_MODEL, null);
+	}
 
-		// Project into the 2D plane for the particular side
-		Point2D shoulder2D = projectTo2DPlane(shoulder, side);
-		Point2D elbow2D = projectTo2DPlane(elbow, side);
+	/**
+	 * Asks the animation thread to produce the final render (finalRender())
+	 * before its next frame. Can be called from any thread.
+	 */
+	public void requestFinalRender() {
+		request(CanvasCommandQueue.Command.FINAL_RENDER, null);
+	}
 
-		// Rebase to the canvas coordinate system (+ve reals only)
-		shoulder2D = rebase(shoulder2D, rebasePoint);
-		elbow2D = rebase(elbow2D, rebasePoint);
+	private void request(CanvasCommandQueue.Command command, Object argument) {
+		if (!commands.offer(command, argument)) {
+			System.err.println("Too many commands for the canvas, dropped " + command);
+		}
+		redraw();
+	}
 
-		// Call the render function.
-		render(shoulder2D, elbow2D);
+	/**
+	 * @return The number of submitted poses dropped because the canvas was
+	 *         too slow to draw them
+	 */
+	public long getDroppedPoses() {
+		return droppedPoses.get();
+	}
 
+	/**
+	 * Called by Processing on the animation thread, before draw(): runs the
+	 * commands sent since the last frame, in order.
+	 */
+	public void pre() {
+		commands.drain(commandHandler);
+	}
+
+	private void runCommand(CanvasCommandQueue.Command command, Object argument) {
+		switch (command) {
+			case POSE:
+				PoseSnapshot pose = (PoseSnapshot) argument;
+				long start = System.nanoTime();
+				try {
+					drawPose(pose, projection);
+				} finally {
+					pose.release();
+				}
+				PipelineMetrics.get().record(PipelineStage.RENDER, start);
+				break;
+			case CLEAR:
+				clearCanvas();
+				break;
+			case DRAW_MODEL:
+				drawModelWithArm();
+				break;
+			case FINAL_RENDER:
+				finalRender();
+				break;
+			case SAVE:
+				pendingSnapshot = (SnapshotRequest) argument;
+				break;
+		}
 	}
 
 	/**
-	 * @param point - The point to rebase
-	 * @param rebasePoint - The point in the canvas coordinate system that 
-	 * 				        serves as a reference point
-	 * @return Point2D point which is rebased to the canvas coordinate system
+	 * Clears the current state of the canvas, and set's background to black.
+	 * Runs on the animation thread, see requestClear().
 	 */
-	private Point2D rebase(Point2D point, Point2D rebasePoint) {
-		double x = Math.abs(rebasePoint.getX() - point.getX());
-		double y = Math.abs(rebasePoint.getY() - point.getY());
+	public void clearCanvas() {
+		this.init = true;
+		background(0);
+		redraw();
+	}
 
-		return new Point2D(x, y);
+
+	/**
+	 * Draws a pose submitted to the canvas. By default only the right arm is
+	 * drawn, from its elbow. Canvases drawing the whole body override it.
+	 * The pose must not be kept after returning, unless retained.
+	 * @param pose - The position of both arms
+	 * @param projection - The plane the canvas was asked to project onto
+	 */
+	protected void drawPose(PoseSnapshot pose, Projection projection) {
+		if (!pose.hasRightArm()) return;
+		int elbow = PoseSnapshot.RIGHT_ELBOW;
+		drawElbow(pose.getX(elbow), pose.getY(elbow), pose.getZ(elbow), projection);
 	}
 
 	/**
-	 * 
-	 * @param coord - The 3d cordinate to project onto the 2 plane
-	 * @param side - The 2 dimensional plane we wish to project to (front [z,y]) or
-	 * 		         (side [x,y])
-	 * @return A 2-dimensional point based on the string side.
+	 * This is the method that encapsulates the arm rendering process. 
+	 * It allocates nothing: the points are projected into a buffer owned by
+	 * the canvas, and rendered as primitives.
+	 * @param arm - The arm object that is passed in to process for obtaining
+	 * 			    coordinates that can be used for rendering
+	 * @param projection - The plane to project the arm onto, eg. front view,
+	 * 					   which uses the (z,y) plane, or side view the (x,y)
 	 */
-	private Point2D projectTo2DPlane(Point3D coord, String side) {
-		if (side.equals("side"))
-			return new Point2D(coord.getX(), coord.getY());
-		return new Point2D(coord.getZ(), coord.getY());
+	public void drawArm(Arm arm, Projection projection) {
+		Point3D elbow = arm.elbowPos();
+		drawElbow(elbow.getX(), elbow.getY(), elbow.getZ(), projection);
+	}
+
+	/**
+	 * Projects the upper arm, from the shoulder to the elbow, and renders it.
+	 */
+	private void drawElbow(double elbowX, double elbowY, double elbowZ, Projection projection) {
+		double rebaseX = rebasePoint.getX();
+		double rebaseY = rebasePoint.getY();
+
+		// Project into the 2D plane, and rebase to the canvas coordinate
+		// system (+ve reals only). The shoulder is the origin.
+		projection.project(0, 0, 0, rebaseX, rebaseY, projected, 0);
+		projection.project(elbowX, elbowY, elbowZ, rebaseX, rebaseY, projected, 2);
+
+		// Call the render function.
+		render(projected[0], projected[1], projected[2], projected[3]);
 	}
 
 	/**
 	 * Draws the model with the arm - used for Render2DFront and Render2DSide 
-	 * in the canvas initialisation process.
+	 * in the canvas initialisation process. Runs on the animation thread,
+	 * see requestModel().
 	 */
 	public abstract void drawModelWithArm();
 
 	/**
 	 * Render function for artistic representation of the arm
-	 * @param from - The point that is used to render from 
-	 * @param to - The point that is used to render to 
+	 * @param fromX, fromY - The point that is used to render from 
+	 * @param toX, toY - The point that is used to render to 
 	 */
-	public abstract void render(Point2D from, Point2D to);
+	public abstract void render(float fromX, float fromY, float toX, float toY);
 	 
 	/**
-	 * Produces a final render if required - used for Digital3DSketch
+	 * Produces a final render if required - used for Digital3DSketch. Runs
+	 * on the animation thread, see requestFinalRender().
 	 */
     public abstract void finalRender();
 	
     /**
-     * Allows the users to save the current state of the canvas.
+     * Allows the users to save the current state of the canvas, as a JPG.
      */
 	public void save(String s) {
-		saveFrame(s + "-###.jpg");
+		save(s, SnapshotEncoder.Format.JPEG);
+	}
+
+	/**
+	 * Saves the canvas as it is after its next frame, to s-NNNN.ext where
+	 * NNNN is the frame number. The pixels are copied on the animation
+	 * thread, and encoded in the background by the SnapshotEncoder.
+	 * @param s - The path of the file, without frame number and extension
+	 * @param format - The image format
+	 */
+	public void save(String s, SnapshotEncoder.Format format) {
+		request(CanvasCommandQueue.Command.SAVE, new SnapshotRequest(s, format));
+	}
+
+	/**
+	 * Starts capturing the frames drawn by the canvas, up to RECORDING_FPS
+	 * times a second, each with the time it was drawn. The frames are
+	 * written to the sink in the background: when the sink can't keep up,
+	 * frames are dropped rather than slowing down the canvas.
+	 * @param sink - Where to write the frames, eg. a MjpegAviWriter
+	 */
+	public void startRecording(FrameSink sink) {
+		nextRecordedFrame = System.nanoTime();
+		recorder = new FrameRecorder(sink, canvasWidth, canvasHeight, RECORDING_BUFFERS);
+	}
+
+	/**
+	 * Stops capturing frames, and waits for the captured ones to be written.
+	 * @return The recorder, to read how many frames were recorded and
+	 *         dropped, or null if the canvas wasn't recording
+	 * @throws IOException If the recording couldn't be written
+	 */
+	public FrameRecorder stopRecording() throws IOException {
+		FrameRecorder stopped = recorder;
+		recorder = null;
+		if (stopped != null) stopped.stop();
+		return stopped;
+	}
+
+	/**
+	 * Called by Processing on the animation thread, once a frame is drawn:
+	 * captures the frame if recording, and takes the snapshot requested,
+	 * if any.
+	 */
+	public void post() {
+		FrameRecorder recorder = this.recorder;
+		SnapshotRequest snapshot = pendingSnapshot;
+		pendingSnapshot = null;
+		long now = System.nanoTime();
+		boolean record = recorder != null && now >= nextRecordedFrame;
+		if (!record && snapshot == null) return;
+
+		g.loadPixels();
+		if (record) {
+			nextRecordedFrame = Math.max(nextRecordedFrame + 1000000000L / RECORDING_FPS, now);
+			recorder.capture(g.pixels, now);
+		}
+		if (snapshot != null) {
+			SnapshotEncoder encoder = SnapshotEncoder.get();
+			int[] pixels = encoder.acquireBuffer(g.width * g.height);
+			System.arraycopy(g.pixels, 0, pixels, 0, pixels.length);
+			File file = new File(snapshot.path + "-" + nf(frameCount, 4) + "." + snapshot.format.getExtension());
+			if (!encoder.submit(pixels, g.width, g.height, file, snapshot.format)) {
+				System.err.println("Too many snapshots being saved, dropped " + file);
+			}
+		}
+	}
+
+	/**
+	 * A snapshot asked for by save(), taken after the next frame.
+	 */
+	private static class SnapshotRequest {
+		final String path;
+		final SnapshotEncoder.Format format;
+
+		SnapshotRequest(String path, SnapshotEncoder.Format format) {
+			this.path = path;
+			this.format = format;
+		}
 	}
 }
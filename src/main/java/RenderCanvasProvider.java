@@ -0,0 +1,49 @@
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Describes a rendering style, and creates its canvas.
+ *
+ * Providers are discovered with ServiceLoader: to add a rendering style,
+ * implement this interface (by convention in a nested Provider class of the
+ * canvas) and list it in META-INF/services/RenderCanvasProvider.
+ */
+public interface RenderCanvasProvider extends CanvasRegistry.Factory<RenderCanvas> {
+
+    /**
+     * @return The name presented to the user, unique among the providers
+     */
+    String getName();
+
+    /**
+     * The canvas draws one sample every sampleStride samples, eg. to slow
+     * down the sketches that accumulate drawings.
+     * @return The number of samples per drawn sample, at least 1
+     */
+    default int getSampleStride() {
+        return 1;
+    }
+
+    /**
+     * @return The plane the arm is projected onto before being drawn
+     */
+    default Projection getProjection() {
+        return Projection.FRONT;
+    }
+
+    /**
+     * @return The optional features implemented by the canvas
+     */
+    default Set<CanvasCapability> getCapabilities() {
+        return EnumSet.noneOf(CanvasCapability.class);
+    }
+
+    /**
+     * Instantiates the canvas implementing this rendering style. The canvas
+     * still needs to be initialised, with init() or initOffscreen().
+     * @param canvasWidth: The width of the canvas
+     * @param canvasHeight: The height of the canvas
+     * @return The new canvas
+     */
+    RenderCanvas create(int canvasWidth, int canvasHeight);
+}
@@ -0,0 +1,54 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The rendering styles found on the class path, by name, in the order they
+ * are listed in the service files.
+ */
+public final class RenderCanvasProviders {
+
+    // The name of the 'no canvas' option presented to the user
+    public static final String NONE = "None";
+
+    private static Map<String, RenderCanvasProvider> providers;
+
+    private RenderCanvasProviders() {}
+
+    /**
+     * @return All the rendering styles
+     */
+    public static synchronized Collection<RenderCanvasProvider> all() {
+        if (providers == null) {
+            Map<String, RenderCanvasProvider> loaded = new LinkedHashMap<>();
+            for (RenderCanvasProvider provider : ServiceLoader.load(RenderCanvasProvider.class)) {
+                if (loaded.putIfAbsent(provider.getName(), provider) != null) {
+                    System.err.println("Ignoring duplicate rendering style " + provider.getName());
+                }
+            }
+            providers = Collections.unmodifiableMap(loaded);
+        }
+        return providers.values();
+    }
+
+    /**
+     * Finds a rendering style by name. Case and spaces are ignored, so that
+     * "digital3dsketch" finds "Digital 3D Sketch".
+     * @param name: The name of the rendering style
+     * @return The provider, or null if none has this name (eg. for NONE)
+     */
+    public static RenderCanvasProvider get(String name) {
+        if (name == null) return null;
+        String key = normalise(name);
+        for (RenderCanvasProvider provider : all()) {
+            if (normalise(provider.getName()).equals(key)) return provider;
+        }
+        return null;
+    }
+
+    private static String normalise(String name) {
+        return name.replace(" ", "").toLowerCase();
+    }
+}
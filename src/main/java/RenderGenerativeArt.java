@@ -3,7 +3,6 @@ import processing.core.PVector;
 
 import java.util.*;
 
-import javafx.geometry.Point2D;
 
 /**
  * @author Generative brushes applet by Jason Barles - modified by Lisa
@@ -23,6 +22,9 @@ public class RenderGenerativeArt extends RenderCanvas{
 	float prevX, prevY;   // the previous x,y coordinates
 	int count;
 	boolean smoothFade, render = false;
+	FadeCompositor fade = new FadeCompositor();
+	// The number of circles in a spray of pattern1
+	QualityKnob sprayCircles = addQualityKnob("spray circles", 4, 18);
 
 	/**
 	 * This function performs initialisation steps. It is the first thing that
@@ -43,7 +45,7 @@ public class RenderGenerativeArt extends RenderCanvas{
 		if (render) {
 			switch(currentTool) {     
 			case 1:     
-				pattern1(xCo, yCo, 5, 18, color(204, 102, 0), color(0, 102, 153));
+				pattern1(xCo, yCo, 5, sprayCircles.get(), color(204, 102, 0), color(0, 102, 153));
 				break;
 			case 2:     
 				pattern2();
@@ -61,11 +63,12 @@ public class RenderGenerativeArt extends RenderCanvas{
 
 		}
 
-		/* If smooth fade is selected, put a black rectangle with low opacity
-		 * onto the canvas. */
-		if (smoothFade) {
-			fill(0,12);
-			rect(0,0,canvasWidth,canvasHeight);
+		/* If smooth fade is selected, fade the whole canvas towards black,
+		 * at the same pace whatever the frame rate. */
+		if (smoothFade && fade.update(frameTime())) {
+			loadPixels();
+			fade.apply(pixels, width, height);
+			updatePixels();
 		}
 	}
 
@@ -73,12 +76,12 @@ public class RenderGenerativeArt extends RenderCanvas{
 	 * Main render function for this canvas. The brush is continuously changed 
 	 * between the 4 different ones available every 20 frames.
 	 */
-	public void render(Point2D from, Point2D to) {
+	public void render(float fromX, float fromY, float toX, float toY) {
 		render = true;
 		prevX = xCo;
 		prevY = yCo;
-		xCo = abs(map((float) to.getX(), 0, 600, 0, canvasWidth));
-		yCo = abs(map((float) to.getY(), 250, 600, 0, canvasHeight) *  0.7f) ;
+		xCo = abs(map(toX, 0, 600, 0, canvasWidth));
+		yCo = abs(map(toY, 250, 600, 0, canvasHeight) *  0.7f) ;
 
 		count ++;
 
@@ -193,6 +196,7 @@ public class RenderGenerativeArt extends RenderCanvas{
 	public void keyPressed(){
 		if (key == 'f') {
 			smoothFade = !smoothFade;
+			fade.reset();
 		}
 
 		if (key == 's') {
@@ -227,6 +231,16 @@ public class RenderGenerativeArt extends RenderCanvas{
 	public void finalRender() {	}
 	public void drawModelWithArm() {}
 
+	/**
+	 * Registers this rendering style, see RenderCanvasProvider.
+	 */
+	public static class Provider implements RenderCanvasProvider {
+		public String getName() {
+			return "Render Generative Art";
+		}
 
-
+		public RenderCanvas create(int canvasWidth, int canvasHeight) {
+			return new RenderGenerativeArt(canvasWidth, canvasHeight);
+		}
+	}
 }
@@ -4,10 +4,8 @@ import javax.swing.*;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.List;
-import java.util.Scanner;
-import java.util.function.Consumer;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -21,6 +19,9 @@ public class Renderer {
 
     private Modeler model;
 
+    // Smooths the parsed samples before they reach the model
+    private SamplePipeline pipeline;
+
     private BodyTrackerContainer view;
 
     // The name of the serial port.
@@ -29,16 +30,20 @@ public class Renderer {
     // Higher level serial wrapper by Kerrin
     private Serial serial;
 
-    // The thread listening to inbound serial messages
-    private Thread serialListener;
-    
-    // Use to slow down rendering for 3D digital sketch
-    private int count = 0;
+    // The UDP port the suit sends to over Wi-Fi, or -1 when it is on serial
+    private int udpPort = -1;
+
+    // The source of the samples currently processed (file or serial)
+    private SensorSource source;
+
+    // Finds the serial ports in the background
+    private PortDiscoveryService portDiscovery = new PortDiscoveryService();
 
     // Use to decide which button should be enabled, depending on the state of the application
     private boolean serialConnected = false;
     private boolean modelIsProcessingReadings = false;
     private boolean isStreaming = false;
+    private boolean isRecording = false;
 
     // The destination path to the folder where JPG will be saved
     private String destinationPathSavedFile = null;
@@ -50,6 +55,7 @@ public class Renderer {
      */
     public Renderer(Modeler modeler, BodyTrackerContainer container) {
         this.model = modeler;
+        this.pipeline = new SamplePipeline(modeler);
         this.view = container;
 
         // Add model listener
@@ -65,8 +71,12 @@ public class Renderer {
         view.getControlsView().addListener("stopStreaming", event -> stopStreamingButtonClicked());
         view.getControlsView().addListener("clearCanvases", event -> clearCanvases());
         view.getControlsView().addListener("saveCanvases", event -> saveCanvases());
+        view.getControlsView().addListener("record", event -> recordButtonClicked());
 
-        updateUIDisplaySerialPortsAvailable();
+        // Display the ports as soon as they are found, and when a device is plugged
+        portDiscovery.addListener(PortDiscoveryService.PORTS_CHANGED,
+                p -> SwingUtilities.invokeLater(this::updateUIDisplaySerialPortsAvailable));
+        portDiscovery.start();
     }
 
     // -------------------------------------------------------------------------
@@ -84,6 +94,17 @@ public class Renderer {
         // Close existing serial before establishing new connection.
         closeConnection();
 
+        // Nothing to open over Wi-Fi: the port is bound when streaming
+        if (UdpSensorSource.isUdp(this.portName)) {
+            try {
+                udpPort = UdpSensorSource.parsePort(this.portName);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        udpPort = -1;
+
         this.serial = new Serial();
         this.serial.connect(this.portName, DATA_RATE);
 
@@ -97,10 +118,14 @@ public class Renderer {
      * clean-up necessary state.
      */
     public void unmount() {
-        // Kill the Applets
+        // Finish writing the recordings, then kill the Applets
+        if (isRecording) view.stopRecording();
         view.destroyCanvases();
-        // Close existing serial and stop the Serial Listener
-        stopSerialListener();
+        portDiscovery.shutdown();
+        // Finish writing the snapshots being saved
+        SnapshotEncoder.get().shutdown(5000);
+        // Close existing serial and stop the sensor source
+        stopSource();
         closeConnection();
     }
 
@@ -108,16 +133,32 @@ public class Renderer {
      * Closes the serial connection.
      */
     private void closeConnection() {
+        udpPort = -1;
         if (serial == null) return;
         serial.close();
     }
 
     /**
-     * Stops the thread that is listening for inbound serial communication.
+     * Stops the source currently producing samples (file or serial).
+     */
+    private void stopSource() {
+        if (source == null) return;
+        source.stop();
+        source = null;
+    }
+
+    /**
+     * Starts processing the samples of the given source. Samples are handed
+     * to the pipeline on the application thread.
+     * @param newSource The source to process
+     * @param flowController Adjusts the rate of the source to the messages
+     *                       waiting to be processed, or null
      */
-    private void stopSerialListener() {
-        if (serialListener == null) return;
-        serialListener.interrupt();
+    private void startSource(SensorSource newSource, FlowController flowController) {
+        stopSource();
+        pipeline.reset();
+        source = newSource;
+        source.start(new SourceListener(flowController));
     }
 
     /**
@@ -146,44 +187,13 @@ public class Renderer {
         return selectedFile;
     }
 
-    /**
-     * Fetches a list of all available serial ports.
-     * Once the Arduino is connected, the port it is connected to will appear in
-     * this list.
-     *
-     * This function is called when application is launched, and when user press
-     * the 'Refresh' button.
-     *
-     * @return A list of available serial ports.
-     */
-    private static ArrayList<CommPortIdentifier> getAvailableSerialPorts() {
-        ArrayList<CommPortIdentifier> availablePorts = new ArrayList<>();
-        Enumeration ports = CommPortIdentifier.getPortIdentifiers();
-        while (ports.hasMoreElements()) {
-            CommPortIdentifier port = (CommPortIdentifier) ports.nextElement();
-            if (port.getPortType() == CommPortIdentifier.PORT_SERIAL) {
-                try {
-                    CommPort thePort = port.open("CommUtil", 50);
-                    thePort.close();
-                    availablePorts.add(port);
-                } catch (PortInUseException e) {
-                    // Do nothing, the port is used
-                } catch (Exception e) {
-                    System.err.println("Failed to open port " +  port.getName());
-                    e.printStackTrace();
-                }
-            }
-        }
-        return availablePorts;
-    }
-
     /**
      * Method called every time a button is clicked.
      *
-     * Clear the error logs and reset the count value to 0.
+     * Clear the error logs and restart counting the samples of the canvas.
      */
     private void resetAfterButtonClicked() {
-        count = 0;
+        view.getPoseFanOut().reset();
         view.displayError("");
     }
 
@@ -192,16 +202,14 @@ public class Renderer {
     // -------------------------------------------------------------------------
 
     /**
-     * Display the serial ports available in the GUI combo box
+     * Display the serial ports last found in the GUI combo box, followed by
+     * the UDP port suits send to over Wi-Fi.
+     * Never waits for the ports to be discovered.
      */
     private void updateUIDisplaySerialPortsAvailable() {
-        ArrayList<String> portNames = new ArrayList<>();
-
-        for (CommPortIdentifier port : getAvailableSerialPorts()) {
-            portNames.add(port.getName());
-        }
-
-        view.fillAvailablePortsComboBox(portNames);
+        ArrayList<String> ports = new ArrayList<>(portDiscovery.getCachedPorts());
+        ports.add(UdpSensorSource.SCHEME + UdpSensorSource.DEFAULT_PORT);
+        view.fillAvailablePortsComboBox(ports);
     }
 
     /**
@@ -220,28 +228,12 @@ public class Renderer {
     // -------------------------------------------------------------------------
 
     /**
-     * This method is called when a new sample is added. It invokes drawArm()
-     * which renders using the current position of the arm.
+     * This method is called when a new sample is added. It publishes the
+     * current position of the arms to the canvases shown, which draw it on
+     * their own thread.
      */
     private void modelAddedNewSample() {
-    	Arm rightArm = model.getNextSample().getRightArm();
-
-    	if (view.getCanvas() != null) {
-    		/* side 2d view canvas */
-    		if (view.getCanvas() instanceof Render2DSide) {
-    			view.getCanvas().drawArm(rightArm, "side");
-    			/* digital 3d canvas - want to slow down sampling, so only
-    			 * using every 5 samples */
-    		} else if (view.getCanvas() instanceof Digital3DSketch) {
-    			if (count % 5 == 0) {
-    				view.getCanvas().drawArm(rightArm, "front");
-    			}
-    			count++;
-    		}	else { // regular canvas
-    			view.getCanvas().drawArm(rightArm, "front");
-    		}
-    	}
-
+    	view.getPoseFanOut().publish(model.getNextSample());
     }
 
     // -------------------------------------------------------------------------
@@ -250,16 +242,12 @@ public class Renderer {
 
     /**
      * Method to handle when the refresh (available ports) button is clicked.
-     * The method that retrieves the available ports is called in a new Thread.
-     *
-     * Display the ports currently available.
+     * The ports are discovered again in the background, and displayed once
+     * the discovery is done.
      */
     private void refreshButtonClicked() {
         resetAfterButtonClicked();
-
-        (new Thread(() -> {
-            updateUIDisplaySerialPortsAvailable();
-        })).start();
+        portDiscovery.refreshAsync();
     }
 
 
@@ -304,7 +292,7 @@ public class Renderer {
     private void closeConnectionButtonClicked() {
         resetAfterButtonClicked();
 
-        stopSerialListener();
+        stopSource();
         closeConnection();
 
         // Update the application and the buttons state
@@ -324,7 +312,7 @@ public class Renderer {
 
         resetAfterButtonClicked();
 
-        if (view.getSelectedCanvas().equals("None")) {
+        if (view.getSelectedCanvas().equals(RenderCanvasProviders.NONE)) {
             view.displayError("You must select a rendering style");
             return;
         }
@@ -336,17 +324,8 @@ public class Renderer {
         modelIsProcessingReadings = true;
         updateUIButtons();
 
-        // Spawn a new thread for reading from the file
-        (new FileLoader((line) -> {
-            List<Sample> samples = Sample.parseMessage(line);
-
-            if (!samples.isEmpty()) {
-                //only process the samples from the bNo
-                if (samples.get(0).getID() == 2) {
-                    model.newSensorReading(samples.get(0));
-                }
-            }
-        }, selectedFile)).start();
+        // Replay the file at the rate of the Arduino
+        startSource(new FileSensorSource(selectedFile, 100), null);
     }
 
     /**
@@ -359,30 +338,34 @@ public class Renderer {
 
         resetAfterButtonClicked();
 
-        if (view.getSelectedCanvas().equals("None")) {
+        if (view.getSelectedCanvas().equals(RenderCanvasProviders.NONE)) {
             view.displayError("You must select a rendering style");
             return;
         }
 
-        // stop any preexisting listener
-        stopSerialListener();
-
         // Update the application and the buttons state
         modelIsProcessingReadings = true;
         isStreaming = true;
         updateUIButtons();
 
+        // Suits on Wi-Fi send at their own rate
+        if (udpPort >= 0) {
+            startSource(new UdpSensorSource(udpPort), null);
+            return;
+        }
 
-        serialListener = new SerialListener((message) -> {
-        	List<Sample> samples = Sample.parseMessage(message);
-
-        	if (!samples.isEmpty()) {
-        		if (samples.get(0).getID() == 2) {
-        			model.newSensorReading(samples.get(0));
-        		}
-        	}
-        });
-        serialListener.start();
+        // The Arduino may still be at the rate of the last stream: it starts
+        // again from its default, and follows the application from there
+        Serial streamed = serial;
+        try {
+            streamed.sendMessage(DeviceCommands.rate(FlowController.DEFAULT_RATE));
+        } catch (IOException e) {
+            System.err.println("Could not set the rate of the Arduino: " + e.getMessage());
+        }
+        // The rates are decided on the RXTX thread, and sent off it
+        FlowController flowController = new FlowController(new FlowController.AsyncRateSink(
+                rate -> streamed.sendMessage(DeviceCommands.rate(rate))));
+        startSource(new SerialSensorSource(serial), flowController);
     }
 
     /**
@@ -393,10 +376,13 @@ public class Renderer {
     private void stopStreamingButtonClicked() {
         resetAfterButtonClicked();
 
+        // Models the last samples held by the jitter buffer
+        pipeline.flush();
+
         // Creates the final render in high quality for the digital 3D canvas
         view.finalRender();
 
-        stopSerialListener();
+        stopSource();
 
         // Update the application and the buttons state
         modelIsProcessingReadings = false;
@@ -413,7 +399,7 @@ public class Renderer {
         resetAfterButtonClicked();
 
         // Check if the user has selected a rendering style
-        if (!view.getSelectedCanvas().equals("None")) {
+        if (!view.getSelectedCanvas().equals(RenderCanvasProviders.NONE)) {
             view.clearCanvas();
         } else{
             view.displayError("You must select a rendering style");
@@ -432,7 +418,7 @@ public class Renderer {
         resetAfterButtonClicked();
 
         // Check if the user has selected a rendering style
-        if (view.getSelectedCanvas().equals("None")) {
+        if (view.getSelectedCanvas().equals(RenderCanvasProviders.NONE)) {
             view.displayError("You must select a rendering style");
             return;
         }
@@ -445,6 +431,46 @@ public class Renderer {
         view.saveCanvas(destinationPathSavedFile);
     }
 
+    /**
+     * Method to handle when the 'Start/Stop recording' button is clicked.
+     *
+     * Record every canvas currently shown on screen to a video, until the button is
+     * pressed again. The videos are saved to the same folder as the JPGs.
+     */
+    private void recordButtonClicked() {
+        resetAfterButtonClicked();
+
+        if (isRecording) {
+            isRecording = false;
+            view.getControlsView().getRecordButton().setText("Start recording");
+            view.displayError(view.stopRecording());
+            return;
+        }
+
+        // Check if the user has selected a rendering style
+        if (view.getSelectedCanvas().equals(RenderCanvasProviders.NONE)) {
+            view.displayError("You must select a rendering style");
+            return;
+        }
+
+        // Get the destination folder if it is the first time user is saving a canvas
+        if (destinationPathSavedFile == null) {
+            File folder = selectFile(0);
+            if (folder == null) return;
+            destinationPathSavedFile = folder.toString();
+        }
+
+        try {
+            view.startRecording(destinationPathSavedFile);
+            isRecording = true;
+            view.getControlsView().getRecordButton().setText("Stop recording");
+        } catch (IOException e) {
+            view.stopRecording();
+            view.displayError("Failed to create the video files.");
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Method to handle when the 'Apply' (change rendering style) button is clicked.
      *
@@ -454,7 +480,7 @@ public class Renderer {
         resetAfterButtonClicked();
 
         // Check if the user has selected a rendering style
-        if (!view.getSelectedCanvas().equals("None")) {
+        if (!view.getSelectedCanvas().equals(RenderCanvasProviders.NONE)) {
             view.changeCanvasToUserSelection();
         } else{
             view.displayError("You must select a rendering style");
@@ -463,107 +489,88 @@ public class Renderer {
     }
 
     // -------------------------------------------------------------------------
-    //      PRIVATE THREADS
+    //      SOURCE LISTENER
     // -------------------------------------------------------------------------
 
     /**
-     * SerialListener thread reads new messages from the Serial and dispatches
-     * them to the provided callback.
+     * Dispatches the messages of the current SensorSource to the pipeline.
+     * Sources run on their own thread, so everything is forwarded to the
+     * application thread. This is required due to the fact that the Swing GUI
+     * is NOT THREADSAFE.
      */
-    private class SerialListener extends Thread {
-        // Callback to be executed when a new message arrives.
-        private Consumer<String> callback;
-
-        /**
-         * Instantiates a new SerialListener thread. The callback provided
-         * will be invoked every time a new message is received.
-         * @param callback The callback to be invoked upon message reception. The
-         *                 callback is passed a single message string argument.
-         */
-        SerialListener(Consumer<String> callback) {
-            this.callback = callback;
+    private class SourceListener implements SensorSource.Listener {
+        // The messages received but not processed yet
+        private final AtomicInteger pending = new AtomicInteger();
+        private final FlowController flowController;
+
+        SourceListener(FlowController flowController) {
+            this.flowController = flowController;
         }
 
         @Override
-        public void run() {
-            try {
-                while (true) {
-                    String message = serial.getNextMessage();
-
-                    // Add the callback invokation to the an event queue on
-                    // the application thread. This is required due to the fact
-                    // that the Swing GUI is NOT THREADSAFE.
-                    SwingUtilities.invokeLater(() -> callback.accept(message));
-                    if (Thread.interrupted()) return;
+        public void messageReceived(List<Sample> samples) {
+            long received = System.nanoTime();
+            int queued = pending.incrementAndGet();
+            if (flowController != null) {
+                try {
+                    flowController.update(queued, received);
+                } catch (IOException e) {
+                    System.err.println("Could not set the rate of the Arduino: " + e.getMessage());
                 }
-            } catch (IOException e) {
-                // Update application and button state
-                serialConnected = false;
-                modelIsProcessingReadings = false;
-                isStreaming = false;
-                updateUIButtons();
-
-                view.displayError("Connection with Arduino was interrupted");
             }
+            SwingUtilities.invokeLater(() -> {
+                PipelineMetrics.get().record(PipelineStage.DISPATCH, received);
+                pipeline.accept(samples);
+                pending.decrementAndGet();
+            });
         }
-    }
 
-    /**
-     * FileLoader thread reads new messages from the Serial and dispatches
-     * them to the provided callback.
-     */
-    private class FileLoader extends Thread {
-        // Callback to be executed when a new message arrives.
-        private Consumer<String> callback;
-        private Scanner scanner = null;
-        /**
-         * Instantiates a new FileLoader thread. The callback provided
-         * will be invoked every time a new line is read.
-         *
-         * @param callback The callback to be invoked when a line has been processed.
-         *                 The callback is passed a single message string argument.
-         */
-        FileLoader(Consumer<String> callback, File selectedFile) {
-            this.callback = callback;
-            try {
-                this.scanner = new Scanner(selectedFile);
-            } catch (FileNotFoundException e) { e.printStackTrace(); }
+        @Override
+        public void streamRestarted() {
+            // The Arduino restarts when its port is reopened: its clock
+            // starts again, and its rate is back to the default
+            SwingUtilities.invokeLater(pipeline::reset);
+            if (flowController != null) flowController.reset();
         }
 
         @Override
-        public void run() {
-            if (scanner == null) return;
+        public void streamEnded() {
+            SwingUtilities.invokeLater(() -> {
+                pipeline.flush();
 
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                if (line.equals("$")) continue; // message boundary
+                // Creates the final render in high quality for the digital 3D canvas
+                view.finalRender();
 
-                // Add the callback invokation to the an event queue on
-                // the application thread. This is required due to the fact
-                // that the Swing GUI is NOT THREADSAFE.
-                SwingUtilities.invokeLater(() -> callback.accept(line));
-                if (Thread.interrupted()) break;
+                // Update the application and the buttons state
+                modelIsProcessingReadings = false;
+                updateUIButtons();
+            });
+        }
 
-                try {
-                    Thread.sleep(100); // simulate events coming in
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
+        @Override
+        public void deviceClosed() {
+            // Stopped while reconnecting: the serial must be connected again
+            SwingUtilities.invokeLater(() -> {
+                serialConnected = false;
+                updateUIButtons();
+            });
+        }
 
-            //Finished reading from file
-            //Need to pause & wait for the process to render the last reading
-            try {
-                Thread.sleep(500);
-            } catch(InterruptedException ex) {
-                Thread.currentThread().interrupt();
-            }
-            // Creates the final render in high quality for the digital 3D canvas
-            view.finalRender();
+        @Override
+        public void streamFailed(IOException e) {
+            SwingUtilities.invokeLater(() -> {
+                if (isStreaming) {
+                    serialConnected = false;
+                    view.displayError("Connection with Arduino was interrupted");
+                } else {
+                    view.displayError("Can not read the selected file");
+                }
 
-            // Update the application and the buttons state
-            modelIsProcessingReadings = false;
-            updateUIButtons();
+                // Update application and button state
+                modelIsProcessingReadings = false;
+                isStreaming = false;
+                updateUIButtons();
+            });
         }
     }
 }
@@ -1,3 +1,4 @@
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -10,6 +11,16 @@ public class Sample {
     public Double yaw;
     public Double pitch;
 
+    // The literal parts of the sample grammar
+    private static final byte[] ID = "id ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TIME = " time ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] X = " x ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] Y = " y ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] Z = " z ".getBytes(StandardCharsets.US_ASCII);
+
+    // Numbers with more digits don't fit a long, and are invalid
+    static final int MAX_DIGITS = 18;
+
     public Sample() {}
 
     public Sample(int sensorId, long timestamp, Double roll, Double yaw, Double pitch) {
@@ -27,6 +38,7 @@ public class Sample {
      * @return A list of Samples, or null if no valid samples in the message.
      */
     public static List<Sample> parseMessage(String msg) {
+        long start = System.nanoTime();
         Pattern sampleRegex = Pattern.compile(
                 "^id ([0-9]+) " + // group 1
                         "time ([0-9]+) " + // group 2
@@ -39,9 +51,10 @@ public class Sample {
 
         for (String line : msg.split("\n")) {
             Matcher m = sampleRegex.matcher(line);
-            if (!m.matches()) {
+            if (!m.matches() || !fits(m)) {
                 System.out.println("Invalid sample line: ");
                 System.out.println(line);
+                PipelineMetrics.get().invalidLine();
                 continue; // skip invalid lines
             }
 
@@ -55,9 +68,124 @@ public class Sample {
             samples.add(sample);
         }
 
+        PipelineMetrics.get().record(PipelineStage.PARSE, start);
         return samples;
     }
 
+    // Whether the numbers of a matched line fit their type, as parseLine()
+    // requires: at most MAX_DIGITS digits, and an int sensor id
+    private static boolean fits(Matcher m) {
+        for (int group = 1; group <= 5; group++) {
+            String number = m.group(group);
+            int digits = 0;
+            for (int i = 0; i < number.length(); i++) {
+                if (Character.isDigit(number.charAt(i))) digits++;
+            }
+            if (digits > MAX_DIGITS) return false;
+        }
+        return Long.parseLong(m.group(1)) <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Parses a single line of a message from the Arduino, straight from the
+     * bytes received. Accepts the same grammar as parseMessage(), without
+     * creating any intermediate String.
+     * @param line The buffer holding the line, without its line ending
+     * @param offset Index of the first byte of the line
+     * @param length Number of bytes in the line
+     * @return The parsed Sample, or null if the line is not a valid sample
+     */
+    public static Sample parseLine(byte[] line, int offset, int length) {
+        int end = offset + length;
+
+        int pos = expect(line, offset, end, ID);
+        int idEnd = scanNumber(line, pos, end, false);
+        pos = expect(line, idEnd, end, TIME);
+        int timeStart = pos;
+        int timeEnd = scanNumber(line, pos, end, false);
+        pos = expect(line, timeEnd, end, X);
+        int xStart = pos;
+        int xEnd = scanNumber(line, pos, end, true);
+        pos = expect(line, xEnd, end, Y);
+        int yStart = pos;
+        int yEnd = scanNumber(line, pos, end, true);
+        pos = expect(line, yEnd, end, Z);
+        int zStart = pos;
+        int zEnd = scanNumber(line, pos, end, true);
+        if (zEnd < 0) return null;
+
+        // An optional trailing space, then nothing
+        pos = zEnd;
+        if (pos < end && line[pos] == ' ') pos++;
+        if (pos != end) return null;
+
+        long id = toLong(line, offset + ID.length, idEnd);
+        if (id > Integer.MAX_VALUE) return null;
+
+        Sample sample = new Sample();
+        sample.sensorId = (int) id;
+        sample.timestamp = toLong(line, timeStart, timeEnd);
+        sample.yaw = toDouble(line, xStart, xEnd);   // X => yaw
+        sample.pitch = toDouble(line, yStart, yEnd); // Y => pitch
+        sample.roll = toDouble(line, zStart, zEnd);  // Z => roll
+        return sample;
+    }
+
+    // Returns the index after the literal, or -1 if it is not at pos
+    private static int expect(byte[] line, int pos, int end, byte[] literal) {
+        if (pos < 0 || pos + literal.length > end) return -1;
+        for (int i = 0; i < literal.length; i++) {
+            if (line[pos + i] != literal[i]) return -1;
+        }
+        return pos + literal.length;
+    }
+
+    // Returns the index after the number at pos, or -1 if there is none.
+    // Integers are [0-9]+, decimals -?[0-9]+\.?[0-9]+ as in parseMessage():
+    // at least two digits, and digits on both sides of the point.
+    private static int scanNumber(byte[] line, int pos, int end, boolean decimal) {
+        if (pos < 0) return -1;
+        if (decimal && pos < end && line[pos] == '-') pos++;
+
+        int digits = 0;
+        while (pos < end && line[pos] >= '0' && line[pos] <= '9') { pos++; digits++; }
+        if (decimal) {
+            if (pos < end && line[pos] == '.') {
+                if (digits == 0) return -1;
+                pos++;
+                int fraction = 0;
+                while (pos < end && line[pos] >= '0' && line[pos] <= '9') { pos++; fraction++; }
+                if (fraction == 0) return -1;
+                digits += fraction;
+            } else if (digits < 2) {
+                return -1;
+            }
+        }
+        return digits > 0 && digits <= MAX_DIGITS ? pos : -1;
+    }
+
+    private static long toLong(byte[] line, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) value = value * 10 + (line[i] - '0');
+        return value;
+    }
+
+    private static double toDouble(byte[] line, int from, int to) {
+        boolean negative = line[from] == '-';
+        if (negative) from++;
+
+        long mantissa = 0;
+        long scale = 1;
+        boolean fraction = false;
+        for (int i = from; i < to; i++) {
+            if (line[i] == '.') { fraction = true; continue; }
+            mantissa = mantissa * 10 + (line[i] - '0');
+            if (fraction) scale *= 10;
+        }
+        double value = (double) mantissa / scale;
+        return negative ? -value : value;
+    }
+
     public int getID() {
         return sensorId;
     }
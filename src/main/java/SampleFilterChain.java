@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A SampleFilterChain smooths the yaw, pitch and roll of incoming Samples.
+ * Each sensor gets its own chain of SignalFilters (one instance per filter
+ * and per axis), so the state of one sensor never leaks into another.
+ *
+ * The chain used for a sensor is configurable with setChain(). Sensors without
+ * a specific configuration use the default chain.
+ */
+public class SampleFilterChain {
+    // Creates the filters of sensors that have no specific configuration.
+    // Lists rather than the varargs arrays, which hold a generic type.
+    private List<Supplier<SignalFilter>> defaultChain = Collections.emptyList();
+
+    // Filter configuration per sensor id
+    private Map<Integer, List<Supplier<SignalFilter>>> chains = new HashMap<>();
+
+    // Filter instances per sensor id, created on the first sample
+    private Map<Integer, SensorState> states = new HashMap<>();
+
+    /**
+     * Creates a chain that leaves samples untouched until configured.
+     */
+    public SampleFilterChain() {
+    }
+
+    /**
+     * Sets the filters applied to sensors without a specific configuration.
+     * @param factories The filters of the chain, in the order they are applied
+     */
+    @SafeVarargs
+    public final void setDefaultChain(Supplier<SignalFilter>... factories) {
+        List<Supplier<SignalFilter>> chain = new ArrayList<>(factories.length);
+        for (Supplier<SignalFilter> factory : factories) chain.add(factory);
+        this.defaultChain = chain;
+        states.clear();
+    }
+
+    /**
+     * Sets the filters applied to the specified sensor.
+     * @param sensorId The id of the sensor to configure
+     * @param factories The filters of the chain, in the order they are applied
+     */
+    @SafeVarargs
+    public final void setChain(int sensorId, Supplier<SignalFilter>... factories) {
+        List<Supplier<SignalFilter>> chain = new ArrayList<>(factories.length);
+        for (Supplier<SignalFilter> factory : factories) chain.add(factory);
+        chains.put(sensorId, chain);
+        states.remove(sensorId);
+    }
+
+    /**
+     * Filters the sample in place, updating the state of its sensor.
+     * @param sample The sample to smooth
+     * @return The same sample, with smoothed yaw, pitch and roll
+     */
+    public Sample apply(Sample sample) {
+        SensorState state = states.get(sample.sensorId);
+        if (state == null) {
+            List<Supplier<SignalFilter>> factories = chains.get(sample.sensorId);
+            state = new SensorState(factories != null ? factories : defaultChain);
+            states.put(sample.sensorId, state);
+        }
+
+        double seconds = sample.timestamp / 1000.0;
+        sample.yaw = state.yaw.filter(sample.yaw, seconds);
+        sample.pitch = state.pitch.filter(sample.pitch, seconds);
+        sample.roll = state.roll.filter(sample.roll, seconds);
+        return sample;
+    }
+
+    /**
+     * Forgets the state of every sensor. Should be called when a new stream
+     * starts, so it is not smoothed towards the end of the previous one.
+     */
+    public void reset() {
+        states.clear();
+    }
+
+    /**
+     * The filters of a single sensor.
+     */
+    private static class SensorState {
+        Axis yaw, pitch, roll;
+
+        SensorState(List<Supplier<SignalFilter>> factories) {
+            yaw = new Axis(factories);
+            pitch = new Axis(factories);
+            roll = new Axis(factories);
+        }
+    }
+
+    /**
+     * The filters of a single axis of a sensor. Angles are unwrapped before
+     * filtering, so a filter never averages values across the +/-180 degrees
+     * seam (eg. 179 and -179 must not give 0), and wrapped back afterwards.
+     */
+    private static class Axis {
+        SignalFilter[] filters;
+        boolean started = false;
+        double previousRaw;
+        double offset;
+
+        Axis(List<Supplier<SignalFilter>> factories) {
+            filters = new SignalFilter[factories.size()];
+            for (int i = 0; i < filters.length; i++) {
+                filters[i] = factories.get(i).get();
+            }
+        }
+
+        double filter(double raw, double seconds) {
+            if (started) {
+                double delta = raw - previousRaw;
+                if (delta > 180) offset -= 360;
+                else if (delta < -180) offset += 360;
+            }
+            started = true;
+            previousRaw = raw;
+
+            double value = raw + offset;
+            for (SignalFilter f : filters) {
+                value = f.filter(value, seconds);
+            }
+            return wrap(value);
+        }
+
+        // Back into (-180, 180], the range the rest of the application expects
+        static double wrap(double angle) {
+            double wrapped = angle % 360;
+            if (wrapped > 180) wrapped -= 360;
+            else if (wrapped <= -180) wrapped += 360;
+            return wrapped;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reassembles the messages sent by the Arduino from raw bytes, which may
+ * arrive in chunks of any size (a chunk can end in the middle of a line).
+ *
+ * Lines are accumulated in a reusable buffer and parsed in place with
+ * Sample.parseLine(), so no String is created per line. A line holding only
+ * the message boundary ends the message, and its samples are handed to the
+ * consumer.
+ */
+public class SampleFrameAssembler implements FrameDecoder {
+    // Lines longer than this are garbage (eg. noise on the line): dropped
+    private static final int MAX_LINE_LENGTH = 256;
+
+    private Consumer<List<Sample>> consumer;
+    private byte[] boundary;
+
+    private byte[] line = new byte[MAX_LINE_LENGTH];
+    private int lineLength = 0;
+    private boolean lineOverflow = false;
+
+    // The samples of the message being assembled
+    private List<Sample> message = new ArrayList<>();
+
+    /**
+     * @param messageBoundary The line that ends a message, eg. "$"
+     * @param consumer Receives the samples of every complete message
+     */
+    public SampleFrameAssembler(String messageBoundary, Consumer<List<Sample>> consumer) {
+        this.boundary = messageBoundary.getBytes(StandardCharsets.US_ASCII);
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void consume(ByteRing ring) {
+        while (ring.size() > 0) {
+            push(ring.take());
+        }
+    }
+
+    @Override
+    public void reset() {
+        lineLength = 0;
+        lineOverflow = false;
+        message = new ArrayList<>();
+    }
+
+    /**
+     * Consumes a single byte, see ModeSwitchingDecoder.
+     * @param b The next byte received
+     */
+    void push(byte b) {
+        if (b == '\n') {
+            endOfLine();
+        } else if (b == '\r') {
+            // Windows line endings: ignored
+        } else if (lineLength < MAX_LINE_LENGTH) {
+            line[lineLength++] = b;
+        } else {
+            lineOverflow = true;
+        }
+    }
+
+    private void endOfLine() {
+        if (lineOverflow) {
+            PipelineMetrics.get().invalidLine();
+        } else if (isBoundary()) {
+            if (!message.isEmpty()) {
+                consumer.accept(message);
+                message = new ArrayList<>();
+            }
+        } else if (lineLength > 0) {
+            long start = System.nanoTime();
+            Sample sample = Sample.parseLine(line, 0, lineLength);
+            if (sample != null) {
+                message.add(sample);
+                PipelineMetrics.get().record(PipelineStage.PARSE, start);
+            } else {
+                PipelineMetrics.get().invalidLine();
+            }
+        }
+        lineLength = 0;
+        lineOverflow = false;
+    }
+
+    private boolean isBoundary() {
+        if (lineLength != boundary.length) return false;
+        for (int i = 0; i < lineLength; i++) {
+            if (line[i] != boundary[i]) return false;
+        }
+        return true;
+    }
+}
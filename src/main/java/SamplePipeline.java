@@ -0,0 +1,78 @@
+import java.util.List;
+
+/**
+ * The SamplePipeline takes the Samples parsed from an inbound message,
+ * puts them back in order with a JitterBuffer, smooths them and feeds them
+ * to the Modeler. The holes the jitter buffer finds in the stream are
+ * counted in the PipelineMetrics.
+ */
+public class SamplePipeline {
+    // Only the samples from this sensor (the bNo) are modeled.
+    public static final int RIGHT_ARM_SENSOR_ID = 2;
+
+    private Modeler model;
+
+    private SampleFilterChain filters;
+
+    private JitterBuffer jitterBuffer;
+
+    /**
+     * Creates a pipeline feeding the given model. Samples are smoothed with
+     * a One-Euro filter by default.
+     * @param modeler The model to feed samples to
+     */
+    public SamplePipeline(Modeler modeler) {
+        this.model = modeler;
+        this.filters = new SampleFilterChain();
+        this.filters.setDefaultChain(() -> new OneEuroFilter(1.0, 0.007, 1.0));
+        this.jitterBuffer = new JitterBuffer(sample -> model.newSensorReading(filters.apply(sample)));
+        this.jitterBuffer.setGapListener((sensorId, lastTimestamp, nextTimestamp) ->
+                PipelineMetrics.get().sampleGap(nextTimestamp - lastTimestamp));
+    }
+
+    /**
+     * Processes the samples of one inbound message.
+     * @param samples The samples parsed from the message
+     */
+    public void accept(List<Sample> samples) {
+        // only process the samples from the bNo
+        for (int i = 0; i < samples.size(); i++) {
+            Sample sample = samples.get(i);
+            if (sample.getID() == RIGHT_ARM_SENSOR_ID) {
+                jitterBuffer.accept(sample);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Models the samples still held by the jitter buffer. Must be called
+     * when a stream ends, or its last samples are never modeled.
+     */
+    public void flush() {
+        jitterBuffer.flush();
+    }
+
+    /**
+     * Must be called when a new stream starts (file or serial), so the filters
+     * don't carry state over from the previous stream.
+     */
+    public void reset() {
+        filters.reset();
+        jitterBuffer.reset();
+    }
+
+    /**
+     * @return The filter chain, to configure the filters used per sensor
+     */
+    public SampleFilterChain getFilters() {
+        return filters;
+    }
+
+    /**
+     * @return The jitter buffer, to read its counters or listen to its gaps
+     */
+    public JitterBuffer getJitterBuffer() {
+        return jitterBuffer;
+    }
+}
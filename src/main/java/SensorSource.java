@@ -0,0 +1,66 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A SensorSource produces the Samples of the suit's sensors, one message
+ * (ie. a group of samples sent together) at a time. Sources run on their own
+ * thread, and notify a Listener of every message they produce.
+ *
+ * Implementations read from the Arduino over serial, from a recorded file, or
+ * generate synthetic samples for testing without hardware.
+ */
+public interface SensorSource {
+
+    /**
+     * Receives the messages of a SensorSource. Methods are invoked on the
+     * thread of the source, never concurrently.
+     */
+    interface Listener {
+
+        /**
+         * Invoked for every message produced by the source.
+         * @param samples The samples of the message (possibly empty)
+         */
+        void messageReceived(List<Sample> samples);
+
+        /**
+         * Invoked once when the source has no more messages (eg. end of file).
+         * Not invoked when the source is stopped.
+         */
+        default void streamEnded() {}
+
+        /**
+         * Invoked when the source reconnected after an interruption, before
+         * its next message. The device may have restarted, and its
+         * timestamps with it.
+         */
+        default void streamRestarted() {}
+
+        /**
+         * Invoked once when the source fails (eg. the device was unplugged).
+         * No message is produced afterwards.
+         * @param e The cause of the failure
+         */
+        default void streamFailed(IOException e) {}
+
+        /**
+         * Invoked once when the source is stopped while its device was
+         * disconnected, eg. during a reconnection: the device is closed, and
+         * must be connected again before another source reads it.
+         */
+        default void deviceClosed() {}
+    }
+
+    /**
+     * Starts producing messages. If the source was already started, it is
+     * restarted with the new listener.
+     * @param listener The listener notified of every message
+     */
+    void start(Listener listener);
+
+    /**
+     * Stops producing messages. The listener is not notified of any message
+     * after this returns.
+     */
+    void stop();
+}
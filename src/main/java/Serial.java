@@ -1,24 +1,42 @@
 import gnu.io.*;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.TooManyListenersException;
+import java.util.function.Consumer;
 
 /**
  * Instances of Serial are a higher-level wrapper of a SerialPort. They abstract
  * connection logic, as well as being able to consume/send messages rather
  * than bytes.
+ *
+ * Inbound data is event-driven: RXTX notifies us when bytes are available,
+ * they are read (without blocking) into a reusable ring, and messages are
+ * reassembled incrementally by a SampleFrameAssembler, or a
+ * BinaryFrameDecoder in binary mode, following the switches of the device
+ * with a ModeSwitchingDecoder. No thread ever blocks waiting for the
+ * device, so reading can be stopped at any time.
+ *
+ * Outbound, the Serial sends the DeviceCommands controlling the Arduino (its
+ * rate, sensors and mode).
  */
 public class Serial {
     // Current number of Serial objects instantiated. Used to create the
     // owner name for the particular serial connection.
     private static int serialCount = 0;
 
+    // The start of the owner names of our ports, so they can be told apart
+    // from the ports of other applications
+    static final String OWNER_PREFIX = "Serial";
+
     // Number of milliseconds to wait to obtain port ownership
-    private static final int MAX_CONNECT_WAIT = 2000;
+    static final int MAX_CONNECT_WAIT = 2000;
 
-    // The character set used to interpret inbound stream data.
-    private static final String CHARSET = "US-ASCII";
+    // Size of the ring holding the bytes received but not yet consumed
+    private static final int RING_CAPACITY = 8192;
 
     // Connection status of the Serial
     private boolean isConnected = false;
@@ -26,15 +44,33 @@ public class Serial {
     // The underlying SerialPort
     private SerialPort serialPort;
 
+    // Where the Serial was connected, to reopen it
+    private String portName;
+    private int baudRate;
+
     // The sentinel character used to indicate a message boundary
     private String messageBoundary = "$";
 
     // The Serial's inbound stream.
-    private BufferedReader in;
+    private InputStream in;
+
+    // The Serial's outbound stream, for the commands
+    private OutputStream out;
+
+    // How the messages are asked to be encoded, and the decoder of the
+    // current reading, which follows the device
+    private volatile DeviceCommands.Mode mode = DeviceCommands.Mode.TEXT;
+    private volatile ModeSwitchingDecoder decoder;
+
+    // The bytes received, waiting to be reassembled into messages
+    private ByteRing ring = new ByteRing(RING_CAPACITY);
+
+    // Whether messages are currently delivered
+    private volatile boolean reading = false;
 
     // Generates a new name for a given serial instance.
     private static String generateName() {
-        return "Serial" + serialCount++;
+        return OWNER_PREFIX + serialCount++;
     }
 
     /**
@@ -44,7 +80,10 @@ public class Serial {
      * @param portName The name of the port to connect to
      * @param baudRate Communicate rate in symbols per second (ie. BAUD rate)
      */
-    public void connect(String portName, int baudRate) {
+    public synchronized void connect(String portName, int baudRate) {
+        this.portName = portName;
+        this.baudRate = baudRate;
+
         // Open a serial connection
         try {
             CommPortIdentifier portId = CommPortIdentifier.getPortIdentifier(portName);
@@ -55,14 +94,16 @@ public class Serial {
                     SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
         } catch (NoSuchPortException|PortInUseException|UnsupportedCommOperationException e) {
             e.printStackTrace();
+            return;
         }
 
         // Setup the communication streams
         try {
-            in = new BufferedReader(
-                    new InputStreamReader(serialPort.getInputStream(), CHARSET));
+            in = serialPort.getInputStream();
+            out = serialPort.getOutputStream();
         } catch (IOException e) {
             e.printStackTrace();
+            return;
         }
 
         isConnected = true;
@@ -72,43 +113,137 @@ public class Serial {
      * Closes the serial port connection.
      */
     public void close() {
-        serialPort.close();
+        // Not under the monitor: removing the listener waits for the RXTX
+        // thread, which may be waiting for the monitor to send a command
+        stopReading();
+        synchronized (this) {
+            if (serialPort != null) serialPort.close();
+            serialPort = null;
+            isConnected = false;
+        }
     }
 
     /**
-     * Returns the next message received over the Serial. If there is not
-     * currently a complete message received, this call will block until
-     * it receives one.
-     * @throws IOException If reading the inputstream fails. If the device
-     *                     is removed, this will be thrown.
-     * @return The next message received. If any.
+     * Closes the port and connects to it again, eg. after the cable was
+     * unplugged. Reading must be started again.
+     * @return true if the Serial is connected again
      */
-    public String getNextMessage() throws IOException {
-        StringBuilder message = new StringBuilder();
-
-        String line = in.readLine();
-        while ((line != null)) {
-            if (line.equals(messageBoundary)) break;
-            message.append(line)
-                   .append("\n"); // readLine() strips newline.
-            line = in.readLine();
+    public boolean reopen() {
+        close();
+        synchronized (this) {
+            if (portName == null) return false;
+            connect(portName, baudRate);
+            return isConnected;
         }
+    }
+
+    /**
+     * Starts delivering the messages received over the Serial. Messages are
+     * delivered on the RXTX event thread, as soon as their boundary arrives.
+     * @param onMessage Receives the samples of every message
+     * @param onFailure Invoked if reading fails (eg. the device is removed).
+     *                  No message is delivered afterwards.
+     * @throws IOException If the port does not support data notifications
+     */
+    public void startReading(Consumer<List<Sample>> onMessage,
+                             Consumer<IOException> onFailure) throws IOException {
+        // Outside the monitor, see close()
+        stopReading();
+        synchronized (this) {
+            listen(onMessage, onFailure);
+        }
+    }
+
+    private void listen(Consumer<List<Sample>> onMessage,
+                        Consumer<IOException> onFailure) throws IOException {
+        if (!isConnected) throw new IOException("The serial is not connected");
+        ring.clear();
+        Consumer<List<Sample>> deliver = samples -> {
+            if (reading) onMessage.accept(samples);
+        };
+        ModeSwitchingDecoder decoder = new ModeSwitchingDecoder(messageBoundary, mode, deliver);
+        this.decoder = decoder;
+        // In case the mode was set meanwhile
+        decoder.expect(mode);
 
-        if (message.length() == 0) return null;
-        return message.toString();
+        reading = true;
+        try {
+            serialPort.addEventListener(event -> {
+                if (event.getEventType() != SerialPortEvent.DATA_AVAILABLE || !reading) return;
+                try {
+                    // Drain what is available, the ring may be smaller
+                    long start = System.nanoTime();
+                    int n;
+                    do {
+                        n = ring.readFrom(in);
+                        decoder.consume(ring);
+                    } while (n > 0 && reading);
+                    PipelineMetrics.get().record(PipelineStage.SERIAL_READ, start);
+                    if (n < 0) throw new IOException("The serial stream was closed");
+                } catch (IOException e) {
+                    if (!reading) return;
+                    reading = false;
+                    onFailure.accept(e);
+                }
+            });
+        } catch (TooManyListenersException e) {
+            reading = false;
+            throw new IOException("The serial port is already being read", e);
+        }
+        serialPort.notifyOnDataAvailable(true);
+    }
+
+    /**
+     * Stops delivering messages. Returns immediately, even if the device is
+     * silent, and no message is delivered after it returns.
+     */
+    public void stopReading() {
+        if (!reading) return;
+        reading = false;
+        SerialPort serialPort = this.serialPort;
+        if (serialPort == null) return;
+        serialPort.notifyOnDataAvailable(false);
+        serialPort.removeEventListener();
+    }
+
+    /**
+     * Sends a message over the serial, as a line. Can be called from any
+     * thread but the RXTX event thread, eg. to send DeviceCommands while
+     * reading: writing may block, and so would the messages.
+     * @param message The message to send, without line ending
+     * @throws IOException If the Serial is not connected, or writing fails
+     */
+    public synchronized void sendMessage(String message) throws IOException {
+        if (!isConnected) throw new IOException("The serial is not connected");
+        out.write((message + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /**
+     * Asks the Arduino to send its messages in the given encoding. The bytes
+     * it sent before the command are still decoded in the previous encoding,
+     * see ModeSwitchingDecoder.
+     * @param mode The encoding of the messages
+     * @throws IOException If the command can't be sent
+     */
+    public void setMode(DeviceCommands.Mode mode) throws IOException {
+        sendMessage(DeviceCommands.mode(mode));
+        this.mode = mode;
+        ModeSwitchingDecoder decoder = this.decoder;
+        if (decoder != null) decoder.expect(mode);
     }
 
     /**
-     * Sends a message over the serial
-     * @param message The message to send.
+     * @return How the messages are asked to be encoded
      */
-    public void sendMessage(String message) {
-        // Implement if we want to control the Arduino remotely
+    public DeviceCommands.Mode getMode() {
+        return mode;
     }
 
     /**
      * Sets the message boundary string, which is used to detect the end of a
      * message. The message boundary must exist on a newline by itself.
+     * Takes effect the next time reading starts.
      * @param messageBoundary The message boundary string.
      */
     public void setMessageBoundary(String messageBoundary) {
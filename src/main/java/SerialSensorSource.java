@@ -0,0 +1,184 @@
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers the messages sent by the Arduino over a (connected) Serial. The
+ * Serial is event-driven, so there is no polling thread: messages are
+ * delivered on the RXTX event thread.
+ *
+ * The source survives the glitches of the cable: when reading fails, or no
+ * message arrives for HEARTBEAT_TIMEOUT (the messages are the heartbeat),
+ * the port is reopened, first after MIN_BACKOFF then twice as long after
+ * every failed attempt, up to MAX_BACKOFF, until it works or the source is
+ * stopped. The messages then go on to the same listener, which is told
+ * with streamRestarted(). The reconnections, their duration and an
+ * estimate of the samples lost are recorded in PipelineMetrics. When the
+ * source is stopped before it reconnected, the Serial is closed and the
+ * listener told with deviceClosed().
+ */
+public class SerialSensorSource implements SensorSource {
+    public static final long HEARTBEAT_TIMEOUT = 2000;
+    public static final long MIN_BACKOFF = 250;
+    public static final long MAX_BACKOFF = 8000;
+
+    private Serial serial;
+    private final long heartbeatTimeout;
+    private final long minBackoff;
+    private final long maxBackoff;
+
+    // Checks the heartbeat and reconnects, so the RXTX thread never waits
+    private ScheduledExecutorService watchdog;
+    private Listener listener;
+    private volatile boolean running = false;
+    private volatile boolean connected = false;
+    private volatile long lastMessage;
+    private long disconnectedAt;
+    private long backoff;
+
+    // The average time between two messages, and the size of the last one,
+    // to estimate the samples lost while disconnected
+    private volatile double messageInterval = 0;
+    private volatile int messageSize = 0;
+
+    /**
+     * @param serial The serial the Arduino is connected to
+     */
+    public SerialSensorSource(Serial serial) {
+        this(serial, HEARTBEAT_TIMEOUT, MIN_BACKOFF, MAX_BACKOFF);
+    }
+
+    /**
+     * @param serial The serial the Arduino is connected to
+     * @param heartbeatTimeout Milliseconds without message after which the
+     *                         connection is considered lost
+     * @param minBackoff Milliseconds before the first reconnection attempt
+     * @param maxBackoff The most milliseconds between two attempts
+     */
+    SerialSensorSource(Serial serial, long heartbeatTimeout, long minBackoff, long maxBackoff) {
+        this.serial = serial;
+        this.heartbeatTimeout = heartbeatTimeout;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Override
+    public void start(Listener listener) {
+        stop();
+        synchronized (this) {
+            this.listener = listener;
+            running = true;
+            watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "SerialSensorSource");
+                thread.setDaemon(true);
+                return thread;
+            });
+            lastMessage = System.nanoTime();
+            try {
+                startReading();
+            } catch (IOException e) {
+                running = false;
+                watchdog.shutdownNow();
+                listener.streamFailed(e);
+                return;
+            }
+            long period = Math.max(1, heartbeatTimeout / 4);
+            watchdog.scheduleWithFixedDelay(this::checkHeartbeat, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            stopped = watchdog;
+            stopped.shutdownNow();
+        }
+        try {
+            // A reconnection under way gives up before the port is handed
+            // back, see reconnect(). Opening the port may take the whole
+            // connect wait. Not under the monitor, which reconnect() needs.
+            stopped.awaitTermination(Serial.MAX_CONNECT_WAIT + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        serial.stopReading();
+        // The connection was lost and not recovered: the port is of no use
+        if (!connected) {
+            if (serial.isConnected()) serial.close();
+            listener.deviceClosed();
+        }
+    }
+
+    private void startReading() throws IOException {
+        serial.startReading(this::messageReceived, this::readingFailed);
+        connected = true;
+    }
+
+    private void messageReceived(List<Sample> samples) {
+        long now = System.nanoTime();
+        double interval = now - lastMessage;
+        messageInterval = messageInterval == 0 ? interval : messageInterval + 0.05 * (interval - messageInterval);
+        messageSize = samples.size();
+        lastMessage = now;
+        listener.messageReceived(samples);
+    }
+
+    private void readingFailed(IOException e) {
+        System.err.println("Lost the serial connection: " + e.getMessage());
+        try {
+            watchdog.execute(this::disconnected);
+        } catch (RuntimeException stopped) {
+            // The source was stopped meanwhile
+        }
+    }
+
+    // On the watchdog thread
+    private void checkHeartbeat() {
+        if (connected && System.nanoTime() - lastMessage > heartbeatTimeout * 1000000) {
+            System.err.println("No message from the serial for " + heartbeatTimeout + " ms, reconnecting");
+            disconnected();
+        }
+    }
+
+    // On the watchdog thread
+    private void disconnected() {
+        if (!connected || !running) return;
+        connected = false;
+        disconnectedAt = System.nanoTime();
+        backoff = minBackoff;
+        watchdog.schedule(this::reconnect, backoff, TimeUnit.MILLISECONDS);
+    }
+
+    // On the watchdog thread
+    private void reconnect() {
+        if (!running) return;
+        if (serial.reopen()) {
+            // The source may have been stopped while the port was opening
+            synchronized (this) {
+                if (!running) {
+                    serial.close();
+                    return;
+                }
+                long downtime = System.nanoTime() - disconnectedAt;
+                long lost = messageInterval > 0 ? Math.round(downtime / messageInterval) * messageSize : 0;
+                PipelineMetrics.get().serialReconnected(downtime, lost);
+                System.err.println(String.format("Reconnected to the serial in %.1f s", downtime / 1e9));
+                try {
+                    listener.streamRestarted();
+                    lastMessage = System.nanoTime();
+                    startReading();
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Could not read the serial again: " + e.getMessage());
+                }
+            }
+        }
+        backoff = Math.min(maxBackoff, backoff * 2);
+        watchdog.schedule(this::reconnect, backoff, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * A SignalFilter smooths a single scalar channel of sensor data (eg. the
+ * pitch reported by one sensor). Filters are stateful: one instance must be
+ * used for exactly one channel, and values must be fed in arrival order.
+ *
+ * Implementations keep their state in primitive fields of a fixed size, so
+ * filtering a value runs in constant time and memory.
+ */
+public interface SignalFilter {
+
+    /**
+     * Feeds a new raw value into the filter.
+     * @param value The raw value of the channel
+     * @param timestamp The time the value was measured, in seconds
+     * @return The filtered value
+     */
+    double filter(double value, double timestamp);
+
+    /**
+     * Forgets all previous values, as if the filter had just been created.
+     */
+    void reset();
+}
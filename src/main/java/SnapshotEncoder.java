@@ -0,0 +1,191 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encodes the canvas snapshots to image files in the background.
+ *
+ * The canvas only copies its pixels into a pooled buffer, so saving doesn't
+ * stall its animation thread. At most QUEUE_CAPACITY snapshots wait to be
+ * encoded: further snapshots are dropped rather than delaying the canvases.
+ */
+public class SnapshotEncoder {
+
+    /**
+     * The image formats snapshots can be saved in.
+     */
+    public enum Format {
+        JPEG("jpg"),
+        PNG("png"),
+        // Lossless and uncompressed, the fastest to encode
+        BMP("bmp");
+
+        private String extension;
+
+        private Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * @return The extension of the files, also understood by ImageIO
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final int ENCODER_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final float JPEG_QUALITY = 0.9f;
+
+    private static final SnapshotEncoder instance = new SnapshotEncoder();
+
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            ENCODER_THREADS, ENCODER_THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            runnable -> {
+                Thread thread = new Thread(runnable, "SnapshotEncoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // Pixel buffers ready to be reused
+    private final ConcurrentLinkedQueue<int[]> buffers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong saved = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @return The encoder shared by all the canvases
+     */
+    public static SnapshotEncoder get() {
+        return instance;
+    }
+
+    /**
+     * Returns a buffer to copy pixels into, reusing a released one if
+     * possible. The buffer is given back by submit().
+     * @param size The number of pixels
+     * @return A buffer of exactly size pixels
+     */
+    public int[] acquireBuffer(int size) {
+        int[] buffer;
+        while ((buffer = buffers.poll()) != null) {
+            if (buffer.length == size) return buffer;
+            // A canvas of another size: let it be collected
+        }
+        return new int[size];
+    }
+
+    /**
+     * Queues pixels to be encoded to a file. Whether or not the snapshot is
+     * accepted, the buffer belongs to the encoder once submitted.
+     * @param pixels The pixels, ARGB, row by row, from acquireBuffer()
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param file Where to save the image
+     * @param format The format of the image
+     * @return false if too many snapshots are waiting, and this one is dropped
+     */
+    public boolean submit(int[] pixels, int width, int height, File file, Format format) {
+        try {
+            executor.execute(() -> {
+                boolean written = false;
+                try {
+                    encode(pixels, width, height, file, format);
+                    written = true;
+                } catch (IOException e) {
+                    System.err.println("Failed to save " + file);
+                    e.printStackTrace();
+                } finally {
+                    releaseBuffer(pixels);
+                }
+                if (written) saved.incrementAndGet();
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            dropped.incrementAndGet();
+            releaseBuffer(pixels);
+            return false;
+        }
+    }
+
+    /**
+     * @return The number of snapshots written so far
+     */
+    public long getSavedCount() {
+        return saved.get();
+    }
+
+    /**
+     * @return The number of snapshots dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Waits for the queued snapshots to be written, then stops the encoder.
+     * @param timeoutMillis How long to wait at most
+     */
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void releaseBuffer(int[] pixels) {
+        // Keep as many buffers as there can be snapshots in flight
+        if (buffers.size() < ENCODER_THREADS + QUEUE_CAPACITY) {
+            buffers.offer(pixels);
+        }
+    }
+
+    /**
+     * Writes the pixels with ImageIO. The canvases are opaque, so the alpha
+     * channel is dropped.
+     */
+    static void encode(int[] pixels, int width, int height, File file, Format format) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        System.arraycopy(pixels, 0, data, 0, width * height);
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format.getExtension());
+        if (!writers.hasNext()) {
+            throw new IOException("No writer for " + format);
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (format == Format.JPEG) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        file.delete();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            if (output == null) throw new IOException("Can't write " + file);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.beans.ConstructorProperties;
+
+/**
+ * An immutable summary of the timings of a pipeline stage. Durations are in
+ * microseconds.
+ */
+public class StageStats {
+    private long count;
+    private double throughput;
+    private double meanMicros;
+    private double p50Micros;
+    private double p99Micros;
+    private double maxMicros;
+
+    @ConstructorProperties({"count", "throughput", "meanMicros", "p50Micros", "p99Micros", "maxMicros"})
+    public StageStats(long count, double throughput, double meanMicros,
+                      double p50Micros, double p99Micros, double maxMicros) {
+        this.count = count;
+        this.throughput = throughput;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * @return The number of times the stage ran
+     */
+    public long getCount() { return count; }
+
+    /**
+     * @return The average number of times per second the stage ran
+     */
+    public double getThroughput() { return throughput; }
+
+    /**
+     * @return The mean duration
+     */
+    public double getMeanMicros() { return meanMicros; }
+
+    /**
+     * @return The median duration
+     */
+    public double getP50Micros() { return p50Micros; }
+
+    /**
+     * @return The duration under which 99% of the runs fall
+     */
+    public double getP99Micros() { return p99Micros; }
+
+    /**
+     * @return The longest duration
+     */
+    public double getMaxMicros() { return maxMicros; }
+}
@@ -0,0 +1,93 @@
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates samples of a simulated suit, so the pipeline can be exercised
+ * (and load-tested) without an Arduino. Each message holds one sample per
+ * sensor, written in the Arduino's text format and parsed like a real one.
+ *
+ * Every sensor slowly swings its arm up/down and forwards/backwards, with
+ * gaussian noise on top.
+ */
+public class SyntheticSensorSource extends PollingSensorSource {
+    private double messagesPerSecond;
+    private int sensorCount;
+    private double noise;
+    private Random random;
+
+    private long startNanos;
+    private long messageCount;
+    private StringBuilder message = new StringBuilder();
+
+    /**
+     * @param messagesPerSecond The rate of the messages. 0 generates them as
+     *                          fast as they are consumed.
+     * @param sensorCount The number of sensors, with ids 1 to sensorCount
+     * @param noise The standard deviation of the noise, in degrees
+     * @param seed The seed of the noise, so runs can be reproduced
+     */
+    public SyntheticSensorSource(double messagesPerSecond, int sensorCount, double noise, long seed) {
+        this.messagesPerSecond = messagesPerSecond;
+        this.sensorCount = sensorCount;
+        this.noise = noise;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public synchronized void start(Listener listener) {
+        // The previous loop must be done with the counters before they reset
+        stop();
+        startNanos = System.nanoTime();
+        messageCount = 0;
+        super.start(listener);
+    }
+
+    @Override
+    protected List<Sample> poll() throws InterruptedException {
+        // Wait until the message is due. If we are late (eg. the consumer is
+        // slow), messages are produced back to back until we catch up.
+        long millis;
+        if (messagesPerSecond > 0) {
+            long due = startNanos + (long) (messageCount * 1e9 / messagesPerSecond);
+            long wait = due - System.nanoTime();
+            while (wait > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) throw new InterruptedException();
+                wait = due - System.nanoTime();
+            }
+            millis = (long) (messageCount * 1000 / messagesPerSecond);
+        } else {
+            millis = (System.nanoTime() - startNanos) / 1000000;
+        }
+        messageCount++;
+
+        message.setLength(0);
+        double t = millis / 1000.0;
+        for (int id = 1; id <= sensorCount; id++) {
+            double phase = id * 0.7;
+            double yaw = 180 + 90 * Math.sin(0.2 * t + phase);
+            double pitch = 45 * Math.sin(0.5 * t + phase);
+            double roll = -45 + 45 * Math.sin(0.3 * t + phase);
+            message.append("id ").append(id).append(" time ").append(millis).append(" x ");
+            appendAngle(yaw + random.nextGaussian() * noise);
+            message.append(" y ");
+            appendAngle(pitch + random.nextGaussian() * noise);
+            message.append(" z ");
+            appendAngle(roll + random.nextGaussian() * noise);
+            message.append('\n');
+        }
+        return Sample.parseMessage(message.toString());
+    }
+
+    // Appends the angle with 4 decimals, like the Arduino. Much cheaper than
+    // String.format(), which would dominate the load tests.
+    private void appendAngle(double angle) {
+        long tenThousandths = Math.round(Math.abs(angle) * 10000);
+        if (angle < 0 && tenThousandths > 0) message.append('-');
+        message.append(tenThousandths / 10000).append('.');
+        long fraction = tenThousandths % 10000;
+        for (long digit = 1000; digit > fraction && digit > 1; digit /= 10) message.append('0');
+        message.append(fraction);
+    }
+}
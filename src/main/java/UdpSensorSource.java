@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Receives the messages of a suit sending over Wi-Fi, as UDP datagrams.
+ *
+ * Each datagram holds one or more whole messages, in the grammar of the
+ * serial: either lines of samples, each message ended by the boundary line,
+ * or BinaryFrameDecoder frames. Datagrams starting with the binary start
+ * byte are decoded as frames, the others as text. A message can't span two
+ * datagrams, since UDP may drop or reorder them: what is left at the end of
+ * a datagram is dropped.
+ *
+ * The channel is non-blocking, and waits on a Selector on a dedicated
+ * thread, so the source can be stopped at any time. Every datagram waiting
+ * is drained before waiting again, into a direct buffer allocated once for
+ * the life of the source, so receiving allocates nothing and copies each
+ * byte once, into the ring of the decoders.
+ */
+public class UdpSensorSource implements SensorSource {
+    // The prefix of the sources in the list of ports, eg. "udp://9750"
+    public static final String SCHEME = "udp://";
+    public static final int DEFAULT_PORT = 9750;
+
+    // The largest UDP payload over IPv4
+    static final int MAX_DATAGRAM_SIZE = 65507;
+    // Holds the bursts of datagrams arriving while a message is delivered
+    private static final int RECEIVE_BUFFER_SIZE = 1 << 20;
+
+    private final int port;
+    private final String messageBoundary;
+
+    // Reused for every datagram, across restarts
+    private final ByteBuffer datagram = ByteBuffer.allocateDirect(MAX_DATAGRAM_SIZE);
+    private final ByteRing ring = new ByteRing(MAX_DATAGRAM_SIZE);
+
+    private Thread thread;
+    private Selector selector;
+    private DatagramChannel channel;
+    private volatile boolean running = false;
+    private volatile int localPort = -1;
+    private volatile long datagrams = 0;
+
+    /**
+     * @param port The UDP port to listen on, 0 for any free port
+     */
+    public UdpSensorSource(int port) {
+        this(port, "$");
+    }
+
+    /**
+     * @param port The UDP port to listen on, 0 for any free port
+     * @param messageBoundary The line that ends a text message
+     */
+    public UdpSensorSource(int port, String messageBoundary) {
+        this.port = port;
+        this.messageBoundary = messageBoundary;
+    }
+
+    /**
+     * @param name A name in the list of ports, eg. "udp://9750"
+     * @return Whether it names a UDP source rather than a serial port
+     */
+    public static boolean isUdp(String name) {
+        return name != null && name.startsWith(SCHEME);
+    }
+
+    /**
+     * @param name A name in the list of ports, eg. "udp://9750"
+     * @return The UDP port it names
+     * @throws IllegalArgumentException If it does not name a valid port
+     */
+    public static int parsePort(String name) {
+        try {
+            int port = Integer.parseInt(name.substring(SCHEME.length()));
+            if (port >= 0 && port <= 65535) return port;
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Not a UDP port: " + name);
+    }
+
+    @Override
+    public synchronized void start(Listener listener) {
+        stop();
+        try {
+            selector = Selector.open();
+            channel = DatagramChannel.open();
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_SIZE);
+            channel.bind(new InetSocketAddress(port));
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            localPort = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            close(channel, selector);
+            channel = null;
+            selector = null;
+            listener.streamFailed(e);
+            return;
+        }
+
+        running = true;
+        Selector selector = this.selector;
+        DatagramChannel channel = this.channel;
+        thread = new Thread(() -> run(listener, selector, channel), getClass().getSimpleName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (thread == null) return;
+        running = false;
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                // No message is delivered once the thread is done, and it
+                // closes the channel on its way out, so the selector is never
+                // closed under it and the port is free when stop() returns
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+        channel = null;
+        selector = null;
+    }
+
+    /**
+     * @return The port the source listens on, eg. when started on port 0,
+     *         or -1 if it was never started
+     */
+    public int getLocalPort() {
+        return localPort;
+    }
+
+    /**
+     * @return The number of datagrams received since the source was created
+     */
+    public long getDatagrams() {
+        return datagrams;
+    }
+
+    private static void close(DatagramChannel channel, Selector selector) {
+        try {
+            if (channel != null) channel.close();
+            if (selector != null) selector.close();
+        } catch (IOException e) {
+            System.err.println("Could not close the UDP channel: " + e.getMessage());
+        }
+    }
+
+    // The receiving loop, on the thread of the source
+    private void run(Listener listener, Selector selector, DatagramChannel channel) {
+        Consumer<List<Sample>> deliver = samples -> {
+            if (running) listener.messageReceived(samples);
+        };
+        FrameDecoder text = new SampleFrameAssembler(messageBoundary, deliver);
+        FrameDecoder binary = new BinaryFrameDecoder(deliver);
+
+        try {
+            while (running) {
+                selector.select();
+                selector.selectedKeys().clear();
+                // Drain every datagram waiting, the channel does not block
+                while (running) {
+                    datagram.clear();
+                    if (channel.receive(datagram) == null) break;
+                    datagram.flip();
+                    datagrams++;
+                    if (!datagram.hasRemaining()) continue;
+
+                    FrameDecoder decoder = datagram.get(0) == BinaryFrameDecoder.START ? binary : text;
+                    decoder.reset();
+                    ring.clear();
+                    ring.readFrom(datagram);
+                    decoder.consume(ring);
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                running = false;
+                listener.streamFailed(e);
+            }
+        } finally {
+            close(channel, selector);
+        }
+    }
+}
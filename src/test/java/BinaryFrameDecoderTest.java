@@ -0,0 +1,102 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryFrameDecoderTest {
+    private List<List<Sample>> messages;
+    private BinaryFrameDecoder decoder;
+    private ByteRing ring;
+
+    @Before
+    public void beforeEach() {
+        messages = new ArrayList<>();
+        decoder = new BinaryFrameDecoder(messages::add);
+        ring = new ByteRing(64);
+    }
+
+    private void feed(byte[] bytes, int chunk) {
+        for (int i = 0; i < bytes.length; i += chunk) {
+            ring.write(bytes, i, Math.min(chunk, bytes.length - i));
+            decoder.consume(ring);
+        }
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) length += part.length;
+        byte[] all = new byte[length];
+        int offset = 0;
+        for (byte[] part : parts) {
+            System.arraycopy(part, 0, all, offset, part.length);
+            offset += part.length;
+        }
+        return all;
+    }
+
+    // should decode the frames it encodes, split across any number of chunks
+    @Test
+    public void decodesChunkedFrames() {
+        byte[] first = BinaryFrameDecoder.encode(Arrays.asList(
+                new Sample(2, 4000000000L, 3.5, 1.5, 2.5),
+                new Sample(3, 100, -3.5, -1.5, -2.5)));
+        byte[] second = BinaryFrameDecoder.encode(Arrays.asList(new Sample(2, 200, 6.5, 4.5, 5.5)));
+        assertEquals(2 + 2 * BinaryFrameDecoder.SAMPLE_SIZE + 1, first.length);
+
+        feed(concat(first, second), 5);
+
+        assertEquals(2, messages.size());
+        Sample sample = messages.get(0).get(0);
+        assertEquals(2, sample.sensorId);
+        assertEquals(4000000000L, sample.timestamp);
+        assertEquals(1.5, sample.yaw, 0.00001);
+        assertEquals(2.5, sample.pitch, 0.00001);
+        assertEquals(3.5, sample.roll, 0.00001);
+        assertEquals(3, messages.get(0).get(1).sensorId);
+        assertEquals(200, messages.get(1).get(0).timestamp);
+    }
+
+    // should skip garbage and corrupted frames, and find the next frame
+    @Test
+    public void resynchronises() {
+        byte[] frame = BinaryFrameDecoder.encode(Arrays.asList(new Sample(2, 100, 3.5, 1.5, 2.5)));
+        byte[] corrupted = frame.clone();
+        corrupted[7] ^= 0x10;
+        // Text left over from before the switch to binary, with a start
+        // byte in the data of the corrupted frame
+        byte[] garbage = "id 2 time 1\n$\n".getBytes();
+        corrupted[10] = BinaryFrameDecoder.START;
+
+        feed(concat(garbage, corrupted, frame), 64);
+
+        assertEquals(1, messages.size());
+        assertEquals(100, messages.get(0).get(0).timestamp);
+    }
+
+    // should find the frames held in a corrupted one, and the frames after it
+    @Test
+    public void resynchronisesWithinTheFrame() {
+        byte[] inner = BinaryFrameDecoder.encode(Arrays.asList(new Sample(2, 100, 3.5, 1.5, 2.5)));
+        byte[] next = BinaryFrameDecoder.encode(Arrays.asList(new Sample(2, 200, 3.5, 1.5, 2.5)));
+        // A frame of 3 samples, whose data starts with a whole frame
+        byte[] corrupted = new byte[2 + 3 * BinaryFrameDecoder.SAMPLE_SIZE + 1];
+        corrupted[0] = BinaryFrameDecoder.START;
+        corrupted[1] = 3;
+        System.arraycopy(inner, 0, corrupted, 2, inner.length);
+        byte checksum = 0;
+        for (int i = 1; i < corrupted.length - 1; i++) checksum ^= corrupted[i];
+        corrupted[corrupted.length - 1] = (byte) (checksum ^ 1);
+        long invalid = PipelineMetrics.get().getInvalidLines();
+
+        feed(concat(corrupted, next), 7);
+
+        assertEquals(2, messages.size());
+        assertEquals(100, messages.get(0).get(0).timestamp);
+        assertEquals(200, messages.get(1).get(0).timestamp);
+        assertEquals(invalid + 1, PipelineMetrics.get().getInvalidLines());
+    }
+}
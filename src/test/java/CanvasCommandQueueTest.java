@@ -0,0 +1,90 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class CanvasCommandQueueTest {
+
+    // should run the commands in the order they were queued
+    @Test
+    public void drainsInOrder() {
+        CanvasCommandQueue queue = new CanvasCommandQueue(4);
+        queue.offer(CanvasCommandQueue.Command.POSE, 1);
+        queue.offer(CanvasCommandQueue.Command.CLEAR, null);
+        queue.offer(CanvasCommandQueue.Command.POSE, 2);
+
+        List<Object> drained = new ArrayList<>();
+        assertEquals(3, queue.drain((command, argument) -> drained.add(argument != null ? argument : command)));
+        assertEquals(3, drained.size());
+        assertEquals(1, drained.get(0));
+        assertEquals(CanvasCommandQueue.Command.CLEAR, drained.get(1));
+        assertEquals(2, drained.get(2));
+        assertEquals(0, queue.size());
+    }
+
+    // should refuse commands when full, keeping the reserved slots for the others
+    @Test
+    public void keepsReservedSlots() {
+        CanvasCommandQueue queue = new CanvasCommandQueue(4);
+        assertTrue(queue.offer(CanvasCommandQueue.Command.POSE, null, 2));
+        assertTrue(queue.offer(CanvasCommandQueue.Command.POSE, null, 2));
+        assertFalse(queue.offer(CanvasCommandQueue.Command.POSE, null, 2));
+
+        assertTrue(queue.offer(CanvasCommandQueue.Command.CLEAR, null));
+        assertTrue(queue.offer(CanvasCommandQueue.Command.SAVE, null));
+        assertFalse(queue.offer(CanvasCommandQueue.Command.FINAL_RENDER, null));
+
+        queue.drain((command, argument) -> {});
+        // The slots are reused once drained
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(CanvasCommandQueue.Command.POSE, i));
+        }
+    }
+
+    // should not lose nor reorder the commands of concurrent producers
+    @Test
+    public void concurrentProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 20000;
+        CanvasCommandQueue queue = new CanvasCommandQueue(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(CanvasCommandQueue.Command.POSE, new int[] { producer, i })) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        int[] next = new int[producers];
+        int[] received = new int[1];
+        start.countDown();
+        while (received[0] < producers * perProducer) {
+            queue.drain((command, argument) -> {
+                int[] value = (int[]) argument;
+                assertEquals(next[value[0]]++, value[1]);
+                received[0]++;
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int p = 0; p < producers; p++) {
+            assertEquals(perProducer, next[p]);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CanvasRegistryTest {
+    private CanvasRegistry<FakeCanvas> registry;
+    private List<FakeCanvas> mounted;
+
+    @Before
+    public void beforeEach() {
+        registry = new CanvasRegistry<>(1);
+        mounted = new ArrayList<>();
+    }
+
+    private FakeCanvas show(String name) {
+        return show(name, 800, 600);
+    }
+
+    private FakeCanvas show(String name, int width, int height) {
+        return registry.show(Collections.singletonList(new FakeProvider(name)), width, height,
+                mounted::addAll).get(0);
+    }
+
+    // should create a canvas once, then suspend and resume it
+    @Test
+    public void createsOnceThenResumes() {
+        FakeCanvas front = show("front");
+        FakeCanvas side = show("side");
+        FakeCanvas again = show("front");
+
+        assertSame(front, again);
+        assertEquals(Arrays.asList("init", "stop", "start"), front.calls);
+        assertEquals(Arrays.asList("init", "stop"), side.calls);
+        assertEquals(2, registry.getLiveCount());
+    }
+
+    // should destroy the least recently used suspended canvas
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        FakeCanvas front = show("front");
+        FakeCanvas side = show("side");
+        show("sketch");
+
+        assertTrue(front.destroyed);
+        assertFalse(side.destroyed);
+        assertEquals(2, registry.getLiveCount());
+    }
+
+    // should make a canvas shown again the most recently used one
+    @Test
+    public void hitRefreshesRecency() {
+        FakeCanvas front = show("front");
+        FakeCanvas side = show("side");
+        show("front");
+        show("sketch");
+
+        assertFalse(front.destroyed);
+        assertTrue(side.destroyed);
+    }
+
+    // should keep every canvas shown together alive, whatever the limit
+    @Test
+    public void keepsTheShownCanvases() {
+        registry = new CanvasRegistry<>(0);
+        List<FakeCanvas> shown = registry.show(Arrays.asList(new FakeProvider("front"),
+                new FakeProvider("side"), new FakeProvider("sketch")), 400, 300, mounted::addAll);
+
+        assertEquals(shown, mounted);
+        for (FakeCanvas canvas : shown) assertFalse(canvas.destroyed);
+        assertEquals(3, registry.getLiveCount());
+    }
+
+    // should replace the canvas of a style shown at another size, without counting both
+    @Test
+    public void recreatesAtAnotherSize() {
+        FakeCanvas side = show("side");
+        FakeCanvas full = show("front", 800, 600);
+        FakeCanvas split = show("front", 400, 600);
+
+        assertNotSame(full, split);
+        assertTrue(full.destroyed);
+        assertFalse(side.destroyed);
+        assertEquals(Arrays.asList("init", "destroy"), full.calls);
+        assertEquals(2, registry.getLiveCount());
+    }
+
+    // should destroy every live canvas
+    @Test
+    public void destroysAll() {
+        FakeCanvas front = show("front");
+        FakeCanvas side = show("side");
+        registry.destroyAll();
+
+        assertTrue(front.destroyed);
+        assertTrue(side.destroyed);
+        assertEquals(0, registry.getLiveCount());
+    }
+
+    private static class FakeCanvas implements CanvasRegistry.Lifecycle {
+        final List<String> calls = new ArrayList<>();
+        boolean destroyed = false;
+
+        public void init() {
+            calls.add("init");
+        }
+
+        public void start() {
+            calls.add("start");
+        }
+
+        public void stop() {
+            calls.add("stop");
+        }
+
+        public void destroy() {
+            calls.add("destroy");
+            destroyed = true;
+        }
+    }
+
+    private static class FakeProvider implements CanvasRegistry.Factory<FakeCanvas> {
+        private final String name;
+
+        FakeProvider(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public FakeCanvas create(int canvasWidth, int canvasHeight) {
+            return new FakeCanvas();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import org.junit.Test;
+import processing.core.PConstants;
+import processing.core.PImage;
+
+import static org.junit.Assert.*;
+
+public class DensityColorizerTest {
+    private static final int SIZE = 200;
+
+    // The colors computed the way deJongAttractor.plot() used to
+    private static int reference(int density, float previousx, float logMaxDensity, int boost, int old) {
+        float log = (float) Math.log(density);
+        float hue = 128 + 127 * previousx / SIZE;
+        float saturation = 128 - 128 * log / logMaxDensity;
+        float brightness = 255 * log / logMaxDensity + boost;
+        return PImage.blendColor(DensityColorizer.hsb(hue, saturation, brightness), old, PConstants.SOFT_LIGHT);
+    }
+
+    private static void assertClose(int expected, int actual) {
+        for (int shift = 0; shift < 24; shift += 8) {
+            int e = expected >> shift & 0xFF;
+            int a = actual >> shift & 0xFF;
+            assertTrue("expected " + Integer.toHexString(expected) + " got " + Integer.toHexString(actual),
+                    Math.abs(e - a) <= 4);
+        }
+    }
+
+    // should give the same colors as the full computation, within rounding
+    @Test
+    public void matchesReference() {
+        // Enough cells to be colored in parallel
+        int count = SIZE * SIZE;
+        DensityMap map = new DensityMap(SIZE);
+        map.clear();
+        int[] density = new int[count];
+        float[] previousx = new float[count];
+        int[] pixels = new int[count];
+        int[] old = new int[count];
+        int maxDensity = 0;
+        for (int i = 0; i < count; i++) {
+            density[i] = 1 + (i * 7919) % 300;
+            previousx[i] = (i * 31) % SIZE;
+            old[i] = 0xFF000000 | i * 40503;
+            for (int n = 0; n < density[i]; n++) {
+                map.add(i / SIZE, i % SIZE, previousx[i]);
+            }
+            maxDensity = Math.max(maxDensity, density[i]);
+        }
+        float logMax = (float) Math.log(maxDensity);
+
+        for (int boost : new int[] { 0, 50 }) {
+            System.arraycopy(old, 0, pixels, 0, count);
+            new DensityColorizer().colorize(map, logMax, boost, pixels);
+            for (int i = 0; i < count; i++) {
+                assertClose(reference(density[i], previousx[i], logMax, boost, old[i]), pixels[i]);
+            }
+        }
+    }
+
+    // should only touch the cells written since the map was cleared
+    @Test
+    public void onlyTouchedCells() {
+        int[] pixels = new int[SIZE * SIZE];
+        DensityMap map = new DensityMap(SIZE);
+        map.add(1, 2, 0);
+        map.clear();
+        for (int n = 0; n < 10; n++) {
+            map.add(0, 5, 0);
+        }
+        new DensityColorizer().colorize(map, (float) Math.log(10), 0, pixels);
+
+        for (int i = 0; i < pixels.length; i++) {
+            if (i != 5) assertEquals(0, pixels[i]);
+        }
+        assertNotEquals(0, pixels[5]);
+    }
+}
@@ -0,0 +1,80 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DensityMapTest {
+    private static final int SIZE = 64;
+
+    // should keep counting past what a char holds
+    @Test
+    public void countsPastSaturation() {
+        DensityMap map = new DensityMap(SIZE);
+        int count = 0;
+        for (int n = 0; n < 70000; n++) {
+            count = map.add(3, 4, 0);
+        }
+        map.add(5, 6, 0);
+
+        assertEquals(70000, count);
+        assertEquals(70000, map.count(3 * SIZE + 4));
+        assertEquals(1, map.count(5 * SIZE + 6));
+
+        // The overflow is emptied with the map
+        map.clear();
+        assertEquals(1, map.add(3, 4, 0));
+        assertEquals(1, map.count(3 * SIZE + 4));
+    }
+
+    // should empty the cells on every clear, also when the epochs wrap around
+    @Test
+    public void clearsThroughEpochWrap() {
+        DensityMap map = new DensityMap(SIZE);
+        for (int cycle = 0; cycle < 3; cycle++) {
+            // A cell written once, then left alone for a full cycle of epochs
+            map.add(1, 1, 0);
+            for (int clears = 0; clears < 255; clears++) {
+                map.clear();
+                assertEquals(1, map.add(2, 2, 0));
+                assertEquals(1, map.getTouchedCount());
+            }
+            map.clear();
+            assertEquals(1, map.add(1, 1, 0));
+            map.clear();
+        }
+    }
+
+    // should quantize the hue over the width of the grid
+    @Test
+    public void quantizesHue() {
+        DensityMap map = new DensityMap(SIZE);
+        map.add(0, 0, 0);
+        map.add(0, 1, SIZE);
+        map.add(0, 2, SIZE / 2f);
+        map.add(0, 3, -10);
+
+        assertEquals(0, map.hue(0));
+        assertEquals(DensityMap.HUES - 1, map.hue(1));
+        assertEquals(DensityMap.HUES / 2, map.hue(2));
+        assertEquals(0, map.hue(3));
+    }
+
+    // should list every cell written, once, and hand them over on clear
+    @Test
+    public void listsTouchedCells() {
+        DensityMap map = new DensityMap(SIZE * 4);
+        int cells = SIZE * 4 * SIZE * 4;
+        for (int round = 0; round < 2; round++) {
+            for (int cell = 0; cell < cells; cell++) {
+                map.add(cell / (SIZE * 4), cell % (SIZE * 4), 0);
+            }
+        }
+        assertEquals(cells, map.getTouchedCount());
+        assertEquals(cells - 1, map.getTouched()[cells - 1]);
+
+        map.clear();
+        assertEquals(0, map.getTouchedCount());
+        assertEquals(cells, map.getClearedCount());
+        map.forgetCleared();
+        assertEquals(0, map.getClearedCount());
+    }
+}
@@ -0,0 +1,60 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FadeCompositorTest {
+    private static final long MILLI = 1000000;
+
+    // Fades a pixel for the given time, at the given frame rate
+    private static int fade(int pixel, int fps, long millis) {
+        FadeCompositor fade = new FadeCompositor(250);
+        int[] pixels = { pixel };
+        long frame = 1000000000L / fps;
+        for (long time = 0; time < millis * MILLI; time += frame) {
+            if (fade.update(time)) fade.apply(pixels, 1, 1);
+        }
+        if (fade.update(millis * MILLI)) fade.apply(pixels, 1, 1);
+        return pixels[0];
+    }
+
+    // should halve the brightness every half-life, whatever the frame rate
+    @Test
+    public void halvesEveryHalfLife() {
+        for (int fps : new int[] { 30, 60, 240, 1000 }) {
+            int blue = fade(0xFF0000C8, fps, 250) & 0xFF;
+            // Up to MIN_DECAY of the time may be left pending, and each pass
+            // rounds down
+            assertTrue(fps + " fps gave " + blue, blue >= 88 && blue <= 107);
+        }
+    }
+
+    // should fade each channel, keep the alpha and reach black
+    @Test
+    public void fadesChannelsToBlack() {
+        FadeCompositor fade = new FadeCompositor(100);
+        int[] pixels = { 0x80FF8040, 0xFF010101 };
+        fade.update(0);
+        assertTrue(fade.update(100 * MILLI));
+        fade.apply(pixels, 2, 1);
+        assertEquals(0x807F4020, pixels[0]);
+        assertEquals(0xFF000000, pixels[1]);
+
+        for (int frame = 2; frame < 30; frame++) {
+            if (fade.update(frame * 100 * MILLI)) fade.apply(pixels, 2, 1);
+        }
+        assertEquals(0x80000000, pixels[0]);
+    }
+
+    // should wait until enough time has passed, and not fade across a reset
+    @Test
+    public void defersShortFrames() {
+        FadeCompositor fade = new FadeCompositor(1000);
+        assertFalse(fade.update(0));
+        assertFalse(fade.update(MILLI));
+        assertFalse(fade.update(2 * MILLI));
+
+        fade.reset();
+        assertFalse(fade.update(10000 * MILLI));
+        assertFalse(fade.update(10001 * MILLI));
+    }
+}
@@ -0,0 +1,98 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FlowControllerTest {
+    private static final long MILLI = 1000000;
+
+    private List<Integer> sent;
+    private FlowController flow;
+
+    @Before
+    public void beforeEach() {
+        sent = new ArrayList<>();
+        flow = new FlowController(sent::add, 10, 200, 100);
+    }
+
+    // should halve the rate when the queue is too deep, once per interval, down to the minimum
+    @Test
+    public void decreasesMultiplicatively() throws Exception {
+        for (long time = 0; time <= 1000; time += 10) {
+            flow.update(FlowController.HIGH_WATER + 1, time * MILLI);
+        }
+        assertEquals(50, (int) sent.get(0));
+        assertEquals(25, (int) sent.get(1));
+        assertEquals(12, (int) sent.get(2));
+        assertEquals(10, flow.getRate());
+    }
+
+    // should increase the rate step by step while the queue stays empty, and hold it in between
+    @Test
+    public void increasesAdditively() throws Exception {
+        flow.update(0, 0);
+        flow.update(0, 999 * MILLI);
+        assertTrue(sent.isEmpty());
+        flow.update(0, 1000 * MILLI);
+        assertEquals(105, flow.getRate());
+
+        // A busy queue holds the rate, and delays the next increase
+        flow.update(FlowController.LOW_WATER + 1, 1500 * MILLI);
+        flow.update(0, 2100 * MILLI);
+        assertEquals(105, flow.getRate());
+        flow.update(0, 3100 * MILLI);
+        assertEquals(110, flow.getRate());
+
+        for (long time = 4000; time < 60000; time += 100) {
+            flow.update(0, time * MILLI);
+        }
+        assertEquals(200, flow.getRate());
+        assertEquals(200, (int) sent.get(sent.size() - 1));
+    }
+
+    // should format the commands of the Arduino
+    @Test
+    public void formatsCommands() {
+        assertEquals("!rate 50", DeviceCommands.rate(50));
+        assertEquals("!mask 6", DeviceCommands.sensorMask(0b110));
+        assertEquals("!mode binary", DeviceCommands.mode(DeviceCommands.Mode.BINARY));
+    }
+
+    // should return at once while a rate is being sent, then send only the latest rate
+    @Test
+    public void asyncSinkSendsLatestRate() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> rates = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        FlowController.AsyncRateSink sink = new FlowController.AsyncRateSink(rate -> {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            synchronized (rates) { rates.add(rate); }
+            done.countDown();
+        });
+
+        sink.setRate(50);
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        sink.setRate(25);
+        sink.setRate(30);
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        synchronized (rates) {
+            assertEquals(2, rates.size());
+            assertEquals(50, (int) rates.get(0));
+            assertEquals(30, (int) rates.get(1));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class FrameRecorderTest {
+    private static final int WIDTH = 32;
+    private static final int HEIGHT = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String fourcc(ByteBuffer buffer, int position) {
+        byte[] code = new byte[4];
+        for (int i = 0; i < 4; i++) code[i] = buffer.get(position + i);
+        return new String(code, StandardCharsets.US_ASCII);
+    }
+
+    // should write an AVI whose headers, chunks and index describe every frame
+    @Test
+    public void writesMotionJpeg() throws Exception {
+        File file = new File(folder.getRoot(), "video.avi");
+        MjpegAviWriter writer = new MjpegAviWriter(file, WIDTH, HEIGHT, 30);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int frame = 0; frame < 3; frame++) {
+            Arrays.fill(pixels, 0xFF000000 | frame * 80 << 16);
+            writer.writeFrame(pixels, WIDTH, HEIGHT);
+        }
+        writer.close();
+
+        ByteBuffer avi = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("RIFF", fourcc(avi, 0));
+        assertEquals(avi.capacity() - 8, avi.getInt(4));
+        assertEquals("AVI ", fourcc(avi, 8));
+        assertEquals(3, avi.getInt(48));
+        assertEquals(WIDTH, avi.getInt(64));
+        assertEquals(HEIGHT, avi.getInt(68));
+        assertEquals("movi", fourcc(avi, 220));
+
+        // The index follows the movi list
+        int idx1 = 220 + avi.getInt(216);
+        assertEquals("idx1", fourcc(avi, idx1));
+        assertEquals(3 * 16, avi.getInt(idx1 + 4));
+        for (int frame = 0; frame < 3; frame++) {
+            int entry = idx1 + 8 + frame * 16;
+            int chunk = 220 + avi.getInt(entry + 8);
+            int size = avi.getInt(entry + 12);
+            assertEquals("00dc", fourcc(avi, chunk));
+            assertEquals(size, avi.getInt(chunk + 4));
+
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(avi.array(), chunk + 8, size));
+            assertEquals(WIDTH, image.getWidth());
+            assertEquals(HEIGHT, image.getHeight());
+        }
+    }
+
+    // should go on in a new, complete file before a file grows past its limit
+    @Test
+    public void rollsOverToNewFiles() throws Exception {
+        File file = new File(folder.getRoot(), "video.avi");
+        MjpegAviWriter writer = new MjpegAviWriter(file, WIDTH, HEIGHT, 30, 2000);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int frame = 0; frame < 20; frame++) {
+            Arrays.fill(pixels, 0xFF000000 | frame * 10 << 8);
+            writer.writeFrame(pixels, WIDTH, HEIGHT);
+        }
+        writer.close();
+
+        assertEquals(20, writer.getFrameCount());
+        assertTrue(writer.getFiles().size() > 1);
+        assertEquals(file, writer.getFiles().get(0));
+        assertEquals("video-2.avi", writer.getFiles().get(1).getName());
+
+        int frames = 0;
+        for (File part : writer.getFiles()) {
+            ByteBuffer avi = ByteBuffer.wrap(Files.readAllBytes(part.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+            assertTrue(avi.capacity() <= 2000);
+            assertEquals(avi.capacity() - 8, avi.getInt(4));
+            int idx1 = 220 + avi.getInt(216);
+            assertEquals("idx1", fourcc(avi, idx1));
+            assertEquals(avi.getInt(48) * 16, avi.getInt(idx1 + 4));
+            frames += avi.getInt(48);
+        }
+        assertEquals(20, frames);
+    }
+
+    // should repeat frames to fill the time between uneven captures, so the video keeps their pace
+    @Test
+    public void keepsThePaceOfTheCapture() throws Exception {
+        File file = new File(folder.getRoot(), "video.avi");
+        MjpegAviWriter writer = new MjpegAviWriter(file, WIDTH, HEIGHT, 30);
+        FrameRecorder recorder = new FrameRecorder(writer, WIDTH, HEIGHT, 8);
+        long start = 5000000000L;
+        long[] captures = { 0, 16, 50, 51, 200, 1000 };
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (long millis : captures) {
+            Arrays.fill(pixels, 0xFF000000 | (int) millis);
+            assertTrue(recorder.capture(pixels, start + millis * 1000000L));
+        }
+        recorder.stop();
+
+        // One frame every 1/30 s over the second elapsed, and the last one
+        assertEquals(30 + 1, writer.getFrameCount());
+        ByteBuffer avi = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(31, avi.getInt(48));
+        assertEquals(31, avi.getInt(140));
+        int idx1 = 220 + avi.getInt(216);
+        assertEquals(31 * 16, avi.getInt(idx1 + 4));
+
+        // Only the captured frames are stored, the others index them again
+        int[] chunks = new int[31];
+        for (int frame = 0; frame < 31; frame++) {
+            chunks[frame] = avi.getInt(idx1 + 8 + frame * 16 + 8);
+        }
+        assertEquals(6, Arrays.stream(chunks).distinct().count());
+        // The frame captured at 200 ms shows from 0.2 s until the last one
+        assertEquals(chunks[4], chunks[5]);
+        assertNotEquals(chunks[5], chunks[6]);
+        assertEquals(chunks[6], chunks[29]);
+        assertNotEquals(chunks[29], chunks[30]);
+    }
+
+    // should write the repeated frame again at the start of a new file
+    @Test
+    public void repeatsAcrossFiles() throws Exception {
+        File file = new File(folder.getRoot(), "video.avi");
+        MjpegAviWriter writer = new MjpegAviWriter(file, WIDTH, HEIGHT, 30, 1000);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        writer.writeFrame(pixels, WIDTH, HEIGHT, 0);
+        writer.writeFrame(pixels, WIDTH, HEIGHT, 3000000000L);
+        writer.close();
+
+        assertEquals(91, writer.getFrameCount());
+        assertTrue(writer.getFiles().size() > 1);
+        int frames = 0;
+        for (File part : writer.getFiles()) {
+            ByteBuffer avi = ByteBuffer.wrap(Files.readAllBytes(part.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+            assertTrue(avi.capacity() <= 1000);
+            int idx1 = 220 + avi.getInt(216);
+            assertEquals(avi.getInt(48) * 16, avi.getInt(idx1 + 4));
+            // Every file starts with a chunk of its own
+            assertEquals("00dc", fourcc(avi, 220 + avi.getInt(idx1 + 8 + 8)));
+            frames += avi.getInt(48);
+        }
+        assertEquals(91, frames);
+    }
+
+    // should drop the frames instead of blocking when the sink is too slow
+    @Test
+    public void dropsWhenSinkIsSlow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FrameSink slowSink = new FrameSink() {
+            public void writeFrame(int[] pixels, int width, int height) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+
+            public void close() {}
+        };
+        FrameRecorder recorder = new FrameRecorder(slowSink, WIDTH, HEIGHT, 2);
+
+        int[] pixels = new int[WIDTH * HEIGHT];
+        int captured = 0;
+        for (int i = 0; i < 10; i++) {
+            if (recorder.capture(pixels)) captured++;
+        }
+        // Both buffers are held until the sink writes them
+        assertEquals(2, captured);
+        assertEquals(8, recorder.getDroppedFrames());
+
+        release.countDown();
+        recorder.stop();
+        assertEquals(captured, recorder.getRecordedFrames());
+        assertFalse(recorder.capture(pixels));
+    }
+}
@@ -0,0 +1,104 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JitterBufferTest {
+    private List<Sample> released;
+    private List<long[]> gaps;
+    private JitterBuffer buffer;
+
+    @Before
+    public void beforeEach() {
+        released = new ArrayList<>();
+        gaps = new ArrayList<>();
+        buffer = new JitterBuffer(30, 100, 8, released::add);
+        buffer.setGapListener((sensor, last, next) -> gaps.add(new long[] { sensor, last, next }));
+    }
+
+    private static Sample sample(int sensor, long time) {
+        return new Sample(sensor, time, 1.0 * time, 2.0, 3.0);
+    }
+
+    private long[] releasedTimes() {
+        long[] times = new long[released.size()];
+        for (int i = 0; i < times.length; i++) times[i] = released.get(i).timestamp;
+        return times;
+    }
+
+    // should release the samples in order, once the latency has passed
+    @Test
+    public void reordersWithinLatency() {
+        for (long time : new long[] { 0, 20, 10, 30, 50, 40, 60, 70 }) {
+            buffer.accept(sample(2, time));
+        }
+        assertArrayEquals(new long[] { 0, 10, 20, 30, 40 }, releasedTimes());
+        assertEquals(2, buffer.getReordered());
+
+        buffer.flush();
+        assertArrayEquals(new long[] { 0, 10, 20, 30, 40, 50, 60, 70 }, releasedTimes());
+    }
+
+    // should drop repeated and late samples, but keep different readings at the same time
+    @Test
+    public void dropsDuplicatesAndLate() {
+        buffer.accept(sample(2, 0));
+        buffer.accept(sample(2, 0));
+        buffer.accept(new Sample(2, 0, 5.0, 2.0, 3.0));
+        buffer.accept(sample(2, 50));
+        buffer.accept(new Sample(2, 0, 5.0, 2.0, 3.0));
+        buffer.accept(sample(2, 100));
+        buffer.accept(sample(2, 10));
+        buffer.flush();
+
+        assertArrayEquals(new long[] { 0, 0, 50, 100 }, releasedTimes());
+        assertEquals(2, buffer.getDuplicates());
+        assertEquals(1, buffer.getLate());
+    }
+
+    // should report the holes between released samples
+    @Test
+    public void reportsGaps() {
+        for (long time : new long[] { 0, 10, 300, 310 }) {
+            buffer.accept(sample(3, time));
+        }
+        buffer.flush();
+
+        assertEquals(1, gaps.size());
+        assertArrayEquals(new long[] { 3, 10, 300 }, gaps.get(0));
+        assertEquals(1, buffer.getGaps());
+    }
+
+    // should unwrap the millis() of the Arduino, also with reordering across the wrap
+    @Test
+    public void unwrapsMillis() {
+        long wrap = 1L << 32;
+        for (long time : new long[] { wrap - 20, wrap - 10, 5, wrap - 1, 15, 25, 60 }) {
+            buffer.accept(sample(2, time));
+        }
+        buffer.flush();
+
+        assertArrayEquals(new long[] { wrap - 20, wrap - 10, wrap - 1, wrap + 5, wrap + 15, wrap + 25, wrap + 60 },
+                releasedTimes());
+        assertEquals(0, buffer.getGaps());
+    }
+
+    // should keep each sensor separate, and hold at most the capacity
+    @Test
+    public void boundedPerSensor() {
+        buffer = new JitterBuffer(1000, 100, 4, released::add);
+        for (int i = 0; i < 6; i++) {
+            buffer.accept(sample(1, i));
+            buffer.accept(sample(2, 100 - i));
+        }
+        // Sensor 2 goes backwards: once full, its oldest is released, and
+        // the next one is late
+        assertArrayEquals(new long[] { 0, 96, 1 }, releasedTimes());
+        assertEquals(1, released.get(0).sensorId);
+        assertEquals(2, released.get(1).sensorId);
+        assertEquals(1, buffer.getLate());
+    }
+}
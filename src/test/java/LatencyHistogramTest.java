@@ -0,0 +1,65 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    private LatencyHistogram histogram;
+
+    @Before
+    public void beforeEach() {
+        histogram = new LatencyHistogram();
+    }
+
+    // should count, average and keep the maximum of recorded durations
+    @Test
+    public void basicStatistics() {
+        histogram.record(10);
+        histogram.record(20);
+        histogram.record(30);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(20, histogram.getMean(), 0.0001);
+        assertEquals(30, histogram.getMax());
+    }
+
+    // should compute percentiles within the precision of the buckets
+    @Test
+    public void percentiles() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(500000, histogram.getValueAtPercentile(50), 500000 * 0.07);
+        assertEquals(990000, histogram.getValueAtPercentile(99), 990000 * 0.07);
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+    }
+
+    // should forget everything on reset
+    @Test
+    public void reset() {
+        histogram.record(42);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    // should publish the stage statistics over JMX
+    @Test
+    public void publishedOverJmx() throws Exception {
+        PipelineMetrics.get().registerMBean();
+        PipelineMetrics.get().record(PipelineStage.PARSE, System.nanoTime());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CompositeData parse = (CompositeData) server.getAttribute(
+                new ObjectName(PipelineMetrics.OBJECT_NAME), "Parse");
+        assertTrue((Long) parse.get("count") >= 1);
+    }
+}
@@ -0,0 +1,88 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ModeSwitchingDecoderTest {
+    private static final byte[] TEXT = ("id 2 time 100 x 1.0000 y 2.0000 z 3.0000\n"
+            + "id 3 time 100 x 4.0000 y 5.0000 z 6.0000\n$\n").getBytes(StandardCharsets.US_ASCII);
+
+    private List<List<Sample>> messages;
+    private ByteRing ring;
+    private long invalidLines;
+
+    @Before
+    public void beforeEach() {
+        messages = new ArrayList<>();
+        ring = new ByteRing(64);
+        invalidLines = PipelineMetrics.get().getInvalidLines();
+    }
+
+    private void feed(FrameDecoder decoder, byte[] bytes, int chunk) {
+        for (int i = 0; i < bytes.length; i += chunk) {
+            ring.write(bytes, i, Math.min(chunk, bytes.length - i));
+            decoder.consume(ring);
+        }
+    }
+
+    private static byte[] frame(int sensorId, long timestamp) {
+        return BinaryFrameDecoder.encode(Arrays.asList(new Sample(sensorId, timestamp, 1.0, 2.0, 3.0)));
+    }
+
+    // should decode the text still on its way when switching to binary, then the frames
+    @Test
+    public void switchesToBinaryMidStream() {
+        ModeSwitchingDecoder decoder = new ModeSwitchingDecoder("$", DeviceCommands.Mode.TEXT, messages::add);
+        feed(decoder, TEXT, 7);
+        feed(decoder, Arrays.copyOfRange(TEXT, 0, 30), 7);
+        decoder.expect(DeviceCommands.Mode.BINARY);
+        assertSame(DeviceCommands.Mode.TEXT, decoder.getMode());
+
+        feed(decoder, Arrays.copyOfRange(TEXT, 30, TEXT.length), 7);
+        feed(decoder, frame(2, 200), 7);
+        feed(decoder, frame(2, 300), 7);
+
+        assertSame(DeviceCommands.Mode.BINARY, decoder.getMode());
+        assertEquals(4, messages.size());
+        assertEquals(2, messages.get(1).size());
+        assertEquals(200, messages.get(2).get(0).timestamp);
+        assertEquals(300, messages.get(3).get(0).timestamp);
+        assertEquals(invalidLines, PipelineMetrics.get().getInvalidLines());
+    }
+
+    // should decode the frame on its way when switching to text, even if it holds text bytes
+    @Test
+    public void switchesToTextMidStream() {
+        ModeSwitchingDecoder decoder = new ModeSwitchingDecoder("$", DeviceCommands.Mode.BINARY, messages::add);
+        // An 'i' sensor, and line feeds in the time
+        byte[] textLike = frame('i', 0x0A0A0A0AL);
+        feed(decoder, Arrays.copyOfRange(textLike, 0, 4), 4);
+        decoder.expect(DeviceCommands.Mode.TEXT);
+        feed(decoder, Arrays.copyOfRange(textLike, 4, textLike.length), 3);
+        feed(decoder, TEXT, 5);
+
+        assertSame(DeviceCommands.Mode.TEXT, decoder.getMode());
+        assertEquals(2, messages.size());
+        assertEquals('i', messages.get(0).get(0).sensorId);
+        assertEquals(0x0A0A0A0AL, messages.get(0).get(0).timestamp);
+        assertEquals(3, messages.get(1).get(1).sensorId);
+        assertEquals(invalidLines, PipelineMetrics.get().getInvalidLines());
+    }
+
+    // should keep decoding the previous encoding while the device doesn't switch
+    @Test
+    public void waitsForTheDevice() {
+        ModeSwitchingDecoder decoder = new ModeSwitchingDecoder("$", DeviceCommands.Mode.TEXT, messages::add);
+        decoder.expect(DeviceCommands.Mode.BINARY);
+        feed(decoder, TEXT, 64);
+        feed(decoder, TEXT, 64);
+
+        assertSame(DeviceCommands.Mode.TEXT, decoder.getMode());
+        assertEquals(2, messages.size());
+    }
+}
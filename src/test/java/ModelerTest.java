@@ -165,5 +165,47 @@ public class ModelerTest {
 		assertEquals(1 + 3, modeler.pastArmsCount());
 	}
 
+	// should recycle the poses once they leave the history and nobody retains them
+	@Test
+	public void recyclesPoses() {
+		Sample sample = new Sample(2, 0, -45.0, 10.0, 30.0);
+		PoseSnapshot kept = null;
+		for (int i = 0; i < Modeler.HISTORY_CAPACITY * 4; i++) {
+			modeler.newSensorReading(sample);
+			PoseSnapshot pose = modeler.getNextSample();
+			if (i == 10) kept = pose.retain();
+		}
+
+		// The history, the pose retained, and the one being recycled
+		assertTrue(modeler.getPosePool().getCreatedCount() <= Modeler.HISTORY_CAPACITY + 2);
+		assertEquals(10, kept.getSequence());
+		assertEquals(modeler.getMostRecentRightArm().elbowPos().getZ(), kept.getZ(PoseSnapshot.RIGHT_ELBOW), delta);
+		kept.release();
+	}
+
+	// should give the same joints as the Arm objects
+	@Test
+	public void posesMatchArms() {
+		Sample left = new Sample(1, 0, 24.0, 80.0, 23.0);
+		Sample right = new Sample(2, 0, -45.0, 10.0, 30.0);
+		modeler.newSensorReading(left, right);
+
+		modeler.getNextSample(); // the resting position
+		PoseSnapshot pose = modeler.getNextSample();
+		Arm leftArm = modeler.computeNewArmPosition(left, true);
+		Arm rightArm = modeler.computeNewArmPosition(right, false);
+		assertEquals(leftArm.wristPos().getX(), pose.getX(PoseSnapshot.LEFT_WRIST), delta);
+		assertEquals(leftArm.elbowPos().getY(), pose.getY(PoseSnapshot.LEFT_ELBOW), delta);
+		assertEquals(rightArm.elbowPos().getZ(), pose.getZ(PoseSnapshot.RIGHT_ELBOW), delta);
+		assertEquals(rightArm.wristPos(), pose.getRightArm().wristPos());
+		assertNull(modeler.getNextSample());
+	}
 
+	// should refuse to use a pose once released
+	@Test(expected = IllegalStateException.class)
+	public void releasedPoseCantBeRetained() {
+		PoseSnapshot pose = new PosePool(4).acquire(0);
+		pose.release();
+		pose.retain();
+	}
 }
\ No newline at end of file
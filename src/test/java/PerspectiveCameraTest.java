@@ -0,0 +1,70 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PerspectiveCameraTest {
+    private static final float TARGET_Y = -250;
+    private static final float DISTANCE = 2200;
+    private static final float NEAR = 50;
+
+    private PerspectiveCamera camera;
+    private float[] out = new float[2];
+
+    float delta = 0.001f;
+
+    @Before
+    public void beforeEach() {
+        camera = new PerspectiveCamera(TARGET_Y, DISTANCE, NEAR);
+        camera.update(0, 0, 800, 600);
+    }
+
+    // should project the target at the center, and scale the points by their depth
+    @Test
+    public void projectsInPerspective() {
+        camera.project(new float[] { 0, TARGET_Y, 0 }, 0, out, 0);
+        assertEquals(400, out[0], delta);
+        assertEquals(300, out[1], delta);
+
+        // The right of the body faces the camera, so it is on the left of the screen
+        camera.project(new float[] { 100, TARGET_Y, 0 }, 0, out, 0);
+        assertEquals(400 - 900 * 100 / 2200f, out[0], delta);
+
+        // Closer to the camera, the same height looks taller
+        camera.project(new float[] { 0, TARGET_Y + 120, 1000 }, 0, out, 0);
+        assertEquals(400, out[0], delta);
+        assertEquals(300 - 900 * 120 / 1200f, out[1], delta);
+        assertEquals(900, camera.getFocal(), delta);
+    }
+
+    // should give the depth the projection divides by, from any angle
+    @Test
+    public void measuresDepth() {
+        float[] points = { 0, TARGET_Y, 0, 100, TARGET_Y, 0, 0, TARGET_Y + 100, 0 };
+        assertEquals(DISTANCE, camera.depth(points, 0), delta);
+        assertEquals(DISTANCE, camera.depth(points, 3), delta);
+
+        // Turned a quarter, the right of the body comes closer
+        camera.update((float) (Math.PI / 2), 0, 800, 600);
+        assertEquals(DISTANCE - 100, camera.depth(points, 3), delta);
+        camera.project(points, 3, out, 0);
+        assertEquals(400, out[0], delta);
+
+        // Seen from above, the points above the target come closer
+        camera.update(0, (float) (Math.PI / 2), 800, 600);
+        assertEquals(DISTANCE - 100, camera.depth(points, 6), delta);
+    }
+
+    // should not project the points behind the near plane, nor the missing ones
+    @Test
+    public void clipsNearAndMissingPoints() {
+        camera.project(new float[] { 0, TARGET_Y, DISTANCE - NEAR + 10 }, 0, out, 0);
+        assertTrue(Float.isNaN(out[0]));
+
+        camera.project(new float[] { 0, TARGET_Y, DISTANCE - NEAR - 10 }, 0, out, 0);
+        assertEquals(400, out[0], delta);
+
+        camera.project(new float[] { Float.NaN, TARGET_Y, 0 }, 0, out, 0);
+        assertTrue(Float.isNaN(out[0]));
+    }
+}
@@ -0,0 +1,47 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PoseTrailTest {
+
+    // should replace the oldest poses once full, and list them from the oldest
+    @Test
+    public void wrapsAtCapacity() {
+        PoseTrail trail = new PoseTrail(3, 2);
+        for (int i = 0; i < 5; i++) {
+            trail.add(new float[] { i, i * 10 });
+        }
+
+        assertEquals(3, trail.size());
+        float[] points = trail.getPoints();
+        for (int age = 0; age < 3; age++) {
+            assertEquals(age + 2, points[trail.offset(age)], 0);
+            assertEquals((age + 2) * 10, points[trail.offset(age) + 1], 0);
+        }
+    }
+
+    // should keep a missing point as NaN, also once the ring wrapped
+    @Test
+    public void keepsMissingPoints() {
+        PoseTrail trail = new PoseTrail(2, 2);
+        trail.add(new float[] { 1, 1 });
+        trail.add(new float[] { Float.NaN, 0 });
+        trail.add(new float[] { 3, 3 });
+
+        assertTrue(Float.isNaN(trail.getPoints()[trail.offset(0)]));
+        assertEquals(3, trail.getPoints()[trail.offset(1)], 0);
+    }
+
+    // should start again from an empty trail when cleared
+    @Test
+    public void clears() {
+        PoseTrail trail = new PoseTrail(3, 1);
+        trail.add(new float[] { 1 });
+        trail.add(new float[] { 2 });
+        trail.clear();
+        trail.add(new float[] { 3 });
+
+        assertEquals(1, trail.size());
+        assertEquals(3, trail.getPoints()[trail.offset(0)], 0);
+    }
+}
@@ -0,0 +1,50 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ProjectionTest {
+    private static final float DELTA = 0.0001f;
+
+    private float[] out = new float[4];
+
+    // should draw the (z, y) plane for the front view, rebased to positive coordinates
+    @Test
+    public void frontView() {
+        Projection.FRONT.project(10, -250, 40, 300, 300, out, 0);
+
+        assertEquals(260, out[0], DELTA);
+        assertEquals(550, out[1], DELTA);
+    }
+
+    // should draw the (x, y) plane for the side view
+    @Test
+    public void sideView() {
+        Projection.SIDE.project(10, -250, 40, 300, 300, out, 2);
+
+        assertEquals(290, out[2], DELTA);
+        assertEquals(550, out[3], DELTA);
+    }
+
+    // should match the front and side views when orbiting the camera
+    @Test
+    public void orbitingCamera() {
+        float[] expected = new float[2];
+
+        Projection.orbit(0, 0).project(10, -250, 40, 300, 300, out, 0);
+        Projection.FRONT.project(10, -250, 40, 300, 300, expected, 0);
+        assertArrayEquals(expected, new float[] { out[0], out[1] }, DELTA);
+
+        Projection.orbit(90, 0).project(10, -250, 40, 300, 300, out, 0);
+        Projection.SIDE.project(10, -250, 40, 300, 300, expected, 0);
+        assertArrayEquals(expected, new float[] { out[0], out[1] }, DELTA);
+    }
+
+    // should tilt the vertical axis when the camera is above the arm
+    @Test
+    public void pitchedCamera() {
+        Projection.orbit(0, 90).project(100, 0, 0, 0, 0, out, 0);
+
+        assertEquals(0, out[0], DELTA);
+        assertEquals(100, out[1], DELTA);
+    }
+}
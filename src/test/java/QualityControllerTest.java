@@ -0,0 +1,67 @@
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QualityControllerTest {
+    private static final long MILLI = 1000000;
+
+    private QualityController controller = new QualityController("test");
+    private QualityKnob knob = controller.addKnob(new QualityKnob("points", 10, 30));
+
+    @After
+    public void tearDown() {
+        controller.dispose();
+    }
+
+    private void frames(int count, long nanos) {
+        for (int i = 0; i < count; i++) {
+            controller.frame(nanos);
+        }
+    }
+
+    // should turn the knobs down when the frames are over budget, down to their lowest
+    @Test
+    public void degradesWhenSlow() {
+        controller.setTargetFps(50);
+        long downgrades = PipelineMetrics.get().getQualityDowngrades();
+        frames(QualityController.SETTLE_FRAMES, 30 * MILLI);
+
+        assertEquals(0.8f, controller.getQuality(), 1e-6);
+        assertEquals(26, knob.get());
+        assertEquals(downgrades + 1, PipelineMetrics.get().getQualityDowngrades());
+        assertEquals(0.8f, PipelineMetrics.get().getQuality().get("test"), 1e-6);
+
+        frames(20 * QualityController.SETTLE_FRAMES, 30 * MILLI);
+        assertEquals(0, controller.getQuality(), 1e-6);
+        assertEquals(10, knob.get());
+    }
+
+    // should turn the knobs back up once there is time to spare, and hold them in between
+    @Test
+    public void recoversWithHeadroom() {
+        controller.setTargetFps(50);
+        frames(QualityController.SETTLE_FRAMES, 30 * MILLI);
+        float degraded = controller.getQuality();
+
+        // Within the band: neither up nor down
+        frames(10 * QualityController.SETTLE_FRAMES, 15 * MILLI);
+        assertEquals(degraded, controller.getQuality(), 1e-6);
+
+        frames(100 * QualityController.SETTLE_FRAMES, 5 * MILLI);
+        assertEquals(1, controller.getQuality(), 1e-6);
+        assertEquals(30, knob.get());
+    }
+
+    // should put the knobs back to their best when disabled
+    @Test
+    public void disabledKeepsBest() {
+        frames(5 * QualityController.SETTLE_FRAMES, 100 * MILLI);
+        assertTrue(knob.get() < 30);
+
+        controller.setEnabled(false);
+        assertEquals(30, knob.get());
+        frames(5 * QualityController.SETTLE_FRAMES, 100 * MILLI);
+        assertEquals(30, knob.get());
+    }
+}
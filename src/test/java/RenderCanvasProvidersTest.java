@@ -0,0 +1,43 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RenderCanvasProvidersTest {
+
+    // should discover the rendering styles in the order of the service file
+    @Test
+    public void discoversProviders() {
+        List<String> names = new ArrayList<>();
+        for (RenderCanvasProvider provider : RenderCanvasProviders.all()) {
+            names.add(provider.getName());
+        }
+
+        assertEquals(6, names.size());
+        assertEquals("2D Front View", names.get(0));
+        assertEquals("Render Generative Art", names.get(4));
+    }
+
+    // should find a rendering style by name, ignoring case and spaces
+    @Test
+    public void findsByName() {
+        assertEquals("Digital 3D Sketch", RenderCanvasProviders.get("Digital 3D Sketch").getName());
+        assertEquals("Digital 3D Sketch", RenderCanvasProviders.get("digital3dsketch").getName());
+        assertNull(RenderCanvasProviders.get(RenderCanvasProviders.NONE));
+    }
+
+    // should describe how each canvas wants its samples
+    @Test
+    public void declaresDispatch() {
+        RenderCanvasProvider side = RenderCanvasProviders.get("2D Side View");
+        assertSame(Projection.SIDE, side.getProjection());
+        assertTrue(side.getCapabilities().contains(CanvasCapability.DRAWS_MODEL));
+
+        RenderCanvasProvider sketch = RenderCanvasProviders.get("Digital 3D Sketch");
+        assertEquals(5, sketch.getSampleStride());
+        assertSame(Projection.FRONT, sketch.getProjection());
+        assertTrue(sketch.getCapabilities().contains(CanvasCapability.FINAL_RENDER));
+    }
+}
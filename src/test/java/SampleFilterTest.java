@@ -0,0 +1,99 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SampleFilterTest {
+    private SampleFilterChain chain;
+
+    double delta = 0.0001;
+
+    @Before
+    public void beforeEach() {
+        chain = new SampleFilterChain();
+    }
+
+    // should leave samples untouched when no filter is configured
+    @Test
+    public void passThroughWithoutFilters() {
+        Sample sample = chain.apply(new Sample(2, 100, 10.0, 20.0, 30.0));
+
+        assertEquals(10.0, sample.roll, delta);
+        assertEquals(20.0, sample.yaw, delta);
+        assertEquals(30.0, sample.pitch, delta);
+    }
+
+    // should remove an isolated spike with a moving median
+    @Test
+    public void medianRemovesSpikes() {
+        chain.setDefaultChain(() -> new MovingMedianFilter(3));
+        chain.apply(new Sample(2, 0, 10.0, 0.0, 0.0));
+        chain.apply(new Sample(2, 10, 10.0, 0.0, 0.0));
+        Sample spike = chain.apply(new Sample(2, 20, 90.0, 0.0, 0.0));
+
+        assertEquals(10.0, spike.roll, delta);
+    }
+
+    // should keep the state of each sensor separate
+    @Test
+    public void separateStatePerSensor() {
+        chain.setDefaultChain(() -> new KalmanFilter1D(0.01, 1));
+        chain.apply(new Sample(1, 0, 50.0, 0.0, 0.0));
+        Sample first = chain.apply(new Sample(2, 0, -50.0, 0.0, 0.0));
+
+        assertEquals(-50.0, first.roll, delta);
+    }
+
+    // should use the chain configured for a specific sensor
+    @Test
+    public void perSensorChain() {
+        chain.setChain(1, () -> new MovingMedianFilter(3));
+        chain.apply(new Sample(1, 0, 10.0, 0.0, 0.0));
+        chain.apply(new Sample(1, 10, 10.0, 0.0, 0.0));
+        chain.apply(new Sample(2, 0, 10.0, 0.0, 0.0));
+        chain.apply(new Sample(2, 10, 10.0, 0.0, 0.0));
+
+        assertEquals(10.0, chain.apply(new Sample(1, 20, 90.0, 0.0, 0.0)).roll, delta);
+        assertEquals(90.0, chain.apply(new Sample(2, 20, 90.0, 0.0, 0.0)).roll, delta);
+    }
+
+    // should not average values across the +-180 degrees seam
+    @Test
+    public void unwrapsAngles() {
+        chain.setDefaultChain(() -> new MovingMedianFilter(2));
+        chain.apply(new Sample(2, 0, 179.0, 0.0, 0.0));
+        Sample sample = chain.apply(new Sample(2, 10, -179.0, 0.0, 0.0));
+
+        assertEquals(180.0, sample.roll, delta);
+    }
+
+    // should keep the angles of a sensor spinning through several turns within (-180, 180]
+    @Test
+    public void wrapsSpinningAngles() {
+        chain.setDefaultChain(() -> new MovingMedianFilter(3));
+        double raw = 0;
+        for (int i = 0; i < 200; i++) {
+            raw += 25;
+            double wrapped = raw % 360 > 180 ? raw % 360 - 360 : raw % 360;
+            Sample sample = chain.apply(new Sample(2, i * 10, wrapped, 0.0, 0.0));
+            assertTrue(sample.roll > -180 && sample.roll <= 180);
+            if (i > 2) {
+                // The median of the last 3 is the previous angle
+                double expected = (raw - 25) % 360 > 180 ? (raw - 25) % 360 - 360 : (raw - 25) % 360;
+                assertEquals(expected, sample.roll, delta);
+            }
+        }
+    }
+
+    // should follow a still signal exactly, and smooth out jitter
+    @Test
+    public void oneEuroSmoothsJitter() {
+        OneEuroFilter filter = new OneEuroFilter(1.0, 0.0, 1.0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(5.0, filter.filter(5.0, i / 100.0), delta);
+        }
+
+        double filtered = filter.filter(6.0, 1.0);
+        assertTrue(filtered > 5.0 && filtered < 6.0);
+    }
+}
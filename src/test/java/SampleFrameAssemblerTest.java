@@ -0,0 +1,114 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SampleFrameAssemblerTest {
+    private List<List<Sample>> messages;
+    private SampleFrameAssembler assembler;
+    private ByteRing ring;
+
+    @Before
+    public void beforeEach() {
+        messages = new ArrayList<>();
+        assembler = new SampleFrameAssembler("$", messages::add);
+        ring = new ByteRing(64);
+    }
+
+    // should parse a line from bytes like parseMessage does
+    @Test
+    public void parseLineMatchesParseMessage() {
+        String line = "id 55 time 25262 x 352.6250 y -0.5625 z -100.1875 ";
+        Sample expected = Sample.parseMessage(line).get(0);
+        Sample sample = parse(line);
+
+        assertEquals(expected.sensorId, sample.sensorId);
+        assertEquals(expected.timestamp, sample.timestamp);
+        assertEquals(expected.yaw, sample.yaw, 0.00001);
+        assertEquals(expected.pitch, sample.pitch, 0.00001);
+        assertEquals(expected.roll, sample.roll, 0.00001);
+    }
+
+    // should reject malformed lines
+    @Test
+    public void parseLineRejectsMalformedLines() {
+        assertNull(parse("id 1:)55 time 19299 x 159.9375 y -139.8750 z -122.6250"));
+        assertNull(parse("?id 55 time 9299 x 359.9375 y -39.8750 z -22.6250"));
+        assertNull(parse("id 55 time 9299 x 359.9375 y -39.8750"));
+        assertNull(parse("id 55 time 9299 x 359.9375 y -39.8750 z -22.6250 extra"));
+        assertNull(parse("id 55 time 9299 x - y -39.8750 z -22.6250"));
+    }
+
+    // should accept and reject exactly the lines parseMessage does
+    @Test
+    public void parseLineHasTheGrammarOfParseMessage() {
+        String[] numbers = { "5", "55", ".5", "5.", "5.5", "-5", "-55", "-.5", "-5.", "-5.5", "05", "1.2.3",
+                "123456789012345678", "1234567890123456789", "12345678.9012345678", "12345678.90123456789" };
+        for (String number : numbers) {
+            assertSameParse("id 2 time 100 x " + number + " y 1.0 z 1.0");
+            assertSameParse("id 2 time 100 x 1.0 y 1.0 z " + number);
+            assertSameParse("id " + number + " time 100 x 1.0 y 1.0 z 1.0");
+            assertSameParse("id 2 time " + number + " x 1.0 y 1.0 z 1.0");
+        }
+        assertSameParse("id 2147483647 time 100 x 1.0 y 1.0 z 1.0");
+        assertSameParse("id 2147483648 time 100 x 1.0 y 1.0 z 1.0");
+        assertNull(parse("id 2147483648 time 100 x 1.0 y 1.0 z 1.0"));
+        assertNull(parse("id 2 time 100 x 5 y 1.0 z 1.0"));
+        assertNull(parse("id 2 time 100 x .5 y 1.0 z 1.0"));
+        assertNull(parse("id 2 time 100 x 5. y 1.0 z 1.0"));
+    }
+
+    private static void assertSameParse(String line) {
+        List<Sample> expected = Sample.parseMessage(line);
+        Sample sample = parse(line);
+        if (expected.isEmpty()) {
+            assertNull(line, sample);
+            return;
+        }
+        assertNotNull(line, sample);
+        assertEquals(line, expected.get(0).sensorId, sample.sensorId);
+        assertEquals(line, expected.get(0).timestamp, sample.timestamp);
+        assertEquals(line, expected.get(0).yaw, sample.yaw, 1e-9 * Math.abs(sample.yaw));
+        assertEquals(line, expected.get(0).roll, sample.roll, 1e-9 * Math.abs(sample.roll));
+    }
+
+    // should reassemble messages split across any number of chunks
+    @Test
+    public void reassemblesChunkedMessages() {
+        String stream = "id 2 time 100 x 1.5 y 2.5 z 3.5\r\n" +
+                "id 3 time 100 x 1.5 y 2.5 z 3.5\n$\n" +
+                "id 2 time 200 x 4.5 y 5.5 z 6.5\n$\n";
+        byte[] bytes = stream.getBytes(StandardCharsets.US_ASCII);
+
+        // Feed it 7 bytes at a time, so chunks end in the middle of lines
+        for (int i = 0; i < bytes.length; i += 7) {
+            ring.write(bytes, i, Math.min(7, bytes.length - i));
+            assembler.consume(ring);
+        }
+
+        assertEquals(2, messages.size());
+        assertEquals(2, messages.get(0).size());
+        assertEquals(3, messages.get(0).get(1).sensorId);
+        assertEquals(200, messages.get(1).get(0).timestamp);
+        assertEquals(6.5, messages.get(1).get(0).roll, 0.00001);
+    }
+
+    // should not deliver a message before its boundary arrives
+    @Test
+    public void waitsForBoundary() {
+        byte[] bytes = "id 2 time 100 x 1.5 y 2.5 z 3.5\n".getBytes(StandardCharsets.US_ASCII);
+        ring.write(bytes, 0, bytes.length);
+        assembler.consume(ring);
+
+        assertEquals(0, messages.size());
+    }
+
+    private static Sample parse(String line) {
+        byte[] bytes = ("  " + line).getBytes(StandardCharsets.US_ASCII);
+        return Sample.parseLine(bytes, 2, bytes.length - 2);
+    }
+}
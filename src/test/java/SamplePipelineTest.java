@@ -0,0 +1,26 @@
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SamplePipelineTest {
+
+    // should count the holes in the stream of the modeled sensor in the metrics
+    @Test
+    public void countsGaps() {
+        SamplePipeline pipeline = new SamplePipeline(new Modeler());
+        long gaps = PipelineMetrics.get().getSampleGaps();
+        long gapMillis = PipelineMetrics.get().getSampleGapMillis();
+
+        long[] timestamps = { 0, 10, 20, 520, 530 };
+        for (long timestamp : timestamps) {
+            pipeline.accept(Collections.singletonList(
+                    new Sample(SamplePipeline.RIGHT_ARM_SENSOR_ID, timestamp, 10.0, 20.0, 30.0)));
+        }
+        pipeline.flush();
+
+        assertEquals(gaps + 1, PipelineMetrics.get().getSampleGaps());
+        assertEquals(gapMillis + 500, PipelineMetrics.get().getSampleGapMillis());
+    }
+}
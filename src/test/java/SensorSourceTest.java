@@ -0,0 +1,270 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class SensorSourceTest {
+    private SensorSource source;
+
+    @After
+    public void afterEach() {
+        if (source != null) source.stop();
+    }
+
+    // should generate one sample per sensor in every synthetic message
+    @Test
+    public void syntheticSamplesForEverySensor() throws Exception {
+        source = new SyntheticSensorSource(0, 3, 0.5, 42);
+        List<List<Sample>> messages = collect(source, 10);
+
+        assertEquals(10, messages.size());
+        for (List<Sample> samples : messages) {
+            assertEquals(3, samples.size());
+            assertEquals(1, samples.get(0).sensorId);
+            assertEquals(3, samples.get(2).sensorId);
+        }
+    }
+
+    // should write the angles with 4 decimals, of either sign, as the Arduino does
+    @Test
+    public void syntheticAnglesMatchTheMotion() throws Exception {
+        source = new SyntheticSensorSource(0, 3, 0, 42);
+        Sample first = collect(source, 1).get(0).get(0);
+
+        double t = first.timestamp / 1000.0;
+        assertEquals(180 + 90 * Math.sin(0.2 * t + 0.7), first.yaw, 0.0001);
+        assertEquals(45 * Math.sin(0.5 * t + 0.7), first.pitch, 0.0001);
+        assertEquals(-45 + 45 * Math.sin(0.3 * t + 0.7), first.roll, 0.0001);
+    }
+
+    // should replay every line of a file, skipping message boundaries, then end
+    @Test
+    public void fileReplayEnds() throws Exception {
+        File file = File.createTempFile("recording", ".txt");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("id 2 time 100 x 352.6250 y -0.5625 z -100.1875");
+            out.println("$");
+            out.println("id 2 time 200 x 352.6250 y -0.5625 z -100.1875");
+            out.println("$");
+        }
+
+        List<List<Sample>> messages = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch ended = new CountDownLatch(1);
+        source = new FileSensorSource(file, 0);
+        source.start(new SensorSource.Listener() {
+            public void messageReceived(List<Sample> samples) { messages.add(samples); }
+            public void streamEnded() { ended.countDown(); }
+        });
+
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        assertEquals(2, messages.size());
+        assertEquals(200, messages.get(1).get(0).timestamp);
+    }
+
+    // should not deliver to the previous listener once restarted, nor mix the two replays
+    @Test
+    public void fileRestartStopsPreviousReplay() throws Exception {
+        File file = File.createTempFile("recording", ".txt");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (int i = 0; i < 5000; i++) {
+                out.println("id 2 time " + i + " x 352.6250 y -0.5625 z -100.1875");
+            }
+        }
+
+        AtomicInteger first = new AtomicInteger();
+        source = new FileSensorSource(file, 0);
+        source.start(samples -> first.incrementAndGet());
+        while (first.get() == 0) Thread.sleep(1);
+
+        List<Long> timestamps = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch ended = new CountDownLatch(1);
+        source.start(new SensorSource.Listener() {
+            public void messageReceived(List<Sample> samples) { timestamps.add(samples.get(0).timestamp); }
+            public void streamEnded() { ended.countDown(); }
+        });
+        int delivered = first.get();
+
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        assertEquals(delivered, first.get());
+        assertEquals(5000, timestamps.size());
+        assertEquals(0, (long) timestamps.get(0));
+    }
+
+    // should report a missing file as a failure
+    @Test
+    public void missingFileFails() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        source = new FileSensorSource(new File("does-not-exist.txt"), 0);
+        source.start(new SensorSource.Listener() {
+            public void messageReceived(List<Sample> samples) {}
+            public void streamFailed(IOException e) { failed.countDown(); }
+        });
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+    }
+
+    // should reopen the serial when reading fails, with backoff, and go on with the same listener
+    @Test
+    public void serialReconnectsAfterFailure() throws Exception {
+        FakeSerial serial = new FakeSerial(2);
+        long reconnects = PipelineMetrics.get().getSerialReconnects();
+        List<List<Sample>> messages = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch restarted = new CountDownLatch(1);
+        AtomicInteger deviceClosed = new AtomicInteger();
+        source = new SerialSensorSource(serial, 5000, 10, 40);
+        source.start(new SensorSource.Listener() {
+            public void messageReceived(List<Sample> samples) { messages.add(samples); }
+            public void streamRestarted() { restarted.countDown(); }
+            public void deviceClosed() { deviceClosed.incrementAndGet(); }
+        });
+
+        serial.send(100);
+        serial.fail();
+        assertTrue(restarted.await(5, TimeUnit.SECONDS));
+        // Two failed attempts, then the third reopens the port
+        assertEquals(3, serial.reopened.get());
+        serial.send(200);
+
+        assertEquals(2, messages.size());
+        assertEquals(200, messages.get(1).get(0).timestamp);
+        assertEquals(reconnects + 1, PipelineMetrics.get().getSerialReconnects());
+
+        // Reconnected, the serial stays open for the next stream
+        source.stop();
+        assertEquals(0, deviceClosed.get());
+        assertEquals(0, serial.closed.get());
+    }
+
+    // should reopen the serial when no message arrives for the heartbeat timeout
+    @Test
+    public void serialReconnectsWhenSilent() throws Exception {
+        FakeSerial serial = new FakeSerial(0);
+        CountDownLatch restarted = new CountDownLatch(1);
+        source = new SerialSensorSource(serial, 100, 10, 40);
+        source.start(new SensorSource.Listener() {
+            public void messageReceived(List<Sample> samples) {}
+            public void streamRestarted() { restarted.countDown(); }
+        });
+
+        assertTrue(restarted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, serial.reopened.get());
+    }
+
+    // should neither restart nor read when stopped while the port is reopening, and close the port for good
+    @Test
+    public void serialStoppedWhileReopening() throws Exception {
+        FakeSerial serial = new FakeSerial(0);
+        serial.slowReopen = new CountDownLatch(1);
+        AtomicInteger restarted = new AtomicInteger();
+        AtomicInteger deviceClosed = new AtomicInteger();
+        source = new SerialSensorSource(serial, 5000, 10, 40);
+        source.start(new SensorSource.Listener() {
+            public void messageReceived(List<Sample> samples) {}
+            public void streamRestarted() { restarted.incrementAndGet(); }
+            public void deviceClosed() { deviceClosed.incrementAndGet(); }
+        });
+        serial.send(100);
+        serial.fail();
+        assertTrue(serial.reopening.tryAcquire(5, TimeUnit.SECONDS));
+
+        Thread stopping = new Thread(source::stop);
+        stopping.start();
+        Thread.sleep(100);
+        serial.slowReopen.countDown();
+        stopping.join(5000);
+
+        assertFalse(stopping.isAlive());
+        assertEquals(0, restarted.get());
+        assertEquals(1, serial.closed.get());
+        assertEquals(1, deviceClosed.get());
+        assertEquals(0, serial.reading.availablePermits());
+    }
+
+    // A Serial without port, driven by the test
+    private static class FakeSerial extends Serial {
+        private final int failedReopens;
+        final AtomicInteger reopened = new AtomicInteger();
+        private volatile Consumer<List<Sample>> onMessage;
+        private volatile Consumer<IOException> onFailure;
+        private final Semaphore reading = new Semaphore(0);
+        // When set, reopen() waits for it, ignoring interrupts as RXTX does
+        volatile CountDownLatch slowReopen;
+        final Semaphore reopening = new Semaphore(0);
+        final AtomicInteger closed = new AtomicInteger();
+
+        FakeSerial(int failedReopens) {
+            this.failedReopens = failedReopens;
+        }
+
+        @Override
+        public void startReading(Consumer<List<Sample>> onMessage, Consumer<IOException> onFailure) {
+            this.onMessage = onMessage;
+            this.onFailure = onFailure;
+            reading.release();
+        }
+
+        @Override
+        public void stopReading() {
+            onMessage = null;
+        }
+
+        @Override
+        public boolean reopen() {
+            onMessage = null;
+            reading.drainPermits();
+            reopening.release();
+            boolean interrupted = false;
+            while (slowReopen != null) {
+                try {
+                    slowReopen.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            return reopened.incrementAndGet() > failedReopens;
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+
+        void send(long timestamp) throws InterruptedException {
+            if (onMessage == null) assertTrue(reading.tryAcquire(5, TimeUnit.SECONDS));
+            onMessage.accept(Collections.singletonList(new Sample(2, timestamp, 0.0, 0.0, 0.0)));
+        }
+
+        void fail() {
+            onFailure.accept(new IOException("unplugged"));
+        }
+    }
+
+    // Collects the first messages of a source
+    private static List<List<Sample>> collect(SensorSource source, int count) throws InterruptedException {
+        List<List<Sample>> messages = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch received = new CountDownLatch(count);
+        source.start(samples -> {
+            if (received.getCount() > 0) messages.add(samples);
+            received.countDown();
+        });
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        source.stop();
+        return new ArrayList<>(messages.subList(0, count));
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class SnapshotEncoderTest {
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private int[] gradient() {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | (i * 2) << 16 | (255 - i) << 8 | (i % WIDTH) * 16;
+        }
+        return pixels;
+    }
+
+    // should write the exact pixels in the lossless formats
+    @Test
+    public void losslessFormats() throws Exception {
+        int[] pixels = gradient();
+        for (SnapshotEncoder.Format format : new SnapshotEncoder.Format[] {
+                SnapshotEncoder.Format.PNG, SnapshotEncoder.Format.BMP }) {
+            File file = new File(folder.getRoot(), "snapshot." + format.getExtension());
+            SnapshotEncoder.encode(pixels, WIDTH, HEIGHT, file, format);
+
+            BufferedImage image = ImageIO.read(file);
+            assertEquals(WIDTH, image.getWidth());
+            assertEquals(HEIGHT, image.getHeight());
+            assertArrayEquals(pixels, image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH));
+        }
+    }
+
+    // should write a readable JPEG
+    @Test
+    public void jpeg() throws Exception {
+        File file = new File(folder.getRoot(), "snapshot.jpg");
+        SnapshotEncoder.encode(gradient(), WIDTH, HEIGHT, file, SnapshotEncoder.Format.JPEG);
+
+        BufferedImage image = ImageIO.read(file);
+        assertEquals(WIDTH, image.getWidth());
+        assertEquals(HEIGHT, image.getHeight());
+    }
+
+    // should encode the submitted snapshots in the background, and reuse their buffers
+    @Test
+    public void encodesInBackground() throws Exception {
+        SnapshotEncoder encoder = SnapshotEncoder.get();
+        long saved = encoder.getSavedCount();
+        File file = new File(folder.getRoot(), "background.png");
+
+        int[] pixels = encoder.acquireBuffer(WIDTH * HEIGHT);
+        System.arraycopy(gradient(), 0, pixels, 0, pixels.length);
+        assertTrue(encoder.submit(pixels, WIDTH, HEIGHT, file, SnapshotEncoder.Format.PNG));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (encoder.getSavedCount() == saved && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(file.exists());
+        assertSame(pixels, encoder.acquireBuffer(WIDTH * HEIGHT));
+    }
+}
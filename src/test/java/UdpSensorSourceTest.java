@@ -0,0 +1,136 @@
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class UdpSensorSourceTest {
+    private UdpSensorSource source;
+    private DatagramChannel sender;
+
+    @After
+    public void afterEach() throws Exception {
+        if (source != null) source.stop();
+        if (sender != null) sender.close();
+    }
+
+    private List<List<Sample>> start(CountDownLatch received) throws Exception {
+        List<List<Sample>> messages = Collections.synchronizedList(new ArrayList<>());
+        source = new UdpSensorSource(0);
+        source.start(samples -> {
+            messages.add(samples);
+            received.countDown();
+        });
+        sender = DatagramChannel.open();
+        sender.connect(new InetSocketAddress("127.0.0.1", source.getLocalPort()));
+        return messages;
+    }
+
+    // should decode every message of a text datagram, and binary datagrams
+    @Test
+    public void decodesTextAndBinaryDatagrams() throws Exception {
+        CountDownLatch received = new CountDownLatch(3);
+        List<List<Sample>> messages = start(received);
+
+        sender.write(ByteBuffer.wrap((
+                "id 2 time 100 x 352.6250 y -0.5625 z -100.1875\n"
+                + "id 3 time 100 x 10.0000 y 20.0000 z 30.0000\n"
+                + "$\n"
+                + "id 2 time 200 x 352.6250 y -0.5625 z -100.1875\n"
+                + "$\n").getBytes(StandardCharsets.US_ASCII)));
+        sender.write(ByteBuffer.wrap(BinaryFrameDecoder.encode(
+                Arrays.asList(new Sample(2, 300, 3.5, 1.5, 2.5)))));
+
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals(2, messages.get(0).size());
+        assertEquals(3, messages.get(0).get(1).sensorId);
+        assertEquals(200, messages.get(1).get(0).timestamp);
+        assertEquals(300, messages.get(2).get(0).timestamp);
+        assertEquals(2, source.getDatagrams());
+    }
+
+    // should drop a message cut at the end of a datagram, without corrupting the next one
+    @Test
+    public void dropsPartialMessages() throws Exception {
+        CountDownLatch received = new CountDownLatch(1);
+        List<List<Sample>> messages = start(received);
+
+        sender.write(ByteBuffer.wrap("id 2 time 100 x 1.0 y 2.0 z 3.0\n".getBytes(StandardCharsets.US_ASCII)));
+        sender.write(ByteBuffer.wrap("id 2 time 200 x 1.0 y 2.0 z 3.0\n$\n".getBytes(StandardCharsets.US_ASCII)));
+
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(1, messages.size());
+        assertEquals(1, messages.get(0).size());
+        assertEquals(200, messages.get(0).get(0).timestamp);
+    }
+
+    // should receive every message of many batched binary datagrams from a loopback sender
+    @Test
+    public void receivesBatchedSamples() throws Exception {
+        int datagrams = 400;
+        int messagesPerDatagram = 10;
+        int samplesPerMessage = 5;
+        CountDownLatch received = new CountDownLatch(datagrams * messagesPerDatagram);
+        List<List<Sample>> messages = start(received);
+
+        for (int d = 0; d < datagrams; d++) {
+            ByteBuffer datagram = ByteBuffer.allocate(messagesPerDatagram
+                    * (3 + samplesPerMessage * BinaryFrameDecoder.SAMPLE_SIZE));
+            for (int m = 0; m < messagesPerDatagram; m++) {
+                List<Sample> samples = new ArrayList<>();
+                for (int s = 0; s < samplesPerMessage; s++) {
+                    samples.add(new Sample(s + 1, d * messagesPerDatagram + m, 1.0, 2.0, 3.0));
+                }
+                datagram.put(BinaryFrameDecoder.encode(samples));
+            }
+            datagram.flip();
+            sender.write(datagram);
+        }
+
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals(datagrams * messagesPerDatagram, messages.size());
+        assertEquals(samplesPerMessage, messages.get(0).size());
+        assertEquals(datagrams * messagesPerDatagram - 1, messages.get(messages.size() - 1).get(0).timestamp);
+    }
+
+    // should free its port when stopped, so it can listen on it again
+    @Test
+    public void restartsOnTheSamePort() throws Exception {
+        CountDownLatch received = new CountDownLatch(1);
+        start(new CountDownLatch(0));
+        int port = source.getLocalPort();
+        source.stop();
+
+        source = new UdpSensorSource(port);
+        source.start(samples -> received.countDown());
+        assertEquals(port, source.getLocalPort());
+        sender.write(ByteBuffer.wrap(BinaryFrameDecoder.encode(
+                Arrays.asList(new Sample(2, 300, 3.5, 1.5, 2.5)))));
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+    }
+
+    // should name UDP sources in the list of ports
+    @Test
+    public void parsesPortNames() {
+        assertTrue(UdpSensorSource.isUdp("udp://9750"));
+        assertFalse(UdpSensorSource.isUdp("/dev/ttyUSB0"));
+        assertEquals(9750, UdpSensorSource.parsePort("udp://9750"));
+        try {
+            UdpSensorSource.parsePort("udp://70000");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}